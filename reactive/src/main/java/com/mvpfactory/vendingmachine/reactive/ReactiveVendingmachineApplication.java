@@ -0,0 +1,15 @@
+package com.mvpfactory.vendingmachine.reactive;
+
+import com.mvpfactory.vendingmachine.service.change.ChangeCalculator;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
+
+@SpringBootApplication
+@Import(ChangeCalculator.class)
+public class ReactiveVendingmachineApplication {
+
+	public static void main(String[] args) {
+		SpringApplication.run(ReactiveVendingmachineApplication.class, args);
+	}
+}
@@ -0,0 +1,48 @@
+package com.mvpfactory.vendingmachine.reactive.error;
+
+import com.mvpfactory.vendingmachine.error.model.ApiError;
+import com.mvpfactory.vendingmachine.error.model.DepositException;
+import com.mvpfactory.vendingmachine.error.model.ProductNotFoundException;
+import com.mvpfactory.vendingmachine.error.model.UserNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.server.ServerWebInputException;
+
+import java.util.UUID;
+
+@Slf4j
+@ControllerAdvice
+public class ReactiveExceptionHandlerController {
+
+    @ExceptionHandler(UserNotFoundException.class)
+    public ResponseEntity<ApiError> handleException(UserNotFoundException ex) {
+        UUID errorId = UUID.randomUUID();
+        log.error("User Not found. Error id is {} ", errorId, ex);
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ApiError(errorId, ex.getMessage()));
+    }
+
+    @ExceptionHandler(ProductNotFoundException.class)
+    public ResponseEntity<ApiError> handleException(ProductNotFoundException ex) {
+        UUID errorId = UUID.randomUUID();
+        log.error("Product Not found. Error id is {} ", errorId, ex);
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ApiError(errorId, ex.getMessage()));
+    }
+
+    @ExceptionHandler(DepositException.class)
+    public ResponseEntity<ApiError> handleException(DepositException ex) {
+        UUID errorId = UUID.randomUUID();
+        log.error("Invalid deposit. Error id is {} ", errorId, ex);
+        return ResponseEntity.badRequest().body(new ApiError(errorId, ex.getMessage()));
+    }
+
+    @ExceptionHandler({WebExchangeBindException.class, ServerWebInputException.class})
+    public ResponseEntity<ApiError> handleException(RuntimeException ex) {
+        UUID errorId = UUID.randomUUID();
+        log.error("Invalid request body. Error id is {} ", errorId, ex);
+        return ResponseEntity.badRequest().body(new ApiError(errorId, ex.getMessage()));
+    }
+}
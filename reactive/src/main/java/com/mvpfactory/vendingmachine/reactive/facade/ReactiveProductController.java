@@ -0,0 +1,26 @@
+package com.mvpfactory.vendingmachine.reactive.facade;
+
+import com.mvpfactory.vendingmachine.model.BuyRequest;
+import com.mvpfactory.vendingmachine.model.BuyResponse;
+import com.mvpfactory.vendingmachine.reactive.service.ReactivePurchaseService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Valid;
+import java.security.Principal;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/v1/products")
+public class ReactiveProductController {
+
+    private final ReactivePurchaseService reactivePurchaseService;
+
+    @PutMapping("/buy")
+    @ResponseStatus(HttpStatus.OK)
+    public Mono<BuyResponse> buyProduct(@RequestBody @Valid BuyRequest buyRequest, Principal principal) {
+        return reactivePurchaseService.buy(principal.getName(), buyRequest);
+    }
+}
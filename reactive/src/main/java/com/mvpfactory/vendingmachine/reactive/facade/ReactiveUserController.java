@@ -0,0 +1,26 @@
+package com.mvpfactory.vendingmachine.reactive.facade;
+
+import com.mvpfactory.vendingmachine.model.DepositRequest;
+import com.mvpfactory.vendingmachine.model.User;
+import com.mvpfactory.vendingmachine.reactive.service.ReactivePurchaseService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Valid;
+import java.security.Principal;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/v1/users")
+public class ReactiveUserController {
+
+    private final ReactivePurchaseService reactivePurchaseService;
+
+    @PutMapping("/deposit")
+    @ResponseStatus(HttpStatus.OK)
+    public Mono<User> deposit(@RequestBody @Valid DepositRequest depositRequest, Principal principal) {
+        return reactivePurchaseService.deposit(principal.getName(), depositRequest);
+    }
+}
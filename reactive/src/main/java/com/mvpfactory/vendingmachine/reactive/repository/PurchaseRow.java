@@ -0,0 +1,21 @@
+package com.mvpfactory.vendingmachine.reactive.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * Outcome of the guarded purchase statement: the stock and deposit seen under lock,
+ * the quantity actually taken and the buyer deposit after the purchase.
+ */
+@Getter
+@AllArgsConstructor
+public class PurchaseRow {
+
+    private final UUID productId;
+    private final int cost;
+    private final int amountAvailable;
+    private final int quantity;
+    private final int deposit;
+}
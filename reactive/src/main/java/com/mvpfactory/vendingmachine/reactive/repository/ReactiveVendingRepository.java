@@ -0,0 +1,74 @@
+package com.mvpfactory.vendingmachine.reactive.repository;
+
+import com.mvpfactory.vendingmachine.model.Role;
+import com.mvpfactory.vendingmachine.model.User;
+import com.mvpfactory.vendingmachine.repository.VendingStatements;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+/**
+ * Every operation is a single PostgreSQL statement in auto-commit, so no connection is held across
+ * requests or while a response is being written. Stock and deposit writes are the servlet application's own
+ * {@link VendingStatements}; reservations live in the servlet application's memory, so none are subtracted here.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ReactiveVendingRepository {
+
+    private static final String DEPOSIT = VendingStatements.ADD_DEPOSIT + " WHERE username = :username RETURNING username, deposit, role";
+
+    private static final String FIND_CREDENTIALS = "SELECT username, password, role FROM users WHERE username = :username";
+
+    private final DatabaseClient databaseClient;
+
+    /**
+     * Returns no row when the product does not exist or is striped.
+     */
+    public Mono<PurchaseRow> purchase(String username, UUID productId, int amount) {
+        return databaseClient.sql(VendingStatements.CONDITIONAL_PURCHASE)
+                .bind("username", username)
+                .bind("productId", productId)
+                .bind("amount", amount)
+                .bind("reserved", 0)
+                .map((row, metadata) -> new PurchaseRow(
+                        row.get("productId", UUID.class),
+                        row.get("cost", Integer.class),
+                        row.get("amountAvailable", Integer.class),
+                        row.get("quantity", Integer.class),
+                        row.get("deposit", Integer.class)))
+                .one();
+    }
+
+    public Mono<User> deposit(String username, int coin) {
+        return databaseClient.sql(DEPOSIT)
+                .bind("username", username)
+                .bind("coin", coin)
+                .map((row, metadata) -> User.builder()
+                        .username(row.get("username", String.class))
+                        .deposit(row.get("deposit", Integer.class))
+                        .role(Role.valueOf(row.get("role", String.class)))
+                        .build())
+                .one();
+    }
+
+    public Mono<Boolean> stripedProductsExist() {
+        return databaseClient.sql(VendingStatements.STRIPED_PRODUCTS_EXIST)
+                .map((row, metadata) -> row.get(0, Boolean.class))
+                .one();
+    }
+
+    public Mono<User> findCredentials(String username) {
+        return databaseClient.sql(FIND_CREDENTIALS)
+                .bind("username", username)
+                .map((row, metadata) -> User.builder()
+                        .username(row.get("username", String.class))
+                        .password(row.get("password", String.class))
+                        .role(Role.valueOf(row.get("role", String.class)))
+                        .build())
+                .one();
+    }
+}
@@ -0,0 +1,38 @@
+package com.mvpfactory.vendingmachine.reactive.security;
+
+import com.mvpfactory.vendingmachine.security.token.AuthTokenCodec;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.util.List;
+
+/**
+ * Verifies tokens issued by the servlet application's {@code /login} with the shared secret. Only signature and
+ * expiry are checked: revocation on logout is kept in the memory of the issuing instance and is not seen here,
+ * so a logged-out token stays usable until it expires.
+ */
+public class BearerTokenAuthenticationManager implements ReactiveAuthenticationManager {
+
+    private final AuthTokenCodec codec;
+    private final Clock clock;
+
+    public BearerTokenAuthenticationManager(AuthTokenCodec codec, Clock clock) {
+        this.codec = codec;
+        this.clock = clock;
+    }
+
+    @Override
+    public Mono<Authentication> authenticate(Authentication authentication) {
+        long now = clock.millis();
+        return Mono.justOrEmpty(codec.decode((String) authentication.getCredentials()))
+                .filter(claims -> claims.getExpiresAt() > now)
+                .<Authentication>map(claims -> new UsernamePasswordAuthenticationToken(claims.getUsername(), null,
+                        List.of(new SimpleGrantedAuthority(String.format("ROLE_%s", claims.getRole())))))
+                .switchIfEmpty(Mono.error(() -> new BadCredentialsException("Invalid or expired token")));
+    }
+}
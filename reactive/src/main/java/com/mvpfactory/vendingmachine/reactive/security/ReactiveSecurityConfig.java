@@ -0,0 +1,81 @@
+package com.mvpfactory.vendingmachine.reactive.security;
+
+import com.mvpfactory.vendingmachine.model.Role;
+import com.mvpfactory.vendingmachine.reactive.repository.ReactiveVendingRepository;
+import com.mvpfactory.vendingmachine.security.token.AuthTokenCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.AuthenticationWebFilter;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+
+/**
+ * Accepts the same credentials as the servlet application. Basic authentication looks the user up over R2DBC and
+ * runs BCrypt on the bounded elastic scheduler (the default of {@code UserDetailsRepositoryReactiveAuthenticationManager}),
+ * so event loop threads never block on it. Bearer tokens are only verified when {@code auth_token_secret} is set.
+ */
+@Slf4j
+@Configuration
+@EnableWebFluxSecurity
+public class ReactiveSecurityConfig {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    @Bean
+    public PasswordEncoder encoder() {
+        return new BCryptPasswordEncoder();
+    }
+
+    @Bean
+    public ReactiveUserDetailsService userDetailsService(ReactiveVendingRepository reactiveVendingRepository) {
+        return username -> reactiveVendingRepository.findCredentials(username)
+                .map(user -> org.springframework.security.core.userdetails.User.withUsername(user.getUsername())
+                        .password(user.getPassword())
+                        .roles(user.getRole().name())
+                        .build());
+    }
+
+    @Bean
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http, @Value("${auth_token_secret:}") String secret) {
+        http.csrf().disable()
+                .formLogin().disable()
+                .httpBasic().and()
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+                .authorizeExchange()
+                .pathMatchers("/api/v1/users/deposit", "/api/v1/products/buy").hasRole(Role.BUYER.name())
+                .anyExchange().authenticated();
+        if(secret.isBlank()) {
+            log.warn("auth_token_secret is not set, only Basic authentication is accepted");
+        } else {
+            http.addFilterAt(bearerTokenFilter(secret), SecurityWebFiltersOrder.AUTHENTICATION);
+        }
+        return http.build();
+    }
+
+    private AuthenticationWebFilter bearerTokenFilter(String secret) {
+        AuthenticationWebFilter filter = new AuthenticationWebFilter(
+                new BearerTokenAuthenticationManager(new AuthTokenCodec(secret.getBytes(StandardCharsets.UTF_8)), Clock.systemUTC()));
+        filter.setServerAuthenticationConverter(exchange -> {
+            String header = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+            if(header == null || !header.startsWith(BEARER_PREFIX)) {
+                return Mono.empty();
+            }
+            return Mono.just(new UsernamePasswordAuthenticationToken(null, header.substring(BEARER_PREFIX.length()).trim()));
+        });
+        return filter;
+    }
+}
@@ -0,0 +1,46 @@
+package com.mvpfactory.vendingmachine.reactive.service;
+
+import com.mvpfactory.vendingmachine.error.model.DepositException;
+import com.mvpfactory.vendingmachine.error.model.ProductNotFoundException;
+import com.mvpfactory.vendingmachine.error.model.UserNotFoundException;
+import com.mvpfactory.vendingmachine.model.BuyRequest;
+import com.mvpfactory.vendingmachine.model.BuyResponse;
+import com.mvpfactory.vendingmachine.model.BuyStatus;
+import com.mvpfactory.vendingmachine.model.DepositRequest;
+import com.mvpfactory.vendingmachine.model.User;
+import com.mvpfactory.vendingmachine.reactive.repository.ReactiveVendingRepository;
+import com.mvpfactory.vendingmachine.service.change.ChangeCalculator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReactivePurchaseService {
+
+    private final ReactiveVendingRepository reactiveVendingRepository;
+    private final ChangeCalculator changeCalculator;
+
+    public Mono<BuyResponse> buy(String username, BuyRequest buyRequest) {
+        return reactiveVendingRepository.purchase(username, buyRequest.getProductId(), buyRequest.getAmount())
+                .switchIfEmpty(Mono.error(() -> new ProductNotFoundException(String.format("Product id %s not found", buyRequest.getProductId()))))
+                .map(result -> BuyResponse.builder()
+                        .productId(buyRequest.getProductId())
+                        .totalSpent(result.getQuantity() * result.getCost())
+                        .numberOfProducts(result.getQuantity())
+                        .change(changeCalculator.change(result.getDeposit()))
+                        .status(BuyStatus.of(buyRequest.getAmount(), result.getQuantity(), result.getAmountAvailable()))
+                        .build());
+    }
+
+    public Mono<User> deposit(String username, DepositRequest depositRequest) {
+        log.info("Trying to deposit amount {} for user {}", depositRequest.getCoin(), username);
+        if(!changeCalculator.isAllowed(depositRequest.getCoin())) {
+            return Mono.error(new DepositException(String.format("Coin %s is not in the allowed list of %s", depositRequest.getCoin(), changeCalculator)));
+        }
+        return reactiveVendingRepository.deposit(username, depositRequest.getCoin())
+                .switchIfEmpty(Mono.error(() -> new UserNotFoundException(String.format("Username %s not found", username))));
+    }
+}
@@ -0,0 +1,42 @@
+package com.mvpfactory.vendingmachine.reactive.service;
+
+import com.mvpfactory.vendingmachine.reactive.repository.ReactiveVendingRepository;
+import com.mvpfactory.vendingmachine.service.PurchaseMode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Refuses to start next to a servlet application whose state the reactive statements would bypass: in
+ * {@code IN_MEMORY} mode the servlet application's engine owns stock and deposits and would overwrite these writes,
+ * and striped products keep their stock in stripes this module does not take from. {@code purchase_mode} must be set
+ * to the servlet application's value. Blocking once at startup, before any request is served, is intended.
+ */
+@Slf4j
+@Component
+public class SharedDatabaseGuard {
+
+    private final ReactiveVendingRepository reactiveVendingRepository;
+    private final PurchaseMode purchaseMode;
+
+    @Autowired
+    public SharedDatabaseGuard(ReactiveVendingRepository reactiveVendingRepository,
+                               @Value("${purchase_mode:CONDITIONAL}") PurchaseMode purchaseMode) {
+        this.reactiveVendingRepository = reactiveVendingRepository;
+        this.purchaseMode = purchaseMode;
+    }
+
+    @PostConstruct
+    public void check() {
+        if(purchaseMode == PurchaseMode.IN_MEMORY) {
+            throw new IllegalStateException("The reactive module cannot share the database with an IN_MEMORY servlet application");
+        }
+        if(Boolean.TRUE.equals(reactiveVendingRepository.stripedProductsExist().block())) {
+            throw new IllegalStateException("The reactive module cannot buy striped products, fold all stripes back first");
+        }
+        log.info("Sharing the database with a {} servlet application", purchaseMode);
+    }
+}
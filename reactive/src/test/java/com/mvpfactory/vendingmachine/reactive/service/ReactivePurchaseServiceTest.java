@@ -0,0 +1,86 @@
+package com.mvpfactory.vendingmachine.reactive.service;
+
+import com.mvpfactory.vendingmachine.error.model.DepositException;
+import com.mvpfactory.vendingmachine.error.model.ProductNotFoundException;
+import com.mvpfactory.vendingmachine.model.BuyRequest;
+import com.mvpfactory.vendingmachine.model.BuyStatus;
+import com.mvpfactory.vendingmachine.model.DepositRequest;
+import com.mvpfactory.vendingmachine.model.Role;
+import com.mvpfactory.vendingmachine.model.User;
+import com.mvpfactory.vendingmachine.reactive.repository.PurchaseRow;
+import com.mvpfactory.vendingmachine.reactive.repository.ReactiveVendingRepository;
+import com.mvpfactory.vendingmachine.service.change.ChangeCalculator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ReactivePurchaseServiceTest {
+
+    private static final String USERNAME = "alex";
+    private static final UUID PRODUCT_ID = UUID.randomUUID();
+
+    @Mock
+    private ReactiveVendingRepository reactiveVendingRepository;
+
+    private ReactivePurchaseService reactivePurchaseService;
+
+    @BeforeEach
+    public void setUp() {
+        reactivePurchaseService = new ReactivePurchaseService(reactiveVendingRepository, new ChangeCalculator(List.of(5, 10, 20, 50, 100)));
+    }
+
+    @Test
+    public void givenPartialFill_thenReturnQuantitySpentAndChange() {
+        when(reactiveVendingRepository.purchase(USERNAME, PRODUCT_ID, 5)).thenReturn(Mono.just(new PurchaseRow(PRODUCT_ID, 30, 10, 3, 15)));
+
+        StepVerifier.create(reactivePurchaseService.buy(USERNAME, new BuyRequest(PRODUCT_ID, 5)))
+                .assertNext(buyResponse -> {
+                    assertThat(buyResponse.getNumberOfProducts()).isEqualTo(3);
+                    assertThat(buyResponse.getTotalSpent()).isEqualTo(90);
+                    assertThat(buyResponse.getStatus()).isEqualTo(BuyStatus.PARTIALLY_FILLED);
+                    assertThat(buyResponse.getChange()).containsExactly(entry(10, 1), entry(5, 1));
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    public void givenNonExistingProduct_thenBuyFailsWithProductNotFoundException() {
+        when(reactiveVendingRepository.purchase(USERNAME, PRODUCT_ID, 1)).thenReturn(Mono.empty());
+
+        StepVerifier.create(reactivePurchaseService.buy(USERNAME, new BuyRequest(PRODUCT_ID, 1)))
+                .expectError(ProductNotFoundException.class)
+                .verify();
+    }
+
+    @Test
+    public void givenAllowedCoin_thenReturnUserWithNewDeposit() {
+        User user = User.builder().username(USERNAME).deposit(55).role(Role.BUYER).build();
+        when(reactiveVendingRepository.deposit(USERNAME, 50)).thenReturn(Mono.just(user));
+
+        StepVerifier.create(reactivePurchaseService.deposit(USERNAME, new DepositRequest(50)))
+                .expectNext(user)
+                .verifyComplete();
+    }
+
+    @Test
+    public void givenInvalidCoin_thenDepositFailsWithDepositException() {
+        StepVerifier.create(reactivePurchaseService.deposit(USERNAME, new DepositRequest(3)))
+                .expectError(DepositException.class)
+                .verify();
+
+        verifyNoInteractions(reactiveVendingRepository);
+    }
+}
@@ -0,0 +1,43 @@
+package com.mvpfactory.vendingmachine.reactive.service;
+
+import com.mvpfactory.vendingmachine.reactive.repository.ReactiveVendingRepository;
+import com.mvpfactory.vendingmachine.service.PurchaseMode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class SharedDatabaseGuardTest {
+
+    @Mock
+    private ReactiveVendingRepository reactiveVendingRepository;
+
+    @Test
+    public void givenInMemoryServletApplication_thenRefuseToStart() {
+        SharedDatabaseGuard guard = new SharedDatabaseGuard(reactiveVendingRepository, PurchaseMode.IN_MEMORY);
+
+        assertThrows(IllegalStateException.class, guard::check);
+        verifyNoInteractions(reactiveVendingRepository);
+    }
+
+    @Test
+    public void givenStripedProducts_thenRefuseToStart() {
+        when(reactiveVendingRepository.stripedProductsExist()).thenReturn(Mono.just(true));
+
+        assertThrows(IllegalStateException.class, new SharedDatabaseGuard(reactiveVendingRepository, PurchaseMode.CONDITIONAL)::check);
+    }
+
+    @Test
+    public void givenNoStripedProducts_thenStart() {
+        when(reactiveVendingRepository.stripedProductsExist()).thenReturn(Mono.just(false));
+
+        assertDoesNotThrow(new SharedDatabaseGuard(reactiveVendingRepository, PurchaseMode.STANDARD)::check);
+    }
+}
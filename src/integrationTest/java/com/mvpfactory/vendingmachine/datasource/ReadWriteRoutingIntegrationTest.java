@@ -0,0 +1,90 @@
+package com.mvpfactory.vendingmachine.datasource;
+
+import liquibase.Contexts;
+import liquibase.Liquibase;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("integrationTest")
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routingprimary;DB_CLOSE_DELAY=-1",
+        "replica_datasource_urls=" + ReadWriteRoutingIntegrationTest.REPLICA_URL,
+        "replica_lag_query=",
+        "replica_lag_tolerance_ms=60000"
+})
+class ReadWriteRoutingIntegrationTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:routingreplica;DB_CLOSE_DELAY=-1";
+
+    static {
+        // the replica gets the same schema the primary migrates to, as streaming replication would give it
+        try (Connection connection = DriverManager.getConnection(REPLICA_URL, "sa", "password")) {
+            Database database = DatabaseFactory.getInstance().findCorrectDatabaseImplementation(new JdbcConnection(connection));
+            new Liquibase("liquibase/db-changelog-root.yaml", new ClassLoaderResourceAccessor(), database).update(new Contexts());
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not prepare the replica database", e);
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void clearSecurityContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void readOnlyTransactionsAreRoutedToTheReplica() {
+        assertThat(databaseName(true)).isEqualToIgnoringCase("routingreplica");
+    }
+
+    @Test
+    void readWriteTransactionsAreRoutedToThePrimary() {
+        assertThat(databaseName(false)).isEqualToIgnoringCase("routingprimary");
+    }
+
+    @Test
+    void userReadsTheirOwnWritesFromThePrimary() {
+        authenticate("alice");
+        databaseName(false);
+
+        assertThat(databaseName(true)).isEqualToIgnoringCase("routingprimary");
+
+        authenticate("bob");
+        assertThat(databaseName(true)).isEqualToIgnoringCase("routingreplica");
+    }
+
+    private String databaseName(boolean readOnly) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(readOnly);
+        return transactionTemplate.execute(status -> jdbcTemplate.queryForObject("SELECT DATABASE()", String.class));
+    }
+
+    private void authenticate(String username) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(username, null, List.of()));
+    }
+}
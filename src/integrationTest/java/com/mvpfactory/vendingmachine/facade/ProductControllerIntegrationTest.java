@@ -0,0 +1,107 @@
+package com.mvpfactory.vendingmachine.facade;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mvpfactory.vendingmachine.model.Product;
+import com.mvpfactory.vendingmachine.repository.UserRepository;
+import lombok.SneakyThrows;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.util.Base64Utils;
+import org.springframework.web.context.WebApplicationContext;
+
+import javax.transaction.Transactional;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("integrationTest")
+@AutoConfigureMockMvc
+@Transactional
+public class ProductControllerIntegrationTest {
+
+    private static final String USER_SELLER_NAME = "alex-2";
+    private static final String USER_SELLER_PASSWORD = "pass1";
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeEach
+    public void setUp() {
+        mockMvc = MockMvcBuilders
+                .webAppContextSetup(webApplicationContext)
+                .apply(springSecurity())
+                .build();
+    }
+
+    @Test
+    @SneakyThrows
+    public void getProductByIdThenUpdateWithItsEtag_returnHttp200() {
+        Product product = createProduct();
+
+        MvcResult read = mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/products/id/" + product.getId()))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn();
+        String etag = read.getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).isNotNull();
+
+        product.setAmountAvailable(7);
+        MvcResult updated = mockMvc.perform(MockMvcRequestBuilders.put("/api/v1/products")
+                        .content(objectMapper.writeValueAsString(product))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_MATCH, etag)
+                        .header(HttpHeaders.AUTHORIZATION, sellerAuthorization()))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn();
+        assertThat(objectMapper.readValue(updated.getResponse().getContentAsString(), Product.class).getAmountAvailable()).isEqualTo(7);
+    }
+
+    @SneakyThrows
+    private Product createProduct() {
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/users/signup")
+                        .content(new String(Files.readAllBytes(Paths.get("src/integrationTest/resources/user1-request.json"))))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+        UUID sellerId = userRepository.findUserEntityByUsername(USER_SELLER_NAME).get().getId();
+        Product product = Product.builder().productName("etag-cola").amountAvailable(3).cost(15).sellerId(sellerId).build();
+        MvcResult created = mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/products")
+                        .content(objectMapper.writeValueAsString(product))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.AUTHORIZATION, sellerAuthorization()))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn();
+        return objectMapper.readValue(created.getResponse().getContentAsString(), Product.class);
+    }
+
+    private static String sellerAuthorization() {
+        return "Basic " + Base64Utils.encodeToString((USER_SELLER_NAME + ":" + USER_SELLER_PASSWORD).getBytes());
+    }
+}
@@ -1,5 +1,6 @@
 package com.mvpfactory.vendingmachine.facade;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.SneakyThrows;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -42,6 +43,9 @@ public class UserControllerIntegrationTest {
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     private static String USER_SELLER_JSON;
     private static String USER_SELLER_RESPONSE_JSON;
     private static String USER_BUYER_JSON;
@@ -229,6 +233,24 @@ public class UserControllerIntegrationTest {
 
         assertThat(result).isNotNull();
         assertThat(result.getResponse().getContentAsString()).isEqualTo(USER1_UPDATE_RESPONSE_JSON);
+        assertThat(result.getResponse().getHeader(HttpHeaders.ETAG)).isNotNull();
+    }
+
+    @Test
+    @SneakyThrows
+    public void updateUserWithStaleIfMatch_returnHttp412() {
+        signUp(USER_SELLER_JSON);
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/v1/users")
+                        .content(USER1_UPDATE_VALID_DEPOSIT_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_MATCH, "\"42\"")
+                        .header(HttpHeaders.AUTHORIZATION, "Basic " +
+                                Base64Utils
+                                        .encodeToString((USER_SELLER_NAME + ":" + USER_SELLER_PASSWORD)
+                                        .getBytes())))
+                .andExpect(MockMvcResultMatchers.status().isPreconditionFailed())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_JSON))
+                .andReturn();
     }
 
     @Test
@@ -348,4 +370,58 @@ public class UserControllerIntegrationTest {
                 .andExpect(MockMvcResultMatchers.status().isForbidden())
                 .andReturn();
     }
-}
\ No newline at end of file
+
+    @SneakyThrows
+    private String login(String username, String password) {
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/users/login")
+                        .content("{\"username\":\"" + username + "\",\"password\":\"" + password + "\"}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn();
+        return objectMapper.readTree(result.getResponse().getContentAsString()).get("token").asText();
+    }
+
+    @Test
+    @SneakyThrows
+    public void getAllUsersWithBearerToken_returnHttp200() {
+        signUp(USER_SELLER_JSON);
+        String token = login(USER_SELLER_NAME, USER_SELLER_PASSWORD);
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/users")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn();
+
+        assertThat(result.getResponse().getContentAsString()).isEqualTo(ALL_USERS_RESPONSE_JSON);
+    }
+
+    @Test
+    @SneakyThrows
+    public void loginWithWrongPassword_returnHttp401() {
+        signUp(USER_SELLER_JSON);
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/users/login")
+                        .content("{\"username\":\"" + USER_SELLER_NAME + "\",\"password\":\"" + NON_EXISTING_PASSWORD + "\"}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isUnauthorized())
+                .andReturn();
+    }
+
+    @Test
+    @SneakyThrows
+    public void updateUserWithBearerTokenAndRetryRequest_returnHttp401() {
+        signUp(USER_SELLER_JSON);
+        String token = login(USER_SELLER_NAME, USER_SELLER_PASSWORD);
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/v1/users")
+                        .content(USER1_UPDATE_VALID_DEPOSIT_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn();
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/users")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andExpect(MockMvcResultMatchers.status().isUnauthorized())
+                .andReturn();
+    }
+}
@@ -0,0 +1,86 @@
+package com.mvpfactory.vendingmachine.service;
+
+import com.mvpfactory.vendingmachine.repository.LedgerRepository;
+import com.mvpfactory.vendingmachine.service.ledger.Ledger;
+import com.mvpfactory.vendingmachine.service.ledger.LedgerEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("integrationTest")
+public class LedgerIntegrationTest {
+
+    @Autowired
+    private Ledger ledger;
+
+    @Autowired
+    private LedgerRepository ledgerRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    public void entriesInsideTransaction_thenAppendedWithIt() {
+        UUID userId = UUID.randomUUID();
+        UUID productId = UUID.randomUUID();
+
+        transactionTemplate.executeWithoutResult(status -> ledger.record(List.of(
+                LedgerEntry.deposit(userId, 100),
+                LedgerEntry.purchase(userId, productId, 2, 30),
+                LedgerEntry.purchase(userId, productId, 0, 30))));
+
+        assertThat(entriesOf(userId)).isEqualTo(2);
+        assertThat(depositDeltaOf(userId)).isEqualTo(40);
+    }
+
+    @Test
+    public void entriesOutsideTransaction_thenAppendedOnFlush() {
+        UUID userId = UUID.randomUUID();
+
+        ledger.record(LedgerEntry.deposit(userId, 50));
+        ledger.record(LedgerEntry.reset(userId, 50));
+        ledger.flush();
+
+        assertThat(entriesOf(userId)).isEqualTo(2);
+        assertThat(depositDeltaOf(userId)).isZero();
+    }
+
+    @Test
+    public void queueFull_thenEntriesWrittenByTheCaller() {
+        Ledger boundedLedger = new Ledger(ledgerRepository, 60_000, 500, 1);
+        UUID userId = UUID.randomUUID();
+
+        boundedLedger.record(LedgerEntry.deposit(userId, 50));
+        boundedLedger.record(LedgerEntry.deposit(userId, 20));
+
+        assertThat(entriesOf(userId)).isEqualTo(1);
+        assertThat(depositDeltaOf(userId)).isEqualTo(20);
+
+        boundedLedger.flush();
+
+        assertThat(entriesOf(userId)).isEqualTo(2);
+    }
+
+    private int entriesOf(UUID userId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ledger_entries WHERE user_id = ?", Integer.class, userId);
+    }
+
+    private int depositDeltaOf(UUID userId) {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(SUM(deposit_delta), 0) FROM ledger_entries WHERE user_id = ?", Integer.class, userId);
+    }
+}
@@ -0,0 +1,194 @@
+package com.mvpfactory.vendingmachine.service;
+
+import com.mvpfactory.vendingmachine.error.model.InsufficientStockException;
+import com.mvpfactory.vendingmachine.model.Product;
+import com.mvpfactory.vendingmachine.model.Reservation;
+import com.mvpfactory.vendingmachine.model.RepriceRequest;
+import com.mvpfactory.vendingmachine.model.Role;
+import com.mvpfactory.vendingmachine.model.StockLevel;
+import com.mvpfactory.vendingmachine.repository.ProductBulkRepository;
+import com.mvpfactory.vendingmachine.repository.ProductCatalogRepository;
+import com.mvpfactory.vendingmachine.repository.ProductRepository;
+import com.mvpfactory.vendingmachine.repository.UserRepository;
+import com.mvpfactory.vendingmachine.repository.entity.ProductEntity;
+import com.mvpfactory.vendingmachine.repository.entity.UserEntity;
+import com.mvpfactory.vendingmachine.service.bulk.ProductBulkUpdater;
+import com.mvpfactory.vendingmachine.service.catalog.CatalogVersion;
+import com.mvpfactory.vendingmachine.service.catalog.ProductSearchIndex;
+import com.mvpfactory.vendingmachine.service.engine.InventoryEngine;
+import com.mvpfactory.vendingmachine.service.reservation.StockReservations;
+import com.mvpfactory.vendingmachine.service.stock.StripedStock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Runs the bulk statements against H2, committing for real, so the single transaction over all batches is visible.
+ * The updater under test sends one id per batch.
+ */
+@SpringBootTest
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("integrationTest")
+public class ProductBulkIntegrationTest {
+
+    @Autowired
+    private ProductBulkRepository productBulkRepository;
+
+    @Autowired
+    private ProductCatalogRepository productCatalogRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private InventoryEngine inventoryEngine;
+
+    @Autowired
+    private StockReservations stockReservations;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private StripedStock stripedStock;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private ProductBulkUpdater productBulkUpdater;
+    private UUID sellerId;
+    private UUID otherSellerId;
+    private UUID plain;
+    private UUID striped;
+    private UUID foreign;
+
+    @BeforeEach
+    public void setUp() {
+        productBulkUpdater = new ProductBulkUpdater(productBulkRepository, productCatalogRepository, inventoryEngine, stockReservations,
+                catalogVersion, productSearchIndex, transactionTemplate, 1);
+        transactionTemplate.executeWithoutResult(status -> {
+            UserEntity seller = seller("bulk-seller-" + UUID.randomUUID());
+            UserEntity otherSeller = seller("bulk-other-" + UUID.randomUUID());
+            sellerId = seller.getId();
+            otherSellerId = otherSeller.getId();
+            plain = product(seller, 4);
+            striped = product(seller, 0);
+            foreign = product(otherSeller, 4);
+            stripedStock.distribute(striped, 3, 7);
+        });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.update("DELETE FROM product_stock_stripes WHERE product_id = ?", striped);
+        jdbcTemplate.update("DELETE FROM products WHERE seller_id IN (?, ?)", sellerId, otherSellerId);
+        jdbcTemplate.update("DELETE FROM users WHERE id IN (?, ?)", sellerId, otherSellerId);
+    }
+
+    @Test
+    public void addStock_thenStripesShareTheUnitsAndOtherSellersUntouched() {
+        List<Product> updated = productBulkUpdater.addStock(sellerId, List.of(plain, striped, foreign), 5);
+
+        assertThat(updated).extracting(Product::getId).containsExactly(plain, striped);
+        assertThat(updated).extracting(Product::getAmountAvailable).containsExactly(9, 12);
+        assertThat(stripesOf(striped)).containsExactly(5, 4, 3);
+        assertThat(amountOf(striped)).isZero();
+        assertThat(amountOf(foreign)).isEqualTo(4);
+    }
+
+    @Test
+    public void setStock_thenStripedTotalIsTheLevelGiven() {
+        List<Product> updated = productBulkUpdater.setStock(sellerId, List.of(new StockLevel(plain, 1), new StockLevel(striped, 10)));
+
+        assertThat(updated).extracting(Product::getAmountAvailable).containsExactly(1, 10);
+        assertThat(stripesOf(striped)).containsExactly(4, 3, 3);
+        assertThat(amountOf(striped)).isZero();
+    }
+
+    @Test
+    public void setStockBelowReserved_thenRejectedAndEarlierBatchesRolledBack() {
+        UUID userId = UUID.randomUUID();
+        Reservation reservation = stockReservations.hold(userId, striped, 3, () -> 7);
+        try {
+            assertThrows(InsufficientStockException.class, () -> productBulkUpdater.setStock(sellerId,
+                    List.of(new StockLevel(plain, 1), new StockLevel(striped, 2))));
+        } finally {
+            stockReservations.release(reservation.getId(), userId);
+        }
+
+        assertThat(amountOf(plain)).isEqualTo(4);
+        assertThat(stripesOf(striped)).containsExactly(3, 2, 2);
+    }
+
+    @Test
+    public void repriceByIds_thenOnlyOwnProductsRepriced() {
+        List<Product> updated = productBulkUpdater.reprice(sellerId, RepriceRequest.builder()
+                .productIds(List.of(plain, foreign))
+                .costDelta(5)
+                .build());
+
+        assertThat(updated).extracting(Product::getId).containsExactly(plain);
+        assertThat(costOf(plain)).isEqualTo(15);
+        assertThat(costOf(foreign)).isEqualTo(10);
+    }
+
+    private UserEntity seller(String username) {
+        Timestamp now = Timestamp.from(Instant.now());
+        return userRepository.save(UserEntity.builder()
+                .username(username)
+                .password("password")
+                .deposit(0)
+                .role(Role.SELLER)
+                .insertedDate(now)
+                .updatedDate(now)
+                .build());
+    }
+
+    private UUID product(UserEntity seller, int amountAvailable) {
+        Timestamp now = Timestamp.from(Instant.now());
+        return productRepository.save(ProductEntity.builder()
+                .productName("bulk-" + UUID.randomUUID())
+                .amountAvailable(amountAvailable)
+                .cost(10)
+                .seller(seller)
+                .insertedDate(now)
+                .updatedDate(now)
+                .build()).getId();
+    }
+
+    private List<Integer> stripesOf(UUID productId) {
+        return jdbcTemplate.queryForList("SELECT amount FROM product_stock_stripes WHERE product_id = ? ORDER BY stripe", Integer.class, productId);
+    }
+
+    private int amountOf(UUID productId) {
+        return jdbcTemplate.queryForObject("SELECT amount_available FROM products WHERE id = ?", Integer.class, productId);
+    }
+
+    private int costOf(UUID productId) {
+        return jdbcTemplate.queryForObject("SELECT cost FROM products WHERE id = ?", Integer.class, productId);
+    }
+}
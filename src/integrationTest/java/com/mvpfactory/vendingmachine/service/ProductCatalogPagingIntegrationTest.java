@@ -0,0 +1,159 @@
+package com.mvpfactory.vendingmachine.service;
+
+import com.mvpfactory.vendingmachine.model.KeysetPage;
+import com.mvpfactory.vendingmachine.model.Product;
+import com.mvpfactory.vendingmachine.model.ProductFilter;
+import com.mvpfactory.vendingmachine.model.Role;
+import com.mvpfactory.vendingmachine.repository.KeysetCursor;
+import com.mvpfactory.vendingmachine.repository.NameCursor;
+import com.mvpfactory.vendingmachine.repository.ProductCatalogRepository;
+import com.mvpfactory.vendingmachine.repository.ProductRepository;
+import com.mvpfactory.vendingmachine.repository.UserRepository;
+import com.mvpfactory.vendingmachine.repository.entity.ProductEntity;
+import com.mvpfactory.vendingmachine.repository.entity.UserEntity;
+import com.mvpfactory.vendingmachine.service.stock.StripedStock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("integrationTest")
+@Transactional
+public class ProductCatalogPagingIntegrationTest {
+
+    private static final int PAGE_SIZE = 3;
+
+    @Autowired
+    private ProductCatalogRepository productCatalogRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private StripedStock stripedStock;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private UUID sellerId;
+    private final List<String> allNames = new ArrayList<>();
+    private final List<UUID> inStockIds = new ArrayList<>();
+
+    /**
+     * Stocked, sold-out and striped rows interleaved in insertion order, so the in-stock pages have to switch between
+     * both branches of the union; one striped product has only empty stripes and counts as sold out.
+     */
+    @BeforeEach
+    public void setUp() {
+        Instant base = Instant.now();
+        UserEntity seller = userRepository.save(UserEntity.builder()
+                .username("paging-seller")
+                .password("password")
+                .deposit(0)
+                .role(Role.SELLER)
+                .insertedDate(Timestamp.from(base))
+                .updatedDate(Timestamp.from(base))
+                .build());
+        sellerId = seller.getId();
+
+        List<UUID> striped = new ArrayList<>();
+        UUID emptyStriped = null;
+        for(int index = 0; index < 15; index++) {
+            String kind = index % 3 == 0 ? "stocked" : index % 3 == 1 ? "sold-out" : "striped";
+            Timestamp insertedDate = Timestamp.from(base.plusMillis(index * 10L));
+            String productName = String.format("%s-%02d", kind, 14 - index);
+            UUID productId = productRepository.save(ProductEntity.builder()
+                    .productName(productName)
+                    .amountAvailable(kind.equals("stocked") ? 4 : 0)
+                    .cost(5)
+                    .seller(seller)
+                    .insertedDate(insertedDate)
+                    .updatedDate(insertedDate)
+                    .build()).getId();
+            allNames.add(productName);
+            if(kind.equals("striped") && index == 14) {
+                emptyStriped = productId;
+            } else if(kind.equals("striped")) {
+                striped.add(productId);
+            }
+            if(kind.equals("stocked") || (kind.equals("striped") && index != 14)) {
+                inStockIds.add(productId);
+            }
+        }
+        entityManager.flush();
+        striped.forEach(productId -> stripedStock.distribute(productId, 3, 6));
+        stripedStock.distribute(emptyStriped, 2, 0);
+        entityManager.clear();
+    }
+
+    @Test
+    public void sellerPages_thenEveryProductOnceInNameOrder() {
+        List<Product> products = new ArrayList<>();
+        NameCursor cursor = null;
+        int pages = 0;
+        do {
+            KeysetPage<Product> page = productCatalogRepository.findSellerPage(sellerId, cursor, PAGE_SIZE);
+            assertThat(page.getItems()).hasSizeLessThanOrEqualTo(PAGE_SIZE);
+            products.addAll(page.getItems());
+            cursor = NameCursor.decode(page.getNextCursor());
+            pages++;
+        } while(cursor != null);
+
+        List<String> names = products.stream().map(Product::getProductName).collect(Collectors.toList());
+        assertThat(names).doesNotHaveDuplicates().isSorted().containsExactlyInAnyOrderElementsOf(allNames);
+        assertThat(pages).isEqualTo(5);
+        assertThat(products).filteredOn(product -> product.getProductName().startsWith("striped"))
+                .extracting(Product::getAmountAvailable).containsOnly(6, 0);
+    }
+
+    @Test
+    public void inStockPages_thenStockedAndStripedRowsOnceInKeysetOrder() {
+        ProductFilter filter = ProductFilter.builder().sellerId(sellerId).inStock(true).build();
+        List<Product> products = new ArrayList<>();
+        KeysetCursor cursor = null;
+        do {
+            KeysetPage<Product> page = productCatalogRepository.findPage(filter, cursor, PAGE_SIZE);
+            assertThat(page.getItems()).hasSizeLessThanOrEqualTo(PAGE_SIZE);
+            products.addAll(page.getItems());
+            cursor = KeysetCursor.decode(page.getNextCursor());
+        } while(cursor != null);
+
+        assertThat(products).extracting(Product::getId).doesNotHaveDuplicates().containsExactlyElementsOf(inStockIds);
+        assertThat(products).allMatch(product -> product.getAmountAvailable() > 0)
+                .noneMatch(product -> product.getProductName().startsWith("sold-out"));
+    }
+
+    @Test
+    public void catalogPages_thenInStockIsExactlyTheRowsWithStock() {
+        List<Product> all = new ArrayList<>();
+        KeysetCursor cursor = null;
+        do {
+            KeysetPage<Product> page = productCatalogRepository.findPage(ProductFilter.builder().sellerId(sellerId).build(), cursor, PAGE_SIZE);
+            all.addAll(page.getItems());
+            cursor = KeysetCursor.decode(page.getNextCursor());
+        } while(cursor != null);
+
+        assertThat(all).hasSize(allNames.size());
+        assertThat(all).filteredOn(product -> product.getAmountAvailable() > 0).extracting(Product::getId)
+                .containsExactlyElementsOf(inStockIds);
+    }
+}
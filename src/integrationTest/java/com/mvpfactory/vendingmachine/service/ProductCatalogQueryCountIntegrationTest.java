@@ -0,0 +1,156 @@
+package com.mvpfactory.vendingmachine.service;
+
+import com.mvpfactory.vendingmachine.model.KeysetPage;
+import com.mvpfactory.vendingmachine.model.Product;
+import com.mvpfactory.vendingmachine.model.ProductFilter;
+import com.mvpfactory.vendingmachine.model.Role;
+import com.mvpfactory.vendingmachine.repository.ProductRepository;
+import com.mvpfactory.vendingmachine.repository.UserRepository;
+import com.mvpfactory.vendingmachine.repository.entity.ProductEntity;
+import com.mvpfactory.vendingmachine.repository.entity.UserEntity;
+import com.mvpfactory.vendingmachine.service.stock.StripedStock;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+import javax.transaction.Transactional;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("integrationTest")
+@Transactional
+public class ProductCatalogQueryCountIntegrationTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private StripedStock stripedStock;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @TestConfiguration
+    static class StatementCountingConfiguration {
+
+        @Bean
+        static BeanPostProcessor statementCountingDataSourcePostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource && !(bean instanceof StatementCountingDataSource)
+                            ? new StatementCountingDataSource((DataSource) bean) : bean;
+                }
+            };
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 40})
+    public void catalogReads_thenCostExactlyOneStatement(int catalogSize) {
+        UUID productId = seedCatalog(catalogSize);
+        StatementCountingDataSource statements = (StatementCountingDataSource) dataSource;
+
+        statements.reset();
+        KeysetPage<Product> page = productService.getProducts(new ProductFilter(), null, 100);
+        assertThat(page.getItems()).hasSize(catalogSize + 2);
+        assertThat(statements.getStatementCount()).isEqualTo(1);
+
+        statements.reset();
+        Product product = productService.findProduct(productId);
+        assertThat(product.getSellerId()).isNotNull();
+        assertThat(statements.getStatementCount()).isEqualTo(1);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 40})
+    public void catalogReadsOfSoldOutAndStripedProducts_thenStripesAreSummedInTheSameStatement(int catalogSize) {
+        seedCatalog(catalogSize);
+        StatementCountingDataSource statements = (StatementCountingDataSource) dataSource;
+
+        statements.reset();
+        KeysetPage<Product> page = productService.getProducts(new ProductFilter(), null, 100);
+        assertThat(statements.getStatementCount()).isEqualTo(1);
+        assertThat(page.getItems()).filteredOn(item -> item.getProductName().equals("sold-out")).singleElement()
+                .extracting(Product::getAmountAvailable).isEqualTo(0);
+        assertThat(page.getItems()).filteredOn(item -> item.getProductName().equals("striped")).singleElement()
+                .extracting(Product::getAmountAvailable).isEqualTo(7);
+
+        statements.reset();
+        KeysetPage<Product> inStock = productService.getProducts(ProductFilter.builder().inStock(true).build(), null, 100);
+        assertThat(statements.getStatementCount()).isEqualTo(1);
+        assertThat(inStock.getItems()).hasSize(catalogSize + 1)
+                .noneMatch(item -> item.getProductName().equals("sold-out"));
+
+        statements.reset();
+        Product striped = productService.findProduct("striped");
+        assertThat(striped.getAmountAvailable()).isEqualTo(7);
+        assertThat(statements.getStatementCount()).isEqualTo(1);
+    }
+
+    private UUID seedCatalog(int catalogSize) {
+        Timestamp now = Timestamp.from(Instant.now());
+        UserEntity seller = userRepository.save(UserEntity.builder()
+                .username("query-count-seller")
+                .password("password")
+                .deposit(0)
+                .role(Role.SELLER)
+                .insertedDate(now)
+                .updatedDate(now)
+                .build());
+        UUID productId = null;
+        for(int index = 0; index < catalogSize; index++) {
+            productId = productRepository.save(ProductEntity.builder()
+                    .productName("product-" + index)
+                    .amountAvailable(10)
+                    .cost(5)
+                    .seller(seller)
+                    .insertedDate(now)
+                    .updatedDate(now)
+                    .build()).getId();
+        }
+        productRepository.save(ProductEntity.builder()
+                .productName("sold-out")
+                .amountAvailable(0)
+                .cost(5)
+                .seller(seller)
+                .insertedDate(now)
+                .updatedDate(now)
+                .build());
+        UUID stripedId = productRepository.save(ProductEntity.builder()
+                .productName("striped")
+                .amountAvailable(0)
+                .cost(5)
+                .seller(seller)
+                .insertedDate(now)
+                .updatedDate(now)
+                .build()).getId();
+        entityManager.flush();
+        stripedStock.distribute(stripedId, 3, 7);
+        entityManager.clear();
+        return productId;
+    }
+}
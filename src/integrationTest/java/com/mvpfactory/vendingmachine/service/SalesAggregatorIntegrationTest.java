@@ -0,0 +1,98 @@
+package com.mvpfactory.vendingmachine.service;
+
+import com.mvpfactory.vendingmachine.model.Role;
+import com.mvpfactory.vendingmachine.repository.ProductRepository;
+import com.mvpfactory.vendingmachine.repository.UserRepository;
+import com.mvpfactory.vendingmachine.repository.entity.ProductEntity;
+import com.mvpfactory.vendingmachine.repository.entity.UserEntity;
+import com.mvpfactory.vendingmachine.service.sales.SalesAggregator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Flushes into {@code product_sales} on H2, so the upsert statements are checked against a database other than the
+ * production one.
+ */
+@SpringBootTest
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("integrationTest")
+public class SalesAggregatorIntegrationTest {
+
+    @Autowired
+    private SalesAggregator salesAggregator;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private UUID sellerId;
+    private UUID productId;
+
+    @BeforeEach
+    public void setUp() {
+        Timestamp now = Timestamp.from(Instant.now());
+        UserEntity seller = userRepository.save(UserEntity.builder()
+                .username("sales-seller-" + UUID.randomUUID())
+                .password("password")
+                .deposit(0)
+                .role(Role.SELLER)
+                .insertedDate(now)
+                .updatedDate(now)
+                .build());
+        sellerId = seller.getId();
+        productId = productRepository.save(ProductEntity.builder()
+                .productName("sales-" + UUID.randomUUID())
+                .amountAvailable(10)
+                .cost(15)
+                .seller(seller)
+                .insertedDate(now)
+                .updatedDate(now)
+                .build()).getId();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.update("DELETE FROM product_sales WHERE product_id = ?", productId);
+        jdbcTemplate.update("DELETE FROM products WHERE id = ?", productId);
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", sellerId);
+    }
+
+    @Test
+    public void flushTwice_thenRowInsertedThenIncremented() {
+        salesAggregator.record(productId, 2, 30);
+        salesAggregator.flush();
+
+        assertThat(rowOf(productId)).containsEntry("UNITS_SOLD", 2L).containsEntry("REVENUE", 30L);
+
+        salesAggregator.record(productId, 3, 45);
+        salesAggregator.flush();
+
+        Map<String, Object> row = rowOf(productId);
+        assertThat(row).containsEntry("UNITS_SOLD", 5L).containsEntry("REVENUE", 75L).containsEntry("SELLER_ID", sellerId);
+        assertThat(row.get("LAST_SOLD_DATE")).isNotNull();
+        assertThat(salesAggregator.productStats(productId, sellerId).getUnitsSold()).isEqualTo(5);
+    }
+
+    private Map<String, Object> rowOf(UUID productId) {
+        return jdbcTemplate.queryForMap("SELECT seller_id, units_sold, revenue, last_sold_date FROM product_sales WHERE product_id = ?", productId);
+    }
+}
@@ -0,0 +1,244 @@
+package com.mvpfactory.vendingmachine.stress;
+
+import com.mvpfactory.vendingmachine.error.model.PurchaseConflictException;
+import com.mvpfactory.vendingmachine.model.BuyRequest;
+import com.mvpfactory.vendingmachine.model.BuyResponse;
+import com.mvpfactory.vendingmachine.model.CartRequest;
+import com.mvpfactory.vendingmachine.model.CartResponse;
+import com.mvpfactory.vendingmachine.model.DepositRequest;
+import com.mvpfactory.vendingmachine.model.Role;
+import com.mvpfactory.vendingmachine.repository.ProductRepository;
+import com.mvpfactory.vendingmachine.repository.UserRepository;
+import com.mvpfactory.vendingmachine.repository.entity.ProductEntity;
+import com.mvpfactory.vendingmachine.repository.entity.UserEntity;
+import com.mvpfactory.vendingmachine.security.model.AuthUserDetails;
+import com.mvpfactory.vendingmachine.service.ProductService;
+import com.mvpfactory.vendingmachine.service.UserService;
+import com.mvpfactory.vendingmachine.service.engine.InventoryEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Hundreds of buyers hammering a handful of hot products through the services, on the embedded database.
+ * After every scenario the conservation invariants are checked against the database: no negative stock or
+ * deposit, stock sold times cost equals money spent, and money spent equals what left the buyers' deposits.
+ * Out-of-stock and unaffordable buys are answered, not thrown, so the only failure allowed is a purchase conflict
+ * that ran out of retries, in at most one operation in four.
+ * Subclasses pick the purchase mode; each gets its own in-memory database. {@code CONDITIONAL} is not covered: its
+ * purchase statement needs PostgreSQL.
+ */
+@SpringBootTest
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("integrationTest")
+@Tag("stress")
+public abstract class AbstractPurchaseContentionStressTest {
+
+    private static final int BUYERS = 200;
+    private static final int THREADS = 64;
+    private static final int OPERATIONS_PER_BUYER = 10;
+    private static final int HOT_PRODUCTS = 4;
+    private static final int INITIAL_STOCK = 300;
+    private static final int INITIAL_DEPOSIT = 100;
+    private static final int[] COINS = {5, 10, 20, 50, 100};
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private InventoryEngine inventoryEngine;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<AuthUserDetails> buyers = new ArrayList<>();
+    private final Map<UUID, Integer> costs = new HashMap<>();
+    private final AtomicLong spent = new AtomicLong();
+    private final AtomicLong deposited = new AtomicLong();
+
+    protected abstract String mode();
+
+    @BeforeEach
+    public void seed() {
+        Timestamp now = Timestamp.from(Instant.now());
+        UserEntity seller = userRepository.save(UserEntity.builder().username("stress-seller").password("password")
+                .deposit(0).role(Role.SELLER).insertedDate(now).updatedDate(now).build());
+        for(int index = 0; index < HOT_PRODUCTS; index++) {
+            ProductEntity product = productRepository.save(ProductEntity.builder().productName("hot-" + index)
+                    .amountAvailable(INITIAL_STOCK).cost(5 * (index + 1)).seller(seller).insertedDate(now).updatedDate(now).build());
+            costs.put(product.getId(), product.getCost());
+        }
+        for(int index = 0; index < BUYERS; index++) {
+            UserEntity buyer = userRepository.save(UserEntity.builder().username("stress-buyer-" + index).password("password")
+                    .deposit(INITIAL_DEPOSIT).role(Role.BUYER).insertedDate(now).updatedDate(now).build());
+            buyers.add(new AuthUserDetails(buyer.getId(), buyer.getUsername(), Role.BUYER));
+        }
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        if(inventoryEngine.isEnabled()) {
+            costs.keySet().forEach(inventoryEngine::removeProduct);
+            buyers.forEach(buyer -> inventoryEngine.removeUser(buyer.getId()));
+        }
+        jdbcTemplate.update("DELETE FROM products");
+        jdbcTemplate.update("DELETE FROM users");
+    }
+
+    @Test
+    public void concurrentBuysAndDeposits_thenStockAndMoneyAreConserved() throws Exception {
+        List<UUID> productIds = new ArrayList<>(costs.keySet());
+
+        run("buy-and-deposit", random -> {
+            if(random.nextInt(4) == 0) {
+                int coin = COINS[random.nextInt(COINS.length)];
+                userService.deposit(new DepositRequest(coin));
+                deposited.addAndGet(coin);
+            } else {
+                BuyResponse response = productService.buy(new BuyRequest(productIds.get(random.nextInt(HOT_PRODUCTS)), 1 + random.nextInt(3)));
+                spent.addAndGet(response.getTotalSpent());
+            }
+        });
+
+        assertConservation();
+    }
+
+    @Test
+    public void concurrentCarts_thenStockAndMoneyAreConserved() throws Exception {
+        List<UUID> productIds = new ArrayList<>(costs.keySet());
+
+        run("cart", random -> {
+            int first = random.nextInt(HOT_PRODUCTS);
+            int second = (first + 1 + random.nextInt(HOT_PRODUCTS - 1)) % HOT_PRODUCTS;
+            CartResponse response = productService.buyCart(new CartRequest(List.of(
+                    new BuyRequest(productIds.get(first), 1 + random.nextInt(2)),
+                    new BuyRequest(productIds.get(second), 1 + random.nextInt(2)))));
+            spent.addAndGet(response.getTotalSpent());
+        });
+
+        assertConservation();
+    }
+
+    private void run(String scenario, Operation operation) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        long[][] latencies = new long[BUYERS][];
+        AtomicLong failures = new AtomicLong();
+        Queue<RuntimeException> unexpected = new ConcurrentLinkedQueue<>();
+        List<Future<?>> futures = new ArrayList<>();
+        for(int index = 0; index < BUYERS; index++) {
+            int buyerIndex = index;
+            futures.add(executor.submit(() -> {
+                AuthUserDetails buyer = buyers.get(buyerIndex);
+                SecurityContextHolder.getContext().setAuthentication(
+                        new UsernamePasswordAuthenticationToken(buyer, null, buyer.getAuthorities()));
+                long[] buyerLatencies = new long[OPERATIONS_PER_BUYER];
+                int completed = 0;
+                try {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for(int operationIndex = 0; operationIndex < OPERATIONS_PER_BUYER; operationIndex++) {
+                        long started = System.nanoTime();
+                        try {
+                            operation.execute(random);
+                            buyerLatencies[completed++] = System.nanoTime() - started;
+                        } catch (PurchaseConflictException e) {
+                            failures.incrementAndGet();
+                        } catch (RuntimeException e) {
+                            failures.incrementAndGet();
+                            unexpected.add(e);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    latencies[buyerIndex] = Arrays.copyOf(buyerLatencies, completed);
+                    SecurityContextHolder.clearContext();
+                }
+                return null;
+            }));
+        }
+        long started = System.nanoTime();
+        start.countDown();
+        for(Future<?> future : futures) {
+            future.get(5, TimeUnit.MINUTES);
+        }
+        long elapsed = System.nanoTime() - started;
+        executor.shutdown();
+
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).toArray();
+        ScenarioReport report = new ScenarioReport(mode(), scenario, THREADS, all, elapsed, failures.get());
+        report.publish();
+        assertThat(unexpected).as("failures other than a purchase conflict, first: %s", unexpected.peek()).isEmpty();
+        assertThat(failures.get()).as("purchase conflicts out of %d operations", BUYERS * OPERATIONS_PER_BUYER)
+                .isLessThanOrEqualTo(BUYERS * OPERATIONS_PER_BUYER / 4);
+        assertThat(all.length).isGreaterThan(0);
+    }
+
+    private void assertConservation() {
+        if(inventoryEngine.isEnabled()) {
+            inventoryEngine.flush();
+        }
+        long sold = 0;
+        long soldValue = 0;
+        for(Map.Entry<UUID, Integer> product : costs.entrySet()) {
+            int stock = jdbcTemplate.queryForObject("SELECT amount_available FROM products WHERE id = ?", Integer.class, product.getKey());
+            assertThat(stock).isBetween(0, INITIAL_STOCK);
+            sold += INITIAL_STOCK - stock;
+            soldValue += (long) (INITIAL_STOCK - stock) * product.getValue();
+        }
+        long finalDeposits = 0;
+        for(AuthUserDetails buyer : buyers) {
+            int deposit = jdbcTemplate.queryForObject("SELECT deposit FROM users WHERE id = ?", Integer.class, buyer.getId());
+            assertThat(deposit).isGreaterThanOrEqualTo(0);
+            finalDeposits += deposit;
+        }
+
+        assertThat(sold).isGreaterThan(0);
+        assertThat(soldValue).isEqualTo(spent.get());
+        assertThat((long) BUYERS * INITIAL_DEPOSIT + deposited.get() - finalDeposits).isEqualTo(spent.get());
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        void execute(ThreadLocalRandom random);
+    }
+}
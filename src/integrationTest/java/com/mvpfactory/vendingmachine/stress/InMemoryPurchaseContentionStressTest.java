@@ -0,0 +1,15 @@
+package com.mvpfactory.vendingmachine.stress;
+
+import org.springframework.test.context.TestPropertySource;
+
+@TestPropertySource(properties = {
+        "purchase_mode=IN_MEMORY",
+        "spring.datasource.url=jdbc:h2:mem:stressinmemory;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=30000"
+})
+public class InMemoryPurchaseContentionStressTest extends AbstractPurchaseContentionStressTest {
+
+    @Override
+    protected String mode() {
+        return "IN_MEMORY";
+    }
+}
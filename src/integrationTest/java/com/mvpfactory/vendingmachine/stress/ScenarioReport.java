@@ -0,0 +1,63 @@
+package com.mvpfactory.vendingmachine.stress;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Throughput and latency percentiles of one stress scenario. Every report is logged and appended as one JSON line
+ * to {@code build/reports/stress/results.jsonl} so runs of different purchase modes can be compared.
+ */
+@Slf4j
+public class ScenarioReport {
+
+    private static final Path RESULTS = Paths.get("build/reports/stress/results.jsonl");
+
+    private final String mode;
+    private final String scenario;
+    private final int threads;
+    private final long[] latenciesNanos;
+    private final long elapsedNanos;
+    private final long failures;
+
+    public ScenarioReport(String mode, String scenario, int threads, long[] latenciesNanos, long elapsedNanos, long failures) {
+        this.mode = mode;
+        this.scenario = scenario;
+        this.threads = threads;
+        this.latenciesNanos = latenciesNanos.clone();
+        this.elapsedNanos = elapsedNanos;
+        this.failures = failures;
+        Arrays.sort(this.latenciesNanos);
+    }
+
+    public double throughput() {
+        return latenciesNanos.length / (elapsedNanos / 1_000_000_000d);
+    }
+
+    public double percentileMillis(double percentile) {
+        if(latenciesNanos.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * latenciesNanos.length) - 1;
+        return latenciesNanos[Math.max(0, Math.min(index, latenciesNanos.length - 1))] / 1_000_000d;
+    }
+
+    public void publish() throws IOException {
+        String json = String.format(Locale.ROOT,
+                "{\"mode\":\"%s\",\"scenario\":\"%s\",\"threads\":%d,\"operations\":%d,\"failures\":%d,\"elapsedMs\":%.1f,"
+                        + "\"throughputPerSecond\":%.1f,\"p50Ms\":%.3f,\"p95Ms\":%.3f,\"p99Ms\":%.3f,\"maxMs\":%.3f}",
+                mode, scenario, threads, latenciesNanos.length, failures, elapsedNanos / 1_000_000d, throughput(),
+                percentileMillis(50), percentileMillis(95), percentileMillis(99), percentileMillis(100));
+        log.info("Stress result {}", json);
+        Files.createDirectories(RESULTS.getParent());
+        Files.write(RESULTS, (json + System.lineSeparator()).getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,15 @@
+package com.mvpfactory.vendingmachine.stress;
+
+import org.springframework.test.context.TestPropertySource;
+
+@TestPropertySource(properties = {
+        "purchase_mode=STANDARD",
+        "spring.datasource.url=jdbc:h2:mem:stressstandard;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=30000"
+})
+public class StandardPurchaseContentionStressTest extends AbstractPurchaseContentionStressTest {
+
+    @Override
+    protected String mode() {
+        return "STANDARD";
+    }
+}
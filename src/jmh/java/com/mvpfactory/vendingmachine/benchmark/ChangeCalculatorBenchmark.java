@@ -0,0 +1,37 @@
+package com.mvpfactory.vendingmachine.benchmark;
+
+import com.mvpfactory.vendingmachine.service.change.ChangeCalculator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ChangeCalculatorBenchmark {
+
+    private final ChangeCalculator changeCalculator = new ChangeCalculator(List.of(5, 10, 20, 50, 100));
+
+    @Param({"0", "35", "995"})
+    public int amount;
+
+    private final int[] sparseFloat = {0, 1, 3, 0, 0};
+
+    @Benchmark
+    public Map<Integer, Integer> unlimitedCoins() {
+        return changeCalculator.change(amount);
+    }
+
+    @Benchmark
+    public int boundedFloatFallingBackToKnapsack(ThreadCounts counts) {
+        return changeCalculator.makeChange(amount, sparseFloat, counts.counts);
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadCounts {
+
+        private final int[] counts = new int[5];
+    }
+}
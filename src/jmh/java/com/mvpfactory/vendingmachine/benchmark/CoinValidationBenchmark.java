@@ -0,0 +1,32 @@
+package com.mvpfactory.vendingmachine.benchmark;
+
+import com.mvpfactory.vendingmachine.service.change.ChangeCalculator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coin check done by every deposit, against the boxed list lookup it replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CoinValidationBenchmark {
+
+    private final List<Integer> allowedCoins = List.of(5, 10, 20, 50, 100);
+    private final ChangeCalculator changeCalculator = new ChangeCalculator(allowedCoins);
+
+    @Param({"5", "100", "12"})
+    public int coin;
+
+    @Benchmark
+    public boolean changeCalculatorIsAllowed() {
+        return changeCalculator.isAllowed(coin);
+    }
+
+    @Benchmark
+    public boolean boxedListContains() {
+        return allowedCoins.contains(coin);
+    }
+}
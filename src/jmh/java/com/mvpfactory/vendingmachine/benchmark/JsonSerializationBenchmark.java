@@ -0,0 +1,50 @@
+package com.mvpfactory.vendingmachine.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mvpfactory.vendingmachine.model.BuyResponse;
+import com.mvpfactory.vendingmachine.model.BuyStatus;
+import com.mvpfactory.vendingmachine.model.Product;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JsonSerializationBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    private List<Product> products;
+    private List<BuyResponse> buyResponses;
+
+    @Setup
+    public void setUp() {
+        UUID sellerId = UUID.randomUUID();
+        products = IntStream.range(0, size)
+                .mapToObj(index -> new Product(UUID.randomUUID(), index, 5 * index, "product-" + index, sellerId, 0L))
+                .collect(Collectors.toList());
+        buyResponses = IntStream.range(0, size)
+                .mapToObj(index -> new BuyResponse(35, 1, UUID.randomUUID(), Map.of(50, 1, 10, 1, 5, 1), BuyStatus.FILLED))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public byte[] serializeProducts() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(products);
+    }
+
+    @Benchmark
+    public byte[] serializeBuyResponses() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(buyResponses);
+    }
+}
@@ -0,0 +1,61 @@
+package com.mvpfactory.vendingmachine.benchmark;
+
+import com.mvpfactory.vendingmachine.model.Product;
+import com.mvpfactory.vendingmachine.model.Role;
+import com.mvpfactory.vendingmachine.model.User;
+import com.mvpfactory.vendingmachine.repository.entity.ProductEntity;
+import com.mvpfactory.vendingmachine.repository.entity.UserEntity;
+import com.mvpfactory.vendingmachine.repository.mapper.ProductMapper;
+import com.mvpfactory.vendingmachine.repository.mapper.UserMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MapperBenchmark {
+
+    private final ProductMapper productMapper = new ProductMapper();
+    private final UserMapper userMapper = new UserMapper(new BCryptPasswordEncoder());
+
+    private UserEntity userEntity;
+    private ProductEntity productEntity;
+
+    @Setup
+    public void setUp() {
+        Timestamp now = Timestamp.from(Instant.now());
+        userEntity = UserEntity.builder()
+                .id(UUID.randomUUID())
+                .username("seller")
+                .password("password")
+                .deposit(0)
+                .role(Role.SELLER)
+                .insertedDate(now)
+                .updatedDate(now)
+                .build();
+        productEntity = ProductEntity.builder()
+                .id(UUID.randomUUID())
+                .productName("cola")
+                .amountAvailable(10)
+                .cost(35)
+                .seller(userEntity)
+                .insertedDate(now)
+                .updatedDate(now)
+                .build();
+    }
+
+    @Benchmark
+    public Product mapProduct() {
+        return productMapper.map(productEntity);
+    }
+
+    @Benchmark
+    public User mapUser() {
+        return userMapper.map(userEntity);
+    }
+}
@@ -0,0 +1,78 @@
+package com.mvpfactory.vendingmachine.benchmark;
+
+import com.mvpfactory.vendingmachine.server.VirtualThreads;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A burst of blocking requests served by Tomcat's default 200 platform threads versus one virtual thread per
+ * request. Each request waits on I/O outside the database, then holds one of the pool's connections for a
+ * query, mirroring the semaphore the virtual-thread mode puts in front of the pool. The virtual mode needs a
+ * JDK 21 runtime and fails its setup otherwise.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+public class RequestExecutionBenchmark {
+
+    private static final int PLATFORM_THREADS = 200;
+    private static final int POOLED_CONNECTIONS = 10;
+
+    @Param({"PLATFORM", "VIRTUAL"})
+    public String mode;
+
+    @Param({"2000"})
+    public int requests;
+
+    @Param({"5"})
+    public long ioMillis;
+
+    @Param({"1"})
+    public long queryMillis;
+
+    private ExecutorService executor;
+    private Semaphore connections;
+
+    @Setup
+    public void setUp() {
+        executor = "VIRTUAL".equals(mode)
+                ? VirtualThreads.newPerTaskExecutor().orElseThrow(() -> new IllegalStateException("Virtual threads need JDK 21"))
+                : Executors.newFixedThreadPool(PLATFORM_THREADS);
+        connections = new Semaphore(POOLED_CONNECTIONS, true);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public void burst() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(requests);
+        for(int i = 0; i < requests; i++) {
+            executor.execute(() -> {
+                try {
+                    Thread.sleep(ioMillis);
+                    connections.acquire();
+                    try {
+                        Thread.sleep(queryMillis);
+                    } finally {
+                        connections.release();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+    }
+}
@@ -0,0 +1,77 @@
+package com.mvpfactory.vendingmachine.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Active only when {@code replica_datasource_urls} is set; otherwise Spring Boot's single data source is used as is.
+ */
+@Configuration
+@ConditionalOnExpression("!'${replica_datasource_urls:}'.isBlank()")
+public class DataSourceRoutingConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public ReplicaLagMonitor replicaLagMonitor(DataSourceProperties dataSourceProperties, MeterRegistry meterRegistry,
+                                               @Value("${replica_datasource_urls}") String urls,
+                                               @Value("${replica_datasource_username:${spring.datasource.username}}") String username,
+                                               @Value("${replica_datasource_password:${spring.datasource.password}}") String password,
+                                               @Value("${replica_lag_query:}") String lagQuery,
+                                               @Value("${replica_lag_tolerance_ms:1000}") long lagToleranceMillis,
+                                               @Value("${replica_lag_check_interval_ms:1000}") long checkIntervalMillis) {
+        List<String> replicaUrls = Arrays.stream(urls.split(",")).map(String::trim).filter(url -> !url.isEmpty()).collect(Collectors.toList());
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for(int index = 0; index < replicaUrls.size(); index++) {
+            HikariDataSource replica = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(dataSourceProperties.determineDriverClassName())
+                    .url(replicaUrls.get(index))
+                    .username(username)
+                    .password(password)
+                    .build();
+            replica.setPoolName("replica-" + index);
+            replica.setReadOnly(true);
+            replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.put(replica.getPoolName(), replica);
+        }
+        return new ReplicaLagMonitor(replicas, lagQuery, lagToleranceMillis, checkIntervalMillis);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaLagMonitor replicaLagMonitor,
+                                 @Value("${replica_lag_tolerance_ms:1000}") long lagToleranceMillis) {
+        ReadWriteRoutingDataSource routingDataSource = new ReadWriteRoutingDataSource(replicaLagMonitor, lagToleranceMillis);
+        Map<Object, Object> targets = new HashMap<>(replicaLagMonitor.replicas());
+        targets.put(ReadWriteRoutingDataSource.PRIMARY, primaryDataSource);
+        routingDataSource.setTargetDataSources(targets);
+        routingDataSource.setDefaultTargetDataSource(primaryDataSource);
+        routingDataSource.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+}
@@ -0,0 +1,68 @@
+package com.mvpfactory.vendingmachine.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends read-only transactions to a healthy replica and everything else to the primary. A user whose last
+ * read-write transaction is younger than the lag tolerance keeps reading from the primary, so they always see
+ * their own writes. Must sit behind a {@code LazyConnectionDataSourceProxy} so the routing decision is taken
+ * after the transaction's read-only flag is known.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+    private static final int MAX_TRACKED_WRITERS = 10_000;
+
+    private final ReplicaLagMonitor replicaLagMonitor;
+    private final long lagToleranceMillis;
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReadWriteRoutingDataSource(ReplicaLagMonitor replicaLagMonitor, long lagToleranceMillis) {
+        this.replicaLagMonitor = replicaLagMonitor;
+        this.lagToleranceMillis = lagToleranceMillis;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String principal = currentPrincipal();
+        long now = System.currentTimeMillis();
+        if(!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if(principal != null && TransactionSynchronizationManager.isActualTransactionActive()) {
+                recordWrite(principal, now);
+            }
+            return PRIMARY;
+        }
+        if(principal != null) {
+            Long lastWrite = lastWrites.get(principal);
+            if(lastWrite != null && now - lastWrite < lagToleranceMillis) {
+                return PRIMARY;
+            }
+        }
+        List<String> replicas = replicaLagMonitor.healthyReplicas();
+        if(replicas.isEmpty()) {
+            return PRIMARY;
+        }
+        return replicas.get(Math.floorMod(next.getAndIncrement(), replicas.size()));
+    }
+
+    private void recordWrite(String principal, long now) {
+        if(lastWrites.size() > MAX_TRACKED_WRITERS) {
+            lastWrites.values().removeIf(lastWrite -> now - lastWrite >= lagToleranceMillis);
+        }
+        lastWrites.put(principal, now);
+    }
+
+    private String currentPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.isAuthenticated() ? authentication.getName() : null;
+    }
+}
@@ -0,0 +1,95 @@
+package com.mvpfactory.vendingmachine.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically measures every replica's replication lag with {@code replica_lag_query} and keeps the list of
+ * replicas that are reachable and within the tolerance. A blank query only checks that the replica answers.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    private final Map<String, DataSource> replicas;
+    private final String lagQuery;
+    private final long lagToleranceMillis;
+    private final long checkIntervalMillis;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "replica-lag-monitor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile List<String> healthyReplicas;
+
+    public ReplicaLagMonitor(Map<String, DataSource> replicas, String lagQuery, long lagToleranceMillis, long checkIntervalMillis) {
+        this.replicas = replicas;
+        this.lagQuery = lagQuery;
+        this.lagToleranceMillis = lagToleranceMillis;
+        this.checkIntervalMillis = checkIntervalMillis;
+        this.healthyReplicas = List.copyOf(replicas.keySet());
+    }
+
+    public void start() {
+        check();
+        scheduler.scheduleWithFixedDelay(this::check, checkIntervalMillis, checkIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        scheduler.shutdownNow();
+        replicas.values().forEach(dataSource -> {
+            if(dataSource instanceof AutoCloseable) {
+                try {
+                    ((AutoCloseable) dataSource).close();
+                } catch (Exception e) {
+                    log.warn("Failed to close replica pool", e);
+                }
+            }
+        });
+    }
+
+    public Map<String, DataSource> replicas() {
+        return replicas;
+    }
+
+    public List<String> healthyReplicas() {
+        return healthyReplicas;
+    }
+
+    void check() {
+        List<String> healthy = new ArrayList<>(replicas.size());
+        replicas.forEach((name, dataSource) -> {
+            try {
+                long lag = lagOf(dataSource);
+                if(lag <= lagToleranceMillis) {
+                    healthy.add(name);
+                } else {
+                    log.warn("Replica {} is {} ms behind, reading from the primary", name, lag);
+                }
+            } catch (Exception e) {
+                log.warn("Replica {} is unreachable, reading from the primary", name, e);
+            }
+        });
+        healthyReplicas = List.copyOf(healthy);
+    }
+
+    private long lagOf(DataSource dataSource) throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            if(lagQuery == null || lagQuery.isBlank()) {
+                return connection.isValid(1) ? 0 : Long.MAX_VALUE;
+            }
+            try (Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery(lagQuery)) {
+                return resultSet.next() ? resultSet.getLong(1) : 0;
+            }
+        }
+    }
+}
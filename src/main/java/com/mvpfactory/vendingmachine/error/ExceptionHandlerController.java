@@ -6,6 +6,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -33,6 +34,13 @@ public class ExceptionHandlerController {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ApiError(errorId, ex.getMessage()));
     }
 
+    @ExceptionHandler(ReservationNotFoundException.class)
+    public ResponseEntity<ApiError> handleException(ReservationNotFoundException ex) {
+        UUID errorId = UUID.randomUUID();
+        log.error("Reservation Not found. Error id is {} ", errorId, ex);
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ApiError(errorId, ex.getMessage()));
+    }
+
     @ExceptionHandler({UnrecognizedPropertyException.class, })
     public ResponseEntity<ApiError> handleException(UnrecognizedPropertyException ex) {
         UUID errorId = UUID.randomUUID();
@@ -90,6 +98,13 @@ public class ExceptionHandlerController {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ApiError(errorId, ex.getMessage()));
     }
 
+    @ExceptionHandler({AuthenticationException.class})
+    public ResponseEntity<ApiError> handleException(AuthenticationException ex) {
+        UUID errorId = UUID.randomUUID();
+        log.error("Authentication failed {}", errorId, ex);
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(new ApiError(errorId, ex.getMessage()));
+    }
+
     @ExceptionHandler({RuntimeException.class})
     public ResponseEntity<ApiError> handleGenericException(RuntimeException ex) {
         UUID errorId = UUID.randomUUID();
@@ -104,10 +119,45 @@ public class ExceptionHandlerController {
         return ResponseEntity.badRequest().body(new ApiError(errorId, ex.getMessage()));
     }
 
+    @ExceptionHandler({PurchaseConflictException.class})
+    public ResponseEntity<ApiError> handleGenericException(PurchaseConflictException ex) {
+        UUID errorId = UUID.randomUUID();
+        log.error("Concurrent update while buying product {}", errorId, ex);
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(new ApiError(errorId, ex.getMessage()));
+    }
+
+    @ExceptionHandler({InsufficientStockException.class})
+    public ResponseEntity<ApiError> handleGenericException(InsufficientStockException ex) {
+        UUID errorId = UUID.randomUUID();
+        log.error("Stock held by reservations {}", errorId, ex);
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(new ApiError(errorId, ex.getMessage()));
+    }
+
+    @ExceptionHandler({UpdateConflictException.class})
+    public ResponseEntity<ApiError> handleGenericException(UpdateConflictException ex) {
+        UUID errorId = UUID.randomUUID();
+        log.error("Concurrent update of entity {}", errorId, ex);
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(new ApiError(errorId, ex.getMessage()));
+    }
+
+    @ExceptionHandler({PreconditionFailedException.class})
+    public ResponseEntity<ApiError> handleGenericException(PreconditionFailedException ex) {
+        UUID errorId = UUID.randomUUID();
+        log.error("Entity changed since the version in If-Match {}", errorId, ex);
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(new ApiError(errorId, ex.getMessage()));
+    }
+
     @ExceptionHandler({OperationNotAllowedException.class})
     public ResponseEntity<ApiError> handleGenericException(OperationNotAllowedException ex) {
         UUID errorId = UUID.randomUUID();
         log.error("Forbidden action on product {}", errorId, ex);
         return ResponseEntity.status(HttpStatus.FORBIDDEN).body(new ApiError(errorId, ex.getMessage()));
     }
+
+    @ExceptionHandler({InvalidCursorException.class})
+    public ResponseEntity<ApiError> handleGenericException(InvalidCursorException ex) {
+        UUID errorId = UUID.randomUUID();
+        log.error("Invalid page cursor {}", errorId, ex);
+        return ResponseEntity.badRequest().body(new ApiError(errorId, ex.getMessage()));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,5 @@
+package com.mvpfactory.vendingmachine.error.model;
+
+public class InsufficientStockException extends RuntimeException {
+    public InsufficientStockException(String message) { super(message); }
+}
@@ -0,0 +1,6 @@
+package com.mvpfactory.vendingmachine.error.model;
+
+public class InvalidCursorException extends RuntimeException {
+
+    public InvalidCursorException(String message) { super(message); }
+}
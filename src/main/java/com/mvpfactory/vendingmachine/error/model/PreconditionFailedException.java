@@ -0,0 +1,5 @@
+package com.mvpfactory.vendingmachine.error.model;
+
+public class PreconditionFailedException extends RuntimeException {
+    public PreconditionFailedException(String message) { super(message); }
+}
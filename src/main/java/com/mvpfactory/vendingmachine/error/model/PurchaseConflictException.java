@@ -0,0 +1,5 @@
+package com.mvpfactory.vendingmachine.error.model;
+
+public class PurchaseConflictException extends RuntimeException {
+    public PurchaseConflictException(String message) { super(message); }
+}
@@ -0,0 +1,5 @@
+package com.mvpfactory.vendingmachine.error.model;
+
+public class ReservationNotFoundException extends RuntimeException {
+    public ReservationNotFoundException(String message) { super(message); }
+}
@@ -0,0 +1,5 @@
+package com.mvpfactory.vendingmachine.error.model;
+
+public class UpdateConflictException extends RuntimeException {
+    public UpdateConflictException(String message) { super(message); }
+}
@@ -0,0 +1,101 @@
+package com.mvpfactory.vendingmachine.facade;
+
+import com.mvpfactory.vendingmachine.service.catalog.CatalogVersion;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Pre-serialized catalog responses keyed by request. An entry is served for as long as the catalog version it was
+ * built for is still current, so unchanged polls never reach the database; writes made through other instances move
+ * the version once {@link CatalogVersion} has synced. The ETag is a hash of the body, so it is the same on every
+ * instance for the same content. Every response shows stock, which changes many times a second, so there is no
+ * {@code Last-Modified}: its one-second resolution would answer {@code 304} to a poll made in the same second as a
+ * purchase.
+ */
+@Component
+public class CatalogCache {
+
+    private final CatalogVersion catalogVersion;
+    private final int maxEntries;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    @Autowired
+    public CatalogCache(CatalogVersion catalogVersion,
+                        @Value("${catalog_cache_max_entries:1000}") int maxEntries) {
+        this.catalogVersion = catalogVersion;
+        this.maxEntries = maxEntries;
+    }
+
+    public Entry get(String key, Supplier<Body> loader) {
+        Entry entry = entries.get(key);
+        if(entry != null && entry.version == catalogVersion.current()) {
+            entry.lastUsed = System.nanoTime();
+            return entry;
+        }
+        // read the version before loading so a concurrent write leaves this entry already stale
+        long version = catalogVersion.current();
+        Body body = loader.get();
+        Entry loaded = new Entry(body.getBytes(), body.getNextCursor(), etag(body), version);
+        if(entry == null && entries.size() >= maxEntries) {
+            evict(version);
+        }
+        entries.put(key, loaded);
+        return loaded;
+    }
+
+    /**
+     * Makes room for one entry: entries built for an older version can never be served again and go first,
+     * otherwise the one used longest ago.
+     */
+    private void evict(long version) {
+        if(entries.values().removeIf(entry -> entry.version != version)) {
+            return;
+        }
+        entries.entrySet().stream()
+                .min(Comparator.comparingLong(candidate -> candidate.getValue().lastUsed))
+                .ifPresent(eldest -> entries.remove(eldest.getKey(), eldest.getValue()));
+    }
+
+    /**
+     * A body for a single row carries its version in front of the hash, so the tag doubles as the {@code If-Match}
+     * of an update while still changing with everything else the body shows.
+     */
+    private static String etag(Body body) {
+        String hash = DigestUtils.md5DigestAsHex(body.getBytes());
+        return body.getVersion() == null ? "\"" + hash + "\"" : "\"" + body.getVersion() + "-" + hash + "\"";
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Body {
+
+        private final byte[] bytes;
+        private final String nextCursor;
+        private final Long version;
+
+        public Body(byte[] bytes, String nextCursor) {
+            this(bytes, nextCursor, null);
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class Entry {
+
+        private final byte[] body;
+        private final String nextCursor;
+        private final String etag;
+        private final long version;
+        private volatile long lastUsed = System.nanoTime();
+    }
+}
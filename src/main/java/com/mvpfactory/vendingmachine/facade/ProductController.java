@@ -2,16 +2,42 @@ package com.mvpfactory.vendingmachine.facade;
 
 import com.mvpfactory.vendingmachine.model.BuyRequest;
 import com.mvpfactory.vendingmachine.model.BuyResponse;
+import com.mvpfactory.vendingmachine.model.CartRequest;
+import com.mvpfactory.vendingmachine.model.CartResponse;
+import com.mvpfactory.vendingmachine.model.ImportResult;
+import com.mvpfactory.vendingmachine.model.KeysetPage;
 import com.mvpfactory.vendingmachine.model.Product;
+import com.mvpfactory.vendingmachine.model.ProductFilter;
+import com.mvpfactory.vendingmachine.model.RepriceRequest;
+import com.mvpfactory.vendingmachine.model.Reservation;
+import com.mvpfactory.vendingmachine.model.RestockRequest;
+import com.mvpfactory.vendingmachine.model.SalesStats;
+import com.mvpfactory.vendingmachine.model.StockLevelsRequest;
+import com.mvpfactory.vendingmachine.model.StockStripesRequest;
+import com.mvpfactory.vendingmachine.repository.KeysetCursor;
+import com.mvpfactory.vendingmachine.repository.NameCursor;
 import com.mvpfactory.vendingmachine.service.ProductService;
+import com.mvpfactory.vendingmachine.service.bulk.ImportFormat;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import javax.validation.constraints.NotBlank;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.UUID;
 
@@ -21,36 +47,149 @@ import java.util.UUID;
 @Validated
 public class ProductController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final ProductService productService;
+    private final JsonArrayWriter jsonArrayWriter;
+    private final CatalogCache catalogCache;
+    private final ObjectMapper objectMapper;
 
     @GetMapping("/name/{productName}")
-    @ResponseStatus(HttpStatus.OK)
-    public Product getProductByUsername(@PathVariable String productName) {
-        return productService.findProduct(productName);
+    public ResponseEntity<Product> getProductByUsername(@PathVariable String productName) {
+        Product product = productService.findProduct(productName);
+        return VersionTags.ok(product, product.getVersion());
     }
 
     @GetMapping("/id/{id}")
-    @ResponseStatus(HttpStatus.OK)
-    public Product getProductById(@PathVariable UUID id) {
-        return productService.findProduct(id);
+    public ResponseEntity<byte[]> getProductById(@PathVariable UUID id, WebRequest request) {
+        CatalogCache.Entry entry = catalogCache.get("id:" + id, () -> {
+            Product product = productService.findProduct(id);
+            return new CatalogCache.Body(serialize(product), null, product.getVersion());
+        });
+        return cachedResponse(entry, request);
     }
 
     @GetMapping
+    public ResponseEntity<byte[]> getProducts(@Valid ProductFilter filter,
+                                              @RequestParam(required = false) String cursor,
+                                              @RequestParam(required = false) Integer limit,
+                                              WebRequest request) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        String key = String.format("list:%s:%s:%s:%s:%s:%d", filter.getSellerId(), filter.getMinCost(), filter.getMaxCost(),
+                filter.getInStock(), after == null ? null : after.encode(), productService.pageSize(limit));
+        CatalogCache.Entry entry = catalogCache.get(key, () -> {
+            KeysetPage<Product> page = productService.getProducts(filter, cursor, limit);
+            return new CatalogCache.Body(serialize(page.getItems()), page.getNextCursor());
+        });
+        return cachedResponse(entry, request);
+    }
+
+    @GetMapping("/seller/{sellerId}")
+    public ResponseEntity<byte[]> getSellerProducts(@PathVariable UUID sellerId,
+                                                    @RequestParam(required = false) String cursor,
+                                                    @RequestParam(required = false) Integer limit,
+                                                    WebRequest request) {
+        NameCursor after = NameCursor.decode(cursor);
+        String key = String.format("seller:%s:%s:%d", sellerId, after == null ? null : after.encode(), productService.pageSize(limit));
+        CatalogCache.Entry entry = catalogCache.get(key, () -> {
+            KeysetPage<Product> page = productService.getSellerProducts(sellerId, cursor, limit);
+            return new CatalogCache.Body(serialize(page.getItems()), page.getNextCursor());
+        });
+        return cachedResponse(entry, request);
+    }
+
+    @GetMapping("/mine")
+    public ResponseEntity<List<Product>> getMyProducts(@RequestParam(required = false) String cursor,
+                                                       @RequestParam(required = false) Integer limit) {
+        KeysetPage<Product> page = productService.getMyProducts(cursor, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if(page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
+    }
+
+    @GetMapping("/search")
     @ResponseStatus(HttpStatus.OK)
-    public List<Product> getAllProducts() {
-        return productService.getAllProducts();
+    public List<Product> searchProducts(@RequestParam @NotBlank String q, @RequestParam(required = false) Integer limit) {
+        return productService.searchProducts(q, limit);
     }
 
-    @PostMapping
+    @GetMapping("/stream")
+    public void streamProducts(@Valid ProductFilter filter, HttpServletResponse response) throws IOException {
+        jsonArrayWriter.<Product>write(response, consumer -> productService.streamProducts(filter, consumer));
+    }
+
+    @GetMapping("/{id}/stats")
     @ResponseStatus(HttpStatus.OK)
-    public Product createProduct(@RequestBody @Valid Product product) {
-        return productService.createProduct(product);
+    public SalesStats getProductStats(@PathVariable UUID id) {
+        return productService.getProductStats(id);
+    }
+
+    @GetMapping("/stats")
+    @ResponseStatus(HttpStatus.OK)
+    public SalesStats getSellerStats() {
+        return productService.getSellerStats();
+    }
+
+    @PostMapping
+    public ResponseEntity<Product> createProduct(@RequestBody @Valid Product product) {
+        Product createdProduct = productService.createProduct(product);
+        return VersionTags.ok(createdProduct, createdProduct.getVersion());
+    }
+
+    /**
+     * Streams the per-row report back as NDJSON, one flush per imported chunk.
+     */
+    @PostMapping(value = "/import", consumes = {"application/x-ndjson", "text/csv"})
+    public void importProducts(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        ImportFormat format = MediaType.parseMediaType(request.getContentType()).isCompatibleWith(MediaType.parseMediaType(ImportFormat.CSV.getMediaType()))
+                ? ImportFormat.CSV : ImportFormat.NDJSON;
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(ImportFormat.NDJSON.getMediaType());
+        OutputStream output = response.getOutputStream();
+        productService.importProducts(request.getInputStream(), format, results -> {
+            try {
+                for(ImportResult result : results) {
+                    output.write(objectMapper.writeValueAsBytes(result));
+                    output.write('\n');
+                }
+                output.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
     }
 
     @PutMapping
+    public ResponseEntity<Product> updateProduct(@RequestBody @Valid Product product,
+                                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Product updatedProduct = productService.updateProduct(product, VersionTags.expected(ifMatch));
+        return VersionTags.ok(updatedProduct, updatedProduct.getVersion());
+    }
+
+    @PutMapping("/restock")
     @ResponseStatus(HttpStatus.OK)
-    public Product updateProduct(@RequestBody @Valid Product product) {
-        return productService.updateProduct(product);
+    public List<Product> restockProducts(@RequestBody @Valid RestockRequest restockRequest) {
+        return productService.restockProducts(restockRequest);
+    }
+
+    @PutMapping("/stock")
+    @ResponseStatus(HttpStatus.OK)
+    public List<Product> setProductStock(@RequestBody @Valid StockLevelsRequest stockLevelsRequest) {
+        return productService.setProductStock(stockLevelsRequest);
+    }
+
+    @PutMapping("/price")
+    @ResponseStatus(HttpStatus.OK)
+    public List<Product> repriceProducts(@RequestBody @Valid RepriceRequest repriceRequest) {
+        return productService.repriceProducts(repriceRequest);
+    }
+
+    @PutMapping("/{id}/stripes")
+    @ResponseStatus(HttpStatus.OK)
+    public Product setStockStripes(@PathVariable UUID id, @RequestBody @Valid StockStripesRequest request) {
+        return productService.setStockStripes(id, request);
     }
 
     @PutMapping("/buy")
@@ -59,9 +198,54 @@ public class ProductController {
         return productService.buy(buyRequest);
     }
 
+    @PostMapping("/reservations")
+    @ResponseStatus(HttpStatus.OK)
+    public Reservation reserveProduct(@RequestBody @Valid BuyRequest buyRequest) {
+        return productService.reserve(buyRequest);
+    }
+
+    @PutMapping("/reservations/{id}/confirm")
+    @ResponseStatus(HttpStatus.OK)
+    public BuyResponse confirmReservation(@PathVariable UUID id) {
+        return productService.confirmReservation(id);
+    }
+
+    @DeleteMapping("/reservations/{id}")
+    @ResponseStatus(HttpStatus.OK)
+    public void releaseReservation(@PathVariable UUID id) {
+        productService.releaseReservation(id);
+    }
+
+    @PutMapping("/cart/buy")
+    @ResponseStatus(HttpStatus.OK)
+    public CartResponse buyCart(@RequestBody @Valid CartRequest cartRequest) {
+        return productService.buyCart(cartRequest);
+    }
+
     @DeleteMapping("/{id}")
     @ResponseStatus(HttpStatus.OK)
     public void deleteProduct(@PathVariable UUID id) {
         productService.deleteProduct(id);
     }
-}
\ No newline at end of file
+
+    private ResponseEntity<byte[]> cachedResponse(CatalogCache.Entry entry, WebRequest request) {
+        if(request.checkNotModified(entry.getEtag())) {
+            return null;
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(entry.getEtag());
+        if(entry.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, entry.getNextCursor());
+        }
+        return response.body(entry.getBody());
+    }
+
+    private byte[] serialize(Object body) {
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
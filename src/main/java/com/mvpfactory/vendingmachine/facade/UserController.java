@@ -1,14 +1,24 @@
 package com.mvpfactory.vendingmachine.facade;
 
 import com.mvpfactory.vendingmachine.model.DepositRequest;
+import com.mvpfactory.vendingmachine.model.KeysetPage;
+import com.mvpfactory.vendingmachine.model.LoginRequest;
+import com.mvpfactory.vendingmachine.model.LoginResponse;
+import com.mvpfactory.vendingmachine.model.Purchase;
+import com.mvpfactory.vendingmachine.model.Role;
 import com.mvpfactory.vendingmachine.model.User;
+import com.mvpfactory.vendingmachine.security.AuthUserService;
 import com.mvpfactory.vendingmachine.service.UserService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
 import java.util.List;
 import java.util.UUID;
 
@@ -19,6 +29,8 @@ import java.util.UUID;
 public class UserController {
 
     private final UserService userService;
+    private final AuthUserService authUserService;
+    private final JsonArrayWriter jsonArrayWriter;
 
     @GetMapping("/idByName/{username}")
     @ResponseStatus(HttpStatus.OK)
@@ -27,21 +39,43 @@ public class UserController {
     }
 
     @GetMapping("/name/{username}")
-    @ResponseStatus(HttpStatus.OK)
-    public User getUserByUsername(@PathVariable String username) {
-        return userService.findUser(username);
+    public ResponseEntity<User> getUserByUsername(@PathVariable String username) {
+        User user = userService.findUser(username);
+        return VersionTags.ok(user, user.getVersion());
     }
 
     @GetMapping("/id/{id}")
-    @ResponseStatus(HttpStatus.OK)
-    public User getUserById(@PathVariable UUID id) {
-        return userService.findUser(id);
+    public ResponseEntity<User> getUserById(@PathVariable UUID id) {
+        User user = userService.findUser(id);
+        return VersionTags.ok(user, user.getVersion());
     }
 
     @GetMapping
-    @ResponseStatus(HttpStatus.OK)
-    public List<User> getAllUsers() {
-        return userService.getAllUsers();
+    public ResponseEntity<List<User>> getUsers(@RequestParam(required = false) Role role,
+                                               @RequestParam(required = false) String cursor,
+                                               @RequestParam(required = false) Integer limit) {
+        KeysetPage<User> page = userService.getUsers(role, cursor, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if(page.getNextCursor() != null) {
+            response.header(ProductController.NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
+    }
+
+    @GetMapping("/purchases")
+    public ResponseEntity<List<Purchase>> getPurchases(@RequestParam(required = false) String cursor,
+                                                       @RequestParam(required = false) Integer limit) {
+        KeysetPage<Purchase> page = userService.getPurchases(cursor, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if(page.getNextCursor() != null) {
+            response.header(ProductController.NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
+    }
+
+    @GetMapping("/stream")
+    public void streamUsers(@RequestParam(required = false) Role role, HttpServletResponse response) throws IOException {
+        jsonArrayWriter.<User>write(response, consumer -> userService.streamUsers(role, consumer));
     }
 
     @PostMapping("/signup")
@@ -50,10 +84,17 @@ public class UserController {
         return userService.registerUser(user);
     }
 
-    @PutMapping
+    @PostMapping("/login")
     @ResponseStatus(HttpStatus.OK)
-    public User updateUser(@RequestBody @Valid User user) {
-        return userService.updateUser(user);
+    public LoginResponse login(@RequestBody @Valid LoginRequest loginRequest) {
+        return authUserService.login(loginRequest);
+    }
+
+    @PutMapping
+    public ResponseEntity<User> updateUser(@RequestBody @Valid User user,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        User updatedUser = userService.updateUser(user, VersionTags.expected(ifMatch));
+        return VersionTags.ok(updatedUser, updatedUser.getVersion());
     }
 
     @DeleteMapping
@@ -0,0 +1,42 @@
+package com.mvpfactory.vendingmachine.facade;
+
+import com.mvpfactory.vendingmachine.error.model.PreconditionFailedException;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Strong entity tags carrying the row version of a user or product, sent back in {@code If-Match} on updates.
+ * Cached catalog reads tag a product as {@code "<version>-<body hash>"}; only the version counts for an update.
+ */
+final class VersionTags {
+
+    private VersionTags() {
+    }
+
+    static <T> ResponseEntity<T> ok(T body, Long version) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if(version != null) {
+            response.eTag("\"" + version + "\"");
+        }
+        return response.body(body);
+    }
+
+    /**
+     * The version an update expects, {@code null} when the header is missing or {@code *}.
+     */
+    static Long expected(String ifMatch) {
+        if(ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if(tag.length() < 3 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+            throw new PreconditionFailedException(String.format("If-Match %s is not a version tag", ifMatch));
+        }
+        String value = tag.substring(1, tag.length() - 1);
+        int hash = value.indexOf('-');
+        try {
+            return Long.parseLong(hash < 0 ? value : value.substring(0, hash));
+        } catch (NumberFormatException ex) {
+            throw new PreconditionFailedException(String.format("If-Match %s is not a version tag", ifMatch));
+        }
+    }
+}
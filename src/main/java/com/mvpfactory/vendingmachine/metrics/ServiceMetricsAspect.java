@@ -0,0 +1,113 @@
+package com.mvpfactory.vendingmachine.metrics;
+
+import com.mvpfactory.vendingmachine.model.BuyResponse;
+import com.mvpfactory.vendingmachine.model.BuyStatus;
+import com.mvpfactory.vendingmachine.model.CartResponse;
+import com.mvpfactory.vendingmachine.model.DepositRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency histograms for every public service and repository call, tagged by class, method and outcome
+ * (success or the exception's simple name), plus business counters for buy fills and deposited coins.
+ * Meters are looked up once per method and outcome and cached, so the per-call cost is a map lookup and
+ * a timer record.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class ServiceMetricsAspect {
+
+    private static final String SUCCESS = "success";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Class<?>, Map<Method, Map<String, Timer>>> timers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    @Around("execution(public * com.mvpfactory.vendingmachine.service.ProductService.*(..))"
+            + " || execution(public * com.mvpfactory.vendingmachine.service.UserService.*(..))")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time("vending.service", joinPoint);
+    }
+
+    @Around("execution(public * com.mvpfactory.vendingmachine.repository.*Repository.*(..))")
+    public Object timeRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time("vending.repository", joinPoint);
+    }
+
+    @AfterReturning(pointcut = "execution(public * com.mvpfactory.vendingmachine.service.ProductService.buy(..))", returning = "buyResponse")
+    public void countFill(BuyResponse buyResponse) {
+        countFill(buyResponse.getNumberOfProducts(), buyResponse);
+    }
+
+    @AfterReturning(pointcut = "execution(public * com.mvpfactory.vendingmachine.service.ProductService.buyCart(..))", returning = "cartResponse")
+    public void countCartFills(CartResponse cartResponse) {
+        cartResponse.getItems().forEach(line -> countFill(line.getNumberOfProducts(), line));
+    }
+
+    @AfterReturning("execution(public * com.mvpfactory.vendingmachine.service.UserService.deposit(..)) && args(depositRequest)")
+    public void countDeposit(DepositRequest depositRequest) {
+        counter("vending.deposits", "coin", String.valueOf(depositRequest.getCoin())).increment();
+    }
+
+    private void countFill(int quantity, BuyResponse line) {
+        String fill = quantity == 0 ? "zero" : line.getStatus() == BuyStatus.FILLED ? "full" : "partial";
+        counter("vending.buy.fills", "fill", fill).increment();
+    }
+
+    private Object time(String name, ProceedingJoinPoint joinPoint) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        long started = System.nanoTime();
+        String outcome = SUCCESS;
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable throwable) {
+            outcome = throwable.getClass().getSimpleName();
+            throw throwable;
+        } finally {
+            timer(name, joinPoint.getThis(), method, outcome).record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer timer(String name, Object proxy, Method method, String outcome) {
+        return timers.computeIfAbsent(proxy.getClass(), key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(method, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(outcome, key -> Timer.builder(name)
+                        .tag("class", typeName(proxy))
+                        .tag("method", method.getName())
+                        .tag("outcome", outcome)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry));
+    }
+
+    /**
+     * Spring Data repositories are JDK proxies over a shared implementation, so they are named after their interface.
+     */
+    private String typeName(Object proxy) {
+        if(Proxy.isProxyClass(proxy.getClass())) {
+            Class<?>[] interfaces = AopProxyUtils.proxiedUserInterfaces(proxy);
+            return interfaces.length > 0 ? interfaces[0].getSimpleName() : proxy.getClass().getSimpleName();
+        }
+        return ClassUtils.getUserClass(proxy).getSimpleName();
+    }
+
+    private Counter counter(String name, String tag, String value) {
+        return counters.computeIfAbsent(name + ":" + value, key -> Counter.builder(name).tag(tag, value).register(meterRegistry));
+    }
+}
@@ -0,0 +1,49 @@
+package com.mvpfactory.vendingmachine.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records how many Hibernate statements each request issued, tagged by the matched route pattern so the
+ * number of series stays bounded. The request's counter is bound to the request thread only while the chain runs
+ * and is kept in a request attribute, so work handed to another thread can bind the same counter.
+ */
+@Component
+@RequiredArgsConstructor
+public class StatementCountFilter extends OncePerRequestFilter {
+
+    public static final String STATEMENTS_ATTRIBUTE = StatementCountFilter.class.getName() + ".statements";
+
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        AtomicInteger statements = new AtomicInteger();
+        request.setAttribute(STATEMENTS_ATTRIBUTE, statements);
+        StatementCountingInspector.bind(statements);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            StatementCountingInspector.unbind();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            DistributionSummary.builder("vending.hibernate.statements")
+                    .tag("method", request.getMethod())
+                    .tag("uri", pattern != null ? pattern.toString() : "UNKNOWN")
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(statements.get());
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.mvpfactory.vendingmachine.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the SQL statements Hibernate prepares for the current request. Instantiated by Hibernate through
+ * {@code hibernate.session_factory.statement_inspector}, so it finds the request's counter in a {@link ThreadLocal}
+ * that {@link StatementCountFilter} binds for the request and always clears; statements of threads with no counter
+ * bound, like the background flushers, belong to no request and are not counted.
+ */
+public class StatementCountingInspector implements StatementInspector {
+
+    private static final ThreadLocal<AtomicInteger> COUNTER = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        AtomicInteger counter = COUNTER.get();
+        if(counter != null) {
+            counter.incrementAndGet();
+        }
+        return sql;
+    }
+
+    /**
+     * Binds {@code counter} to the current thread until {@link #unbind()}.
+     */
+    public static void bind(AtomicInteger counter) {
+        COUNTER.set(counter);
+    }
+
+    public static void unbind() {
+        COUNTER.remove();
+    }
+}
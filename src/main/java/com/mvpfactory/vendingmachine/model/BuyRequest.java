@@ -5,6 +5,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
 import java.util.UUID;
 
 @Data
@@ -16,5 +17,6 @@ public class BuyRequest {
     private UUID productId;
 
     @NotNull
+    @Positive
     private Integer amount;
 }
@@ -5,7 +5,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Data
@@ -17,5 +17,6 @@ public class BuyResponse {
     private Integer totalSpent;
     private Integer numberOfProducts;
     private UUID productId;
-    private List<Integer> change;
+    private Map<Integer, Integer> change;
+    private BuyStatus status;
 }
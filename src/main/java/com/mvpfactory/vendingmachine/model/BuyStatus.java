@@ -0,0 +1,18 @@
+package com.mvpfactory.vendingmachine.model;
+
+public enum BuyStatus {
+    FILLED,
+    PARTIALLY_FILLED,
+    REJECTED_OUT_OF_STOCK,
+    REJECTED_INSUFFICIENT_DEPOSIT;
+
+    public static BuyStatus of(Integer requested, Integer bought, Integer available) {
+        if(bought.equals(requested)) {
+            return FILLED;
+        }
+        if(bought > 0) {
+            return PARTIALLY_FILLED;
+        }
+        return available > 0 ? REJECTED_INSUFFICIENT_DEPOSIT : REJECTED_OUT_OF_STOCK;
+    }
+}
@@ -0,0 +1,18 @@
+package com.mvpfactory.vendingmachine.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartRequest {
+
+    @NotEmpty
+    private List<@Valid BuyRequest> items;
+}
@@ -0,0 +1,20 @@
+package com.mvpfactory.vendingmachine.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CartResponse {
+
+    private Integer totalSpent;
+    private List<BuyResponse> items;
+    private Map<Integer, Integer> change;
+}
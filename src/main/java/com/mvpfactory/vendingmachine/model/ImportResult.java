@@ -0,0 +1,23 @@
+package com.mvpfactory.vendingmachine.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ImportResult {
+
+    private Long line;
+    private ImportStatus status;
+    private UUID id;
+    private String productName;
+    private String error;
+}
@@ -0,0 +1,6 @@
+package com.mvpfactory.vendingmachine.model;
+
+public enum ImportStatus {
+    CREATED,
+    REJECTED
+}
@@ -0,0 +1,18 @@
+package com.mvpfactory.vendingmachine.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class KeysetPage<T> {
+
+    private List<T> items;
+    private String nextCursor;
+}
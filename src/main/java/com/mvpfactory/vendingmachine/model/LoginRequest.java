@@ -0,0 +1,19 @@
+package com.mvpfactory.vendingmachine.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotBlank;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoginRequest {
+
+    @NotBlank(message = "Mandatory username")
+    private String username;
+
+    @NotBlank(message = "Mandatory password")
+    private String password;
+}
@@ -0,0 +1,17 @@
+package com.mvpfactory.vendingmachine.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LoginResponse {
+
+    private String token;
+    private String tokenType;
+    private Long expiresIn;
+}
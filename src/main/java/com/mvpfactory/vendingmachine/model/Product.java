@@ -1,5 +1,6 @@
 package com.mvpfactory.vendingmachine.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -28,4 +29,7 @@ public class Product {
 
     @NotNull(message = "Mandatory seller id")
     private UUID sellerId;
+
+    @JsonIgnore
+    private Long version;
 }
@@ -0,0 +1,26 @@
+package com.mvpfactory.vendingmachine.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.PositiveOrZero;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductFilter {
+
+    private UUID sellerId;
+
+    @PositiveOrZero
+    private Integer minCost;
+
+    @PositiveOrZero
+    private Integer maxCost;
+
+    private Boolean inStock;
+}
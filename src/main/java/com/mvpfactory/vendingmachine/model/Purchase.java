@@ -0,0 +1,25 @@
+package com.mvpfactory.vendingmachine.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.sql.Timestamp;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class Purchase {
+
+    @JsonIgnore
+    private UUID id;
+    private UUID productId;
+    private Integer numberOfProducts;
+    private Integer totalSpent;
+    private BuyStatus status;
+    private Timestamp purchasedDate;
+}
@@ -0,0 +1,35 @@
+package com.mvpfactory.vendingmachine.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.PositiveOrZero;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Sets {@code cost} or adds {@code costDelta} on every product of the seller matching the filter. Omitted filter
+ * fields match everything.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RepriceRequest {
+
+    private List<@NotNull UUID> productIds;
+
+    @PositiveOrZero
+    private Integer minCost;
+
+    @PositiveOrZero
+    private Integer maxCost;
+
+    @PositiveOrZero
+    private Integer cost;
+
+    private Integer costDelta;
+}
@@ -0,0 +1,24 @@
+package com.mvpfactory.vendingmachine.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RestockRequest {
+
+    @NotEmpty
+    private List<@NotNull UUID> productIds;
+
+    @NotNull
+    @Positive
+    private Integer amount;
+}
@@ -0,0 +1,24 @@
+package com.mvpfactory.vendingmachine.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.sql.Timestamp;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SalesStats {
+
+    private UUID productId;
+    private UUID sellerId;
+    private Long unitsSold;
+    private Long revenue;
+    private Timestamp lastSoldDate;
+}
@@ -0,0 +1,22 @@
+package com.mvpfactory.vendingmachine.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.PositiveOrZero;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockLevel {
+
+    @NotNull
+    private UUID productId;
+
+    @NotNull
+    @PositiveOrZero
+    private Integer amountAvailable;
+}
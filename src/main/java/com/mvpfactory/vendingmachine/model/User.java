@@ -1,5 +1,6 @@
 package com.mvpfactory.vendingmachine.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.*;
 
@@ -21,4 +22,7 @@ public class User {
     private Integer deposit;
 
     private Role role;
+
+    @JsonIgnore
+    private Long version;
 }
\ No newline at end of file
@@ -0,0 +1,40 @@
+package com.mvpfactory.vendingmachine.repository;
+
+import com.mvpfactory.vendingmachine.error.model.InvalidCursorException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Position after the last row of a page, ordered by {@code (inserted_date, id)}. Encoded as an opaque
+ * URL-safe token so clients only ever pass back what they were given.
+ */
+@Getter
+@AllArgsConstructor
+public class KeysetCursor {
+
+    private final Timestamp insertedDate;
+    private final UUID id;
+
+    public String encode() {
+        String raw = insertedDate.getTime() + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetCursor decode(String cursor) {
+        if(cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            return new KeysetCursor(new Timestamp(Long.parseLong(raw.substring(0, separator))), UUID.fromString(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new InvalidCursorException(String.format("Invalid page cursor %s", cursor));
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.mvpfactory.vendingmachine.repository;
+
+import com.mvpfactory.vendingmachine.service.ledger.LedgerEntry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Append-only {@code ledger_entries}.
+ */
+@Repository
+@RequiredArgsConstructor
+public class LedgerRepository {
+
+    private static final String INSERT = "INSERT INTO ledger_entries (user_id, product_id, entry_type, deposit_delta, quantity, inserted_date) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void append(List<LedgerEntry> entries) {
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.batchUpdate(INSERT, entries, entries.size(), (statement, entry) -> {
+            statement.setObject(1, entry.getUserId());
+            statement.setObject(2, entry.getProductId());
+            statement.setString(3, entry.getType().name());
+            statement.setInt(4, entry.getDepositDelta());
+            statement.setInt(5, entry.getQuantity());
+            statement.setTimestamp(6, now);
+        });
+    }
+}
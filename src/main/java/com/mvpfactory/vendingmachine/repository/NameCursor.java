@@ -0,0 +1,34 @@
+package com.mvpfactory.vendingmachine.repository;
+
+import com.mvpfactory.vendingmachine.error.model.InvalidCursorException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position after the last row of a seller's page, ordered by {@code product_name}. Names are unique, so the name
+ * alone is a stable key. Encoded like {@link KeysetCursor}.
+ */
+@Getter
+@AllArgsConstructor
+public class NameCursor {
+
+    private final String productName;
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(productName.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static NameCursor decode(String cursor) {
+        if(cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            return new NameCursor(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException(String.format("Invalid page cursor %s", cursor));
+        }
+    }
+}
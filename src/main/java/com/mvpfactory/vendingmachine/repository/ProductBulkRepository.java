@@ -0,0 +1,108 @@
+package com.mvpfactory.vendingmachine.repository;
+
+import com.mvpfactory.vendingmachine.model.RepriceRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Set-based seller updates in SQL that runs on PostgreSQL and H2 alike. The seller's rows are locked first by one
+ * ownership-checked {@code SELECT ... FOR UPDATE} in id order, so ids that do not exist or belong to another seller
+ * are never touched, and the updates then go by the locked ids. A striped product keeps its stock in
+ * {@code product_stock_stripes}: stock changes are spread over its stripes like {@code StripedStock.distribute}
+ * does, the first stripes taking the remainder. All methods must run inside the caller's transaction.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProductBulkRepository {
+
+    private static final String STRIPED = "EXISTS (SELECT 1 FROM product_stock_stripes s WHERE s.product_id = products.id)";
+    private static final String STRIPE_COUNT = "(SELECT COUNT(*) FROM product_stock_stripes c WHERE c.product_id = product_stock_stripes.product_id)";
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public List<UUID> lockOwned(UUID sellerId, Collection<UUID> productIds) {
+        return namedParameterJdbcTemplate.queryForList("SELECT id FROM products WHERE seller_id = :sellerId AND id IN (:ids) ORDER BY id FOR UPDATE",
+                new MapSqlParameterSource("sellerId", sellerId).addValue("ids", productIds), UUID.class);
+    }
+
+    /**
+     * Locks the seller's products the reprice applies to, limited to {@code productIds} unless that is {@code null}.
+     * A delta that would take a cost below zero leaves that product out.
+     */
+    public List<UUID> lockRepriceable(UUID sellerId, RepriceRequest request, Collection<UUID> productIds) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource("sellerId", sellerId);
+        StringBuilder sql = new StringBuilder("SELECT id FROM products WHERE seller_id = :sellerId");
+        if(request.getCostDelta() != null) {
+            sql.append(" AND cost + :costDelta >= 0");
+            parameters.addValue("costDelta", request.getCostDelta());
+        }
+        if(productIds != null) {
+            sql.append(" AND id IN (:ids)");
+            parameters.addValue("ids", productIds);
+        }
+        if(request.getMinCost() != null) {
+            sql.append(" AND cost >= :minCost");
+            parameters.addValue("minCost", request.getMinCost());
+        }
+        if(request.getMaxCost() != null) {
+            sql.append(" AND cost <= :maxCost");
+            parameters.addValue("maxCost", request.getMaxCost());
+        }
+        return namedParameterJdbcTemplate.queryForList(sql.append(" ORDER BY id FOR UPDATE").toString(), parameters, UUID.class);
+    }
+
+    public void addStock(Collection<UUID> productIds, int amount, Timestamp now) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource("ids", productIds).addValue("amount", amount).addValue("now", now);
+        namedParameterJdbcTemplate.update("UPDATE products SET amount_available = amount_available + CASE WHEN " + STRIPED +
+                " THEN 0 ELSE :amount END, updated_date = :now, version = version + 1 WHERE id IN (:ids)", parameters);
+        namedParameterJdbcTemplate.update("UPDATE product_stock_stripes SET amount = amount + " + spread() +
+                " WHERE product_id IN (:ids)", parameters);
+    }
+
+    public void setStock(Map<UUID, Integer> amounts, Timestamp now) {
+        MapSqlParameterSource[] rows = amounts.entrySet().stream()
+                .map(level -> new MapSqlParameterSource("id", level.getKey()).addValue("amount", level.getValue()).addValue("now", now))
+                .toArray(MapSqlParameterSource[]::new);
+        namedParameterJdbcTemplate.batchUpdate("UPDATE products SET amount_available = CASE WHEN " + STRIPED +
+                " THEN 0 ELSE :amount END, updated_date = :now, version = version + 1 WHERE id = :id", rows);
+        namedParameterJdbcTemplate.batchUpdate("UPDATE product_stock_stripes SET amount = " + spread() +
+                " WHERE product_id = :id", rows);
+    }
+
+    /**
+     * Version bump without touching stock, for the IN_MEMORY mode where the engine owns it.
+     */
+    public void touch(Collection<UUID> productIds, Timestamp now) {
+        namedParameterJdbcTemplate.update("UPDATE products SET updated_date = :now, version = version + 1 WHERE id IN (:ids)",
+                new MapSqlParameterSource("ids", productIds).addValue("now", now));
+    }
+
+    public void reprice(Collection<UUID> productIds, RepriceRequest request, Timestamp now) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource("ids", productIds).addValue("now", now);
+        String cost;
+        if(request.getCost() != null) {
+            cost = ":cost";
+            parameters.addValue("cost", request.getCost());
+        } else {
+            cost = "cost + :costDelta";
+            parameters.addValue("costDelta", request.getCostDelta());
+        }
+        namedParameterJdbcTemplate.update("UPDATE products SET cost = " + cost + ", updated_date = :now, version = version + 1 " +
+                "WHERE id IN (:ids)", parameters);
+    }
+
+    /**
+     * This stripe's share of {@code :amount}.
+     */
+    private static String spread() {
+        return ":amount / " + STRIPE_COUNT + " + CASE WHEN stripe < MOD(:amount, " + STRIPE_COUNT + ") THEN 1 ELSE 0 END";
+    }
+}
@@ -0,0 +1,180 @@
+package com.mvpfactory.vendingmachine.repository;
+
+import com.mvpfactory.vendingmachine.model.KeysetPage;
+import com.mvpfactory.vendingmachine.model.Product;
+import com.mvpfactory.vendingmachine.model.ProductFilter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Read side of the catalog. Pages are keyset-paginated on {@code (inserted_date, id)} so every page costs one
+ * index range scan regardless of how deep the client is, and only the filters that were actually given end up
+ * in the SQL. Streaming reads rows through a cursor with a bounded fetch size and never builds a list.
+ * Stock already includes what a striped product holds in {@code product_stock_stripes}, summed in the same
+ * statement, so no read needs a second query per row.
+ */
+@Repository
+public class ProductCatalogRepository {
+
+    private static final String SELECT = "SELECT id, product_name, cost, seller_id, inserted_date, version, " +
+            "products.amount_available + COALESCE((SELECT SUM(s.amount) FROM product_stock_stripes s " +
+            "WHERE s.product_id = products.id), 0) AS amount_available FROM products";
+
+    private final NamedParameterJdbcTemplate pageTemplate;
+    private final NamedParameterJdbcTemplate streamTemplate;
+
+    @Autowired
+    public ProductCatalogRepository(NamedParameterJdbcTemplate pageTemplate, DataSource dataSource,
+                                    @Value("${catalog_stream_fetch_size:500}") int fetchSize) {
+        this.pageTemplate = pageTemplate;
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setFetchSize(fetchSize);
+        this.streamTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    public Optional<Product> findById(UUID id) {
+        return findOne(" WHERE id = :id", new MapSqlParameterSource("id", id));
+    }
+
+    public List<Product> findAllById(Collection<UUID> ids) {
+        if(ids.isEmpty()) {
+            return List.of();
+        }
+        return pageTemplate.query(SELECT + " WHERE id IN (:ids)", new MapSqlParameterSource("ids", ids), (resultSet, rowNum) -> map(resultSet));
+    }
+
+    public Optional<Product> findByName(String productName) {
+        return findOne(" WHERE product_name = :productName", new MapSqlParameterSource("productName", productName));
+    }
+
+    private Optional<Product> findOne(String where, MapSqlParameterSource parameters) {
+        return pageTemplate.query(SELECT + where, parameters, (resultSet, rowNum) -> map(resultSet)).stream().findFirst();
+    }
+
+    public KeysetPage<Product> findPage(ProductFilter filter, KeysetCursor after, int limit) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        StringBuilder sql = new StringBuilder(source(parameters, filter, after));
+        sql.append(" ORDER BY inserted_date, id LIMIT :limit");
+        parameters.addValue("limit", limit + 1);
+
+        List<Product> products = new ArrayList<>(limit);
+        KeysetCursor[] last = new KeysetCursor[1];
+        boolean[] hasMore = new boolean[1];
+        pageTemplate.query(sql.toString(), parameters, resultSet -> {
+            if(products.size() == limit) {
+                hasMore[0] = true;
+                return;
+            }
+            products.add(map(resultSet));
+            last[0] = new KeysetCursor(resultSet.getTimestamp("inserted_date"), resultSet.getObject("id", UUID.class));
+        });
+        return KeysetPage.<Product>builder()
+                .items(products)
+                .nextCursor(hasMore[0] ? last[0].encode() : null)
+                .build();
+    }
+
+    /**
+     * Must run inside a transaction, otherwise PostgreSQL ignores the fetch size and buffers the whole result.
+     */
+    public void stream(ProductFilter filter, Consumer<Product> consumer) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        StringBuilder sql = new StringBuilder(source(parameters, filter, null));
+        sql.append(" ORDER BY inserted_date, id");
+        streamTemplate.query(sql.toString(), parameters, resultSet -> {
+            consumer.accept(map(resultSet));
+        });
+    }
+
+    /**
+     * One seller's products by name, a range scan of the {@code (seller_id, product_name)} index.
+     */
+    public KeysetPage<Product> findSellerPage(UUID sellerId, NameCursor after, int limit) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource("sellerId", sellerId).addValue("limit", limit + 1);
+        StringBuilder sql = new StringBuilder(SELECT).append(" WHERE seller_id = :sellerId");
+        if(after != null) {
+            sql.append(" AND product_name > :afterName");
+            parameters.addValue("afterName", after.getProductName());
+        }
+        sql.append(" ORDER BY product_name LIMIT :limit");
+
+        List<Product> products = pageTemplate.query(sql.toString(), parameters, (resultSet, rowNum) -> map(resultSet));
+        boolean hasMore = products.size() > limit;
+        if(hasMore) {
+            products.remove(limit);
+        }
+        return KeysetPage.<Product>builder()
+                .items(products)
+                .nextCursor(hasMore ? new NameCursor(products.get(limit - 1).getProductName()).encode() : null)
+                .build();
+    }
+
+    /**
+     * In-stock listings are the union of rows with stock, served by the partial {@code amount_available > 0} index,
+     * and the few striped rows, found from {@code product_stock_stripes}; both branches stay in keyset order so
+     * sold-out rows are never scanned.
+     */
+    private String source(MapSqlParameterSource parameters, ProductFilter filter, KeysetCursor after) {
+        List<String> conditions = conditions(parameters, filter, after);
+        if(filter == null || !Boolean.TRUE.equals(filter.getInStock())) {
+            return SELECT + where(conditions);
+        }
+        List<String> stocked = new ArrayList<>(conditions);
+        stocked.add("products.amount_available > 0");
+        List<String> striped = new ArrayList<>(conditions);
+        striped.add("products.amount_available = 0");
+        striped.add("id IN (SELECT s.product_id FROM product_stock_stripes s WHERE s.amount > 0)");
+        return "SELECT * FROM (" + SELECT + where(stocked) + " UNION ALL " + SELECT + where(striped) + ") AS in_stock";
+    }
+
+    private static String where(List<String> conditions) {
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    private List<String> conditions(MapSqlParameterSource parameters, ProductFilter filter, KeysetCursor after) {
+        List<String> conditions = new ArrayList<>();
+        if(after != null) {
+            conditions.add("(inserted_date, id) > (:afterDate, :afterId)");
+            parameters.addValue("afterDate", after.getInsertedDate());
+            parameters.addValue("afterId", after.getId());
+        }
+        if(filter != null && filter.getSellerId() != null) {
+            conditions.add("seller_id = :sellerId");
+            parameters.addValue("sellerId", filter.getSellerId());
+        }
+        if(filter != null && filter.getMinCost() != null) {
+            conditions.add("cost >= :minCost");
+            parameters.addValue("minCost", filter.getMinCost());
+        }
+        if(filter != null && filter.getMaxCost() != null) {
+            conditions.add("cost <= :maxCost");
+            parameters.addValue("maxCost", filter.getMaxCost());
+        }
+        return conditions;
+    }
+
+    private Product map(ResultSet resultSet) throws SQLException {
+        return Product.builder()
+                .id(resultSet.getObject("id", UUID.class))
+                .productName(resultSet.getString("product_name"))
+                .amountAvailable(resultSet.getInt("amount_available"))
+                .cost(resultSet.getInt("cost"))
+                .sellerId(resultSet.getObject("seller_id", UUID.class))
+                .version(resultSet.getLong("version"))
+                .build();
+    }
+}
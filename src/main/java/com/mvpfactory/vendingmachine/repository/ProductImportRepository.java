@@ -0,0 +1,47 @@
+package com.mvpfactory.vendingmachine.repository;
+
+import com.mvpfactory.vendingmachine.model.Product;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Write side of the bulk import. Name conflicts for a whole chunk are found with one {@code IN} query and the
+ * rows are inserted as one JDBC batch with ids generated by the caller, so nothing has to be read back.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProductImportRepository {
+
+    private static final String INSERT = "INSERT INTO products (id, product_name, amount_available, cost, seller_id, inserted_date, updated_date, version) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, 0)";
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public Set<String> findExistingNames(Collection<String> productNames) {
+        if(productNames.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(namedParameterJdbcTemplate.queryForList("SELECT product_name FROM products WHERE product_name IN (:names)",
+                new MapSqlParameterSource("names", productNames), String.class));
+    }
+
+    public void insert(List<Product> products, Timestamp now) {
+        namedParameterJdbcTemplate.getJdbcTemplate().batchUpdate(INSERT, products, products.size(), (statement, product) -> {
+            statement.setObject(1, product.getId());
+            statement.setString(2, product.getProductName());
+            statement.setInt(3, product.getAmountAvailable());
+            statement.setInt(4, product.getCost());
+            statement.setObject(5, product.getSellerId());
+            statement.setTimestamp(6, now);
+            statement.setTimestamp(7, now);
+        });
+    }
+}
@@ -1,12 +1,17 @@
 package com.mvpfactory.vendingmachine.repository;
 
 import com.mvpfactory.vendingmachine.repository.entity.ProductEntity;
+import com.mvpfactory.vendingmachine.repository.projection.PurchaseResult;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import javax.persistence.LockModeType;
 import javax.transaction.Transactional;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -14,8 +19,21 @@ public interface ProductRepository extends JpaRepository<ProductEntity, UUID> {
 
     Optional<ProductEntity> findProductEntitiesByProductName(String productName);
 
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM ProductEntity p WHERE p.id IN :ids ORDER BY p.id")
+    List<ProductEntity> findAllByIdForUpdate(@Param("ids") Collection<UUID> ids);
+
     @Transactional
     @Modifying(clearAutomatically = true)
-    @Query(value = "UPDATE products SET amount_available = amount_available - :amount WHERE id = :id", nativeQuery = true)
-    void decrementAmountBy(@Param("id") UUID id, @Param("amount") Integer amount);
+    @Query(value = "UPDATE products SET amount_available = amount_available - :amount, version = version + 1 " +
+            "WHERE id = :id AND amount_available - :reserved >= :amount", nativeQuery = true)
+    int decrementAmountBy(@Param("id") UUID id, @Param("amount") Integer amount, @Param("reserved") Integer reserved);
+
+    /**
+     * See {@link VendingStatements#CONDITIONAL_PURCHASE}.
+     */
+    @Transactional
+    @Query(value = VendingStatements.CONDITIONAL_PURCHASE, nativeQuery = true)
+    Optional<PurchaseResult> purchase(@Param("username") String username, @Param("productId") UUID productId,
+                                      @Param("amount") Integer amount, @Param("reserved") Integer reserved);
 }
\ No newline at end of file
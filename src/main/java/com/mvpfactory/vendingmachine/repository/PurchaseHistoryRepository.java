@@ -0,0 +1,77 @@
+package com.mvpfactory.vendingmachine.repository;
+
+import com.mvpfactory.vendingmachine.model.BuyStatus;
+import com.mvpfactory.vendingmachine.model.KeysetPage;
+import com.mvpfactory.vendingmachine.model.Purchase;
+import com.mvpfactory.vendingmachine.service.history.PurchaseEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * {@code purchase_history} rows of one user, newest first, keyset-paginated on {@code (purchased_date, id)}.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PurchaseHistoryRepository {
+
+    private static final String INSERT = "INSERT INTO purchase_history (id, user_id, product_id, number_of_products, total_spent, status, purchased_date) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate pageTemplate;
+
+    public void append(List<PurchaseEvent> events) {
+        jdbcTemplate.batchUpdate(INSERT, events, events.size(), (statement, event) -> {
+            statement.setObject(1, UUID.randomUUID());
+            statement.setObject(2, event.getUserId());
+            statement.setObject(3, event.getProductId());
+            statement.setInt(4, event.getNumberOfProducts());
+            statement.setInt(5, event.getTotalSpent());
+            statement.setString(6, event.getStatus().name());
+            statement.setTimestamp(7, new Timestamp(event.getPurchasedAt()));
+        });
+    }
+
+    public KeysetPage<Purchase> findPage(UUID userId, KeysetCursor before, int limit) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource("userId", userId);
+        StringBuilder sql = new StringBuilder("SELECT id, product_id, number_of_products, total_spent, status, purchased_date " +
+                "FROM purchase_history WHERE user_id = :userId");
+        if(before != null) {
+            sql.append(" AND (purchased_date, id) < (:beforeDate, :beforeId)");
+            parameters.addValue("beforeDate", before.getInsertedDate());
+            parameters.addValue("beforeId", before.getId());
+        }
+        sql.append(" ORDER BY purchased_date DESC, id DESC LIMIT :limit");
+        parameters.addValue("limit", limit + 1);
+
+        List<Purchase> purchases = new ArrayList<>(limit);
+        boolean[] hasMore = new boolean[1];
+        pageTemplate.query(sql.toString(), parameters, resultSet -> {
+            if(purchases.size() == limit) {
+                hasMore[0] = true;
+                return;
+            }
+            purchases.add(Purchase.builder()
+                    .id(resultSet.getObject("id", UUID.class))
+                    .productId(resultSet.getObject("product_id", UUID.class))
+                    .numberOfProducts(resultSet.getInt("number_of_products"))
+                    .totalSpent(resultSet.getInt("total_spent"))
+                    .status(BuyStatus.valueOf(resultSet.getString("status")))
+                    .purchasedDate(resultSet.getTimestamp("purchased_date"))
+                    .build());
+        });
+        Purchase last = hasMore[0] ? purchases.get(purchases.size() - 1) : null;
+        return KeysetPage.<Purchase>builder()
+                .items(purchases)
+                .nextCursor(last != null ? new KeysetCursor(last.getPurchasedDate(), last.getId()).encode() : null)
+                .build();
+    }
+}
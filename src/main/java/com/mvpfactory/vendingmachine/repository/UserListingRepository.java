@@ -0,0 +1,102 @@
+package com.mvpfactory.vendingmachine.repository;
+
+import com.mvpfactory.vendingmachine.model.KeysetPage;
+import com.mvpfactory.vendingmachine.model.Role;
+import com.mvpfactory.vendingmachine.repository.entity.UserEntity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Keyset-paginated and streamed reads of {@code users}, ordered by {@code (inserted_date, id)}. Passwords are never selected.
+ */
+@Repository
+public class UserListingRepository {
+
+    private static final String SELECT = "SELECT id, username, deposit, role, inserted_date FROM users";
+
+    private final NamedParameterJdbcTemplate pageTemplate;
+    private final NamedParameterJdbcTemplate streamTemplate;
+
+    @Autowired
+    public UserListingRepository(NamedParameterJdbcTemplate pageTemplate, DataSource dataSource,
+                                 @Value("${user_stream_fetch_size:500}") int fetchSize) {
+        this.pageTemplate = pageTemplate;
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setFetchSize(fetchSize);
+        this.streamTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    public KeysetPage<UserEntity> findPage(Role role, KeysetCursor after, int limit) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        StringBuilder sql = new StringBuilder(SELECT);
+        appendConditions(sql, parameters, role, after);
+        sql.append(" ORDER BY inserted_date, id LIMIT :limit");
+        parameters.addValue("limit", limit + 1);
+
+        List<UserEntity> users = new ArrayList<>(limit);
+        boolean[] hasMore = new boolean[1];
+        pageTemplate.query(sql.toString(), parameters, resultSet -> {
+            if(users.size() == limit) {
+                hasMore[0] = true;
+                return;
+            }
+            users.add(map(resultSet));
+        });
+        UserEntity last = hasMore[0] ? users.get(users.size() - 1) : null;
+        return KeysetPage.<UserEntity>builder()
+                .items(users)
+                .nextCursor(last != null ? new KeysetCursor(last.getInsertedDate(), last.getId()).encode() : null)
+                .build();
+    }
+
+    /**
+     * Must run inside a transaction, otherwise PostgreSQL ignores the fetch size and buffers the whole result.
+     */
+    public void stream(Role role, Consumer<UserEntity> consumer) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        StringBuilder sql = new StringBuilder(SELECT);
+        appendConditions(sql, parameters, role, null);
+        sql.append(" ORDER BY inserted_date, id");
+        streamTemplate.query(sql.toString(), parameters, resultSet -> {
+            consumer.accept(map(resultSet));
+        });
+    }
+
+    private void appendConditions(StringBuilder sql, MapSqlParameterSource parameters, Role role, KeysetCursor after) {
+        List<String> conditions = new ArrayList<>();
+        if(after != null) {
+            conditions.add("(inserted_date, id) > (:afterDate, :afterId)");
+            parameters.addValue("afterDate", after.getInsertedDate());
+            parameters.addValue("afterId", after.getId());
+        }
+        if(role != null) {
+            conditions.add("role = :role");
+            parameters.addValue("role", role.name());
+        }
+        if(!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+    }
+
+    private UserEntity map(ResultSet resultSet) throws SQLException {
+        return UserEntity.builder()
+                .id(resultSet.getObject("id", UUID.class))
+                .username(resultSet.getString("username"))
+                .deposit(resultSet.getInt("deposit"))
+                .role(Role.valueOf(resultSet.getString("role")))
+                .insertedDate(resultSet.getTimestamp("inserted_date"))
+                .build();
+    }
+}
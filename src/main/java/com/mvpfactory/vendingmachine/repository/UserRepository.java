@@ -2,10 +2,12 @@ package com.mvpfactory.vendingmachine.repository;
 
 import com.mvpfactory.vendingmachine.repository.entity.UserEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import javax.persistence.LockModeType;
 import javax.transaction.Transactional;
 import java.util.Optional;
 import java.util.UUID;
@@ -14,18 +16,22 @@ public interface UserRepository extends JpaRepository<UserEntity, UUID> {
 
     Optional<UserEntity> findUserEntityByUsername(String username);
 
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT u FROM UserEntity u WHERE u.id = :id")
+    Optional<UserEntity> findByIdForUpdate(@Param("id") UUID id);
+
     @Transactional
     @Modifying(clearAutomatically = true)
-    @Query(value = "UPDATE users SET deposit = 0 WHERE id = :id", nativeQuery = true)
+    @Query(value = "UPDATE users SET deposit = 0, version = version + 1 WHERE id = :id", nativeQuery = true)
     void resetDeposit(@Param("id") UUID id);
 
     @Transactional
     @Modifying(clearAutomatically = true)
-    @Query(value = "UPDATE users SET deposit = deposit + :coin WHERE id = :id", nativeQuery = true)
+    @Query(value = VendingStatements.ADD_DEPOSIT + " WHERE id = :id", nativeQuery = true)
     void deposit(@Param("id") UUID id, @Param("coin") Integer coin);
 
     @Transactional
     @Modifying(clearAutomatically = true)
-    @Query(value = "UPDATE users SET deposit = deposit - :amount WHERE id = :id", nativeQuery = true)
-    void decrementDepositBy(@Param("id") UUID id, @Param("amount") Integer amount);
+    @Query(value = "UPDATE users SET deposit = deposit - :amount, version = version + 1 WHERE id = :id AND deposit >= :amount", nativeQuery = true)
+    int decrementDepositBy(@Param("id") UUID id, @Param("amount") Integer amount);
 }
@@ -0,0 +1,48 @@
+package com.mvpfactory.vendingmachine.repository;
+
+/**
+ * Stock and deposit SQL shared by the servlet repositories and the reactive module, so both write the same guards.
+ * Plain constants without framework types, usable in {@code @Query} and compiled into the reactive module as is.
+ */
+public final class VendingStatements {
+
+    /**
+     * Locks buyer and product, takes as many units as both the stock not :reserved and the deposit allow (at most
+     * :amount), decrements stock and deposit and returns the post-purchase deposit, all in one PostgreSQL statement.
+     * The product scan only starts once the buyer is locked (the uncorrelated EXISTS is a one-time filter), so the
+     * buyer is always locked before the product like on every other purchase path. Returns no row when the product
+     * does not exist or is striped.
+     */
+    public static final String CONDITIONAL_PURCHASE = "WITH buyer AS (" +
+            "    SELECT id, deposit FROM users WHERE username = :username FOR UPDATE" +
+            "), product AS (" +
+            "    SELECT id, cost, amount_available FROM products WHERE id = :productId AND EXISTS (SELECT 1 FROM buyer)" +
+            "    AND NOT EXISTS (SELECT 1 FROM product_stock_stripes s WHERE s.product_id = products.id) FOR UPDATE" +
+            "), fill AS (" +
+            "    SELECT buyer.id AS user_id, buyer.deposit, product.id AS product_id, product.cost, product.amount_available," +
+            "           LEAST(:amount, GREATEST(product.amount_available - :reserved, 0)," +
+            "                 CASE WHEN product.cost = 0 THEN :amount ELSE buyer.deposit / product.cost END) AS quantity" +
+            "    FROM buyer CROSS JOIN product" +
+            "), updated_product AS (" +
+            "    UPDATE products p SET amount_available = p.amount_available - fill.quantity, version = p.version + 1 FROM fill" +
+            "    WHERE p.id = fill.product_id AND fill.quantity > 0 AND p.amount_available - :reserved >= fill.quantity" +
+            "    RETURNING p.id" +
+            "), updated_user AS (" +
+            "    UPDATE users u SET deposit = u.deposit - fill.quantity * fill.cost, version = u.version + 1 FROM fill" +
+            "    WHERE u.id = fill.user_id AND fill.quantity > 0 AND u.deposit >= fill.quantity * fill.cost" +
+            "    RETURNING u.deposit" +
+            ") " +
+            "SELECT fill.product_id AS productId, fill.cost AS cost, fill.amount_available AS amountAvailable, " +
+            "       fill.quantity AS quantity, COALESCE((SELECT deposit FROM updated_user), fill.deposit) AS deposit " +
+            "FROM fill";
+
+    /**
+     * Adds :coin to the deposit; callers append the {@code WHERE} clause selecting the user.
+     */
+    public static final String ADD_DEPOSIT = "UPDATE users SET deposit = deposit + :coin, version = version + 1";
+
+    public static final String STRIPED_PRODUCTS_EXIST = "SELECT EXISTS (SELECT 1 FROM product_stock_stripes)";
+
+    private VendingStatements() {
+    }
+}
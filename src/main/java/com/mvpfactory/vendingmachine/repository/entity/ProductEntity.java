@@ -44,4 +44,8 @@ public class ProductEntity {
 
     @Column(name = "updated_date")
     private Timestamp updatedDate;
+
+    @Version
+    @Column(name = "version")
+    private Long version;
 }
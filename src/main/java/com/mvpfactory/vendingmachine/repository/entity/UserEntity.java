@@ -46,4 +46,8 @@ public class UserEntity {
 
     @Column(name = "updated_date")
     private Timestamp updatedDate;
+
+    @Version
+    @Column(name = "version")
+    private Long version;
 }
\ No newline at end of file
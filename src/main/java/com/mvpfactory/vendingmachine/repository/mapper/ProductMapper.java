@@ -17,6 +17,7 @@ public class ProductMapper {
                 .amountAvailable(productEntity.getAmountAvailable())
                 .cost(productEntity.getCost())
                 .sellerId(productEntity.getSeller().getId())
+                .version(productEntity.getVersion())
                 .build();
     }
 
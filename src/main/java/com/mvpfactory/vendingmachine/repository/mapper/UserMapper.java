@@ -19,6 +19,7 @@ public class UserMapper {
                .username(userEntity.getUsername())
                .deposit(userEntity.getDeposit())
                .role(userEntity.getRole())
+               .version(userEntity.getVersion())
                .build();
     }
 
@@ -0,0 +1,20 @@
+package com.mvpfactory.vendingmachine.repository.projection;
+
+import java.util.UUID;
+
+/**
+ * Outcome of a guarded purchase statement: the stock and deposit seen under lock,
+ * the quantity actually taken and the buyer deposit after the purchase.
+ */
+public interface PurchaseResult {
+
+    UUID getProductId();
+
+    Integer getCost();
+
+    Integer getAmountAvailable();
+
+    Integer getQuantity();
+
+    Integer getDeposit();
+}
@@ -1,6 +1,12 @@
 package com.mvpfactory.vendingmachine.security;
 
+import com.mvpfactory.vendingmachine.model.LoginRequest;
+import com.mvpfactory.vendingmachine.model.LoginResponse;
 import com.mvpfactory.vendingmachine.security.model.AuthUserDetails;
+import com.mvpfactory.vendingmachine.security.token.AuthTokenService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.logout.SecurityContextLogoutHandler;
@@ -12,11 +18,31 @@ import org.springframework.web.context.request.ServletRequestAttributes;
 import javax.servlet.http.HttpServletRequest;
 
 @Service
+@RequiredArgsConstructor
 public class AuthUserService {
 
+    private final AuthenticationManager authenticationManager;
+    private final AuthTokenService authTokenService;
+
+    /**
+     * Verifies the password once and returns a signed token to be sent as {@code Authorization: Bearer <token>}.
+     */
+    public LoginResponse login(LoginRequest loginRequest) {
+        Authentication authentication = authenticationManager.authenticate(
+                new UsernamePasswordAuthenticationToken(loginRequest.getUsername(), loginRequest.getPassword()));
+        return LoginResponse.builder()
+                .token(authTokenService.issue((AuthUserDetails) authentication.getPrincipal()))
+                .tokenType("Bearer")
+                .expiresIn(authTokenService.getTtlSeconds())
+                .build();
+    }
+
     public void logOutUser() {
         Authentication authSession = SecurityContextHolder.getContext().getAuthentication();
         if(authSession != null) {
+            if(authSession.getPrincipal() instanceof AuthUserDetails) {
+                authTokenService.revoke(((AuthUserDetails) authSession.getPrincipal()).getId());
+            }
             RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
             if(requestAttributes instanceof ServletRequestAttributes) {
                 HttpServletRequest request = ((ServletRequestAttributes)requestAttributes).getRequest();
@@ -1,19 +1,26 @@
 package com.mvpfactory.vendingmachine.security.config;
 
+import com.mvpfactory.vendingmachine.metrics.TimedPasswordEncoder;
 import com.mvpfactory.vendingmachine.model.Role;
 import com.mvpfactory.vendingmachine.security.AuthUserDetailsService;
+import com.mvpfactory.vendingmachine.security.token.AuthTokenService;
+import com.mvpfactory.vendingmachine.security.token.TokenAuthenticationFilter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
+import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 
 @EnableWebSecurity
 @Configuration
@@ -21,6 +28,8 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 public class SecurityConfig extends WebSecurityConfigurerAdapter {
 
     private final AuthUserDetailsService userDetailsService;
+    private final AuthTokenService authTokenService;
+    private final MeterRegistry meterRegistry;
 
     @Override
     protected void configure(AuthenticationManagerBuilder auth) {
@@ -33,20 +42,35 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
                 .csrf()
                 .disable()
                 .authorizeRequests()
-                .antMatchers("/api/v1/users/signup", "/login*").permitAll()
+                .antMatchers("/api/v1/users/signup", "/api/v1/users/login", "/login*").permitAll()
+                .antMatchers(HttpMethod.GET, "/actuator/health", "/actuator/prometheus").permitAll()
+                .antMatchers(HttpMethod.GET, "/api/v1/products/stats", "/api/v1/products/*/stats", "/api/v1/products/mine").hasRole(Role.SELLER.toString())
                 .antMatchers(HttpMethod.GET, "/api/v1/products*").permitAll()
                 .antMatchers(HttpMethod.GET, "/api/v1/products/**").permitAll()
                 .antMatchers("/api/v1/users*").hasAnyRole(Role.BUYER.toString(), Role.SELLER.toString())
                 .antMatchers("/api/v1/users/**/deposit", "/api/v1/users/**/reset", "/api/v1/products/**/buy").hasRole(Role.BUYER.name())
-                .antMatchers(HttpMethod.POST, "/api/v1/products").hasRole(Role.SELLER.toString())
-                .antMatchers(HttpMethod.PUT, "/api/v1/products").hasRole(Role.SELLER.toString())
+                .antMatchers("/api/v1/products/reservations", "/api/v1/products/reservations/**").hasRole(Role.BUYER.name())
+                .antMatchers(HttpMethod.GET, "/api/v1/users/purchases").hasRole(Role.BUYER.name())
+                .antMatchers(HttpMethod.POST, "/api/v1/products", "/api/v1/products/import").hasRole(Role.SELLER.toString())
+                .antMatchers(HttpMethod.PUT, "/api/v1/products", "/api/v1/products/restock", "/api/v1/products/stock", "/api/v1/products/price").hasRole(Role.SELLER.toString())
+                .antMatchers(HttpMethod.PUT, "/api/v1/products/*/stripes").hasRole(Role.SELLER.toString())
                 .antMatchers(HttpMethod.DELETE,"/api/v1/products/**").hasRole(Role.SELLER.toString())
                 .anyRequest()
                 .authenticated()
                 .and()
+                .sessionManagement()
+                .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
+                .and()
+                .addFilterBefore(new TokenAuthenticationFilter(authTokenService), BasicAuthenticationFilter.class)
                 .httpBasic();
     }
 
+    @Bean
+    @Override
+    public AuthenticationManager authenticationManagerBean() throws Exception {
+        return super.authenticationManagerBean();
+    }
+
     @Bean
     public DaoAuthenticationProvider authProvider() {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
@@ -57,6 +81,6 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
 
     @Bean
     public PasswordEncoder encoder() {
-        return new BCryptPasswordEncoder();
+        return new TimedPasswordEncoder(new BCryptPasswordEncoder(), meterRegistry);
     }
 }
@@ -1,5 +1,6 @@
 package com.mvpfactory.vendingmachine.security.model;
 
+import com.mvpfactory.vendingmachine.model.Role;
 import com.mvpfactory.vendingmachine.repository.entity.UserEntity;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -8,15 +9,20 @@ import org.springframework.security.core.userdetails.UserDetails;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.UUID;
 
 public class AuthUserDetails implements UserDetails {
 
+    private final UUID id;
     private final String username;
     private final String password;
+    private final Role role;
     private final List<GrantedAuthority> permissions;
 
     public AuthUserDetails(UserEntity userEntity) {
+        this.id = userEntity.getId();
         this.username = userEntity.getUsername();
+        this.role = userEntity.getRole();
         this.password = userEntity.getPassword();
         this.permissions = Collections.singletonList(
                 new SimpleGrantedAuthority(
@@ -25,6 +31,26 @@ public class AuthUserDetails implements UserDetails {
         );
     }
 
+    public AuthUserDetails(UUID id, String username, Role role) {
+        this.id = id;
+        this.username = username;
+        this.role = role;
+        this.password = null;
+        this.permissions = Collections.singletonList(
+                new SimpleGrantedAuthority(
+                        String.format("ROLE_%s", role)
+                )
+        );
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public Role getRole() {
+        return role;
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return permissions;
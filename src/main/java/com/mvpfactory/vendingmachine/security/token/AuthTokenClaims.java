@@ -0,0 +1,18 @@
+package com.mvpfactory.vendingmachine.security.token;
+
+import com.mvpfactory.vendingmachine.model.Role;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.UUID;
+
+@Getter
+@AllArgsConstructor
+public class AuthTokenClaims {
+
+    private final UUID userId;
+    private final String username;
+    private final Role role;
+    private final long issuedAt;
+    private final long expiresAt;
+}
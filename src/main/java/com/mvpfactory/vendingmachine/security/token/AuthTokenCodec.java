@@ -0,0 +1,90 @@
+package com.mvpfactory.vendingmachine.security.token;
+
+import com.mvpfactory.vendingmachine.model.Role;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Encodes claims as {@code base64url(userId|role|issuedAt|expiresAt|username).base64url(HMAC-SHA256)}, issuedAt in
+ * microseconds and expiresAt in milliseconds since the epoch.
+ * Has no Spring dependencies so it can be shared by every module that needs to verify tokens. Initialised
+ * {@link Mac} instances are pooled and handed back after each signature instead of being kept per thread.
+ */
+public class AuthTokenCodec {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec key;
+    private final Queue<Mac> macPool = new ConcurrentLinkedQueue<>();
+
+    public AuthTokenCodec(byte[] secret) {
+        this.key = new SecretKeySpec(secret, ALGORITHM);
+        macPool.offer(newMac());
+    }
+
+    public String encode(AuthTokenClaims claims) {
+        String payload = String.join("|",
+                claims.getUserId().toString(),
+                claims.getRole().name(),
+                Long.toString(claims.getIssuedAt()),
+                Long.toString(claims.getExpiresAt()),
+                claims.getUsername());
+        byte[] payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+        return ENCODER.encodeToString(payloadBytes) + "." + ENCODER.encodeToString(sign(payloadBytes));
+    }
+
+    /**
+     * Returns the claims when the signature matches, regardless of expiry. Signatures are compared in constant time.
+     */
+    public Optional<AuthTokenClaims> decode(String token) {
+        int separator = token.indexOf('.');
+        if(separator <= 0) {
+            return Optional.empty();
+        }
+        try {
+            byte[] payloadBytes = DECODER.decode(token.substring(0, separator));
+            byte[] signature = DECODER.decode(token.substring(separator + 1));
+            if(!MessageDigest.isEqual(sign(payloadBytes), signature)) {
+                return Optional.empty();
+            }
+            String[] parts = new String(payloadBytes, StandardCharsets.UTF_8).split("\\|", 5);
+            return Optional.of(new AuthTokenClaims(UUID.fromString(parts[0]), parts[4], Role.valueOf(parts[1]),
+                    Long.parseLong(parts[2]), Long.parseLong(parts[3])));
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException ex) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * {@code doFinal} resets the instance, so it goes back to the pool ready for the next payload.
+     */
+    private byte[] sign(byte[] payload) {
+        Mac mac = Optional.ofNullable(macPool.poll()).orElseGet(this::newMac);
+        try {
+            return mac.doFinal(payload);
+        } finally {
+            macPool.offer(mac);
+        }
+    }
+
+    private Mac newMac() {
+        try {
+            Mac instance = Mac.getInstance(ALGORITHM);
+            instance.init(key);
+            return instance;
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("Cannot initialise token signature", ex);
+        }
+    }
+}
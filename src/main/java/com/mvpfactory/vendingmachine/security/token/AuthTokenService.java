@@ -0,0 +1,105 @@
+package com.mvpfactory.vendingmachine.security.token;
+
+import com.mvpfactory.vendingmachine.security.model.AuthUserDetails;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Issues and verifies short-lived signed tokens. Revocation keeps one stamp per user: every token
+ * of that user issued before it is rejected. Issue and revocation stamps are microseconds taken from
+ * one strictly increasing counter, so a login right after a logout on this instance is never mistaken
+ * for an older token. Revocations are queued in stamp order and dropped from the head once they are
+ * older than the token lifetime, since they can no longer match a live token.
+ */
+@Slf4j
+@Service
+public class AuthTokenService {
+
+    private final AuthTokenCodec codec;
+    private final long ttlMillis;
+    private final Clock clock;
+    private final Map<UUID, Long> revokedBefore = new ConcurrentHashMap<>();
+    private final Queue<Revocation> revocations = new ConcurrentLinkedQueue<>();
+    private final AtomicLong lastStamp = new AtomicLong();
+
+    @Autowired
+    public AuthTokenService(@Value("${auth_token_secret:}") String secret,
+                            @Value("${auth_token_ttl_seconds:900}") long ttlSeconds) {
+        this(secret, ttlSeconds, Clock.systemUTC());
+    }
+
+    AuthTokenService(String secret, long ttlSeconds, Clock clock) {
+        this.codec = new AuthTokenCodec(secret.isBlank() ? randomSecret() : secret.getBytes(StandardCharsets.UTF_8));
+        this.ttlMillis = ttlSeconds * 1000;
+        this.clock = clock;
+    }
+
+    public String issue(AuthUserDetails user) {
+        long issuedAt = nextStamp();
+        return codec.encode(new AuthTokenClaims(user.getId(), user.getUsername(), user.getRole(), issuedAt,
+                issuedAt / 1000 + ttlMillis));
+    }
+
+    public long getTtlSeconds() {
+        return ttlMillis / 1000;
+    }
+
+    public Optional<AuthUserDetails> authenticate(String token) {
+        long now = clock.instant().toEpochMilli();
+        return codec.decode(token)
+                .filter(claims -> claims.getExpiresAt() > now)
+                .filter(claims -> claims.getIssuedAt() > revokedBefore.getOrDefault(claims.getUserId(), Long.MIN_VALUE))
+                .map(claims -> new AuthUserDetails(claims.getUserId(), claims.getUsername(), claims.getRole()));
+    }
+
+    public void revoke(UUID userId) {
+        long revokedAt = nextStamp();
+        revokedBefore.put(userId, revokedAt);
+        revocations.offer(new Revocation(userId, revokedAt));
+        long expired = revokedAt - ttlMillis * 1000;
+        Revocation oldest;
+        while((oldest = revocations.peek()) != null && oldest.revokedAt < expired && revocations.remove(oldest)) {
+            // a later revocation of the same user replaced the value and stays
+            revokedBefore.remove(oldest.userId, oldest.revokedAt);
+        }
+    }
+
+    int revocationCount() {
+        return revokedBefore.size();
+    }
+
+    private long nextStamp() {
+        long micros = ChronoUnit.MICROS.between(Instant.EPOCH, clock.instant());
+        return lastStamp.updateAndGet(last -> Math.max(last + 1, micros));
+    }
+
+    private static byte[] randomSecret() {
+        log.warn("auth_token_secret is not set, using a random key: tokens are only valid on this instance until restart");
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        return secret;
+    }
+
+    @AllArgsConstructor
+    private static class Revocation {
+
+        private final UUID userId;
+        private final long revokedAt;
+    }
+}
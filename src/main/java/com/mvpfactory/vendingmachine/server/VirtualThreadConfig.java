@@ -0,0 +1,49 @@
+package com.mvpfactory.vendingmachine.server;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Opt-in with {@code virtual_threads_enabled: true}: Tomcat hands every request, and so every blocking JDBC and
+ * BCrypt call it makes, to its own virtual thread. Requires a JDK 21 runtime.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "virtual_threads_enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService requestExecutor() {
+        ExecutorService executor = VirtualThreads.newPerTaskExecutor()
+                .orElseThrow(() -> new IllegalStateException("virtual_threads_enabled requires a JDK 21 or newer runtime, running on "
+                        + System.getProperty("java.version")));
+        log.info("Serving requests on virtual threads");
+        return executor;
+    }
+
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> virtualThreadTomcatCustomizer(ExecutorService requestExecutor) {
+        return factory -> factory.addProtocolHandlerCustomizers(protocolHandler -> protocolHandler.setExecutor(requestExecutor));
+    }
+
+    @Bean
+    public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilter(
+            @Value("${virtual_threads_max_concurrency:${spring.datasource.hikari.maximum-pool-size:10}}") int maxConcurrentRequests,
+            @Value("${virtual_threads_permit_timeout_ms:30000}") long timeoutMillis) {
+        FilterRegistrationBean<ConcurrencyLimitFilter> registration =
+                new FilterRegistrationBean<>(new ConcurrencyLimitFilter(maxConcurrentRequests, timeoutMillis));
+        registration.addUrlPatterns("/api/*");
+        // ahead of Spring Security, whose Basic authentication already needs a connection to load the user
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 1);
+        return registration;
+    }
+}
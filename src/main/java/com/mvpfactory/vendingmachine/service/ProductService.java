@@ -3,25 +3,65 @@ package com.mvpfactory.vendingmachine.service;
 import com.mvpfactory.vendingmachine.error.model.*;
 import com.mvpfactory.vendingmachine.model.BuyRequest;
 import com.mvpfactory.vendingmachine.model.BuyResponse;
+import com.mvpfactory.vendingmachine.model.BuyStatus;
+import com.mvpfactory.vendingmachine.model.CartRequest;
+import com.mvpfactory.vendingmachine.model.CartResponse;
+import com.mvpfactory.vendingmachine.model.ImportResult;
+import com.mvpfactory.vendingmachine.model.KeysetPage;
 import com.mvpfactory.vendingmachine.model.Product;
+import com.mvpfactory.vendingmachine.model.ProductFilter;
+import com.mvpfactory.vendingmachine.model.RepriceRequest;
+import com.mvpfactory.vendingmachine.model.Reservation;
+import com.mvpfactory.vendingmachine.model.RestockRequest;
+import com.mvpfactory.vendingmachine.model.SalesStats;
+import com.mvpfactory.vendingmachine.model.StockLevelsRequest;
+import com.mvpfactory.vendingmachine.model.StockStripesRequest;
 
+import com.mvpfactory.vendingmachine.repository.KeysetCursor;
+import com.mvpfactory.vendingmachine.repository.NameCursor;
+import com.mvpfactory.vendingmachine.repository.ProductCatalogRepository;
 import com.mvpfactory.vendingmachine.repository.ProductRepository;
 import com.mvpfactory.vendingmachine.repository.UserRepository;
 import com.mvpfactory.vendingmachine.repository.entity.ProductEntity;
 import com.mvpfactory.vendingmachine.repository.entity.UserEntity;
 import com.mvpfactory.vendingmachine.repository.mapper.ProductMapper;
+import com.mvpfactory.vendingmachine.repository.projection.PurchaseResult;
 
+import com.mvpfactory.vendingmachine.service.bulk.ImportFormat;
+import com.mvpfactory.vendingmachine.service.bulk.ProductBulkUpdater;
+import com.mvpfactory.vendingmachine.service.bulk.ProductImporter;
+import com.mvpfactory.vendingmachine.service.catalog.CatalogVersion;
+import com.mvpfactory.vendingmachine.service.catalog.ProductSearchIndex;
+import com.mvpfactory.vendingmachine.service.change.Change;
+import com.mvpfactory.vendingmachine.service.change.ChangeCalculator;
+import com.mvpfactory.vendingmachine.service.change.CoinFloat;
+import com.mvpfactory.vendingmachine.service.engine.InventoryEngine;
+import com.mvpfactory.vendingmachine.service.engine.PurchaseFill;
+import com.mvpfactory.vendingmachine.service.history.PurchaseHistory;
+import com.mvpfactory.vendingmachine.service.ledger.Ledger;
+import com.mvpfactory.vendingmachine.service.ledger.LedgerEntry;
+import com.mvpfactory.vendingmachine.service.reservation.StockReservations;
+import com.mvpfactory.vendingmachine.service.retry.OptimisticRetry;
+import com.mvpfactory.vendingmachine.service.sales.SalesAggregator;
+import com.mvpfactory.vendingmachine.service.stock.StripeFill;
+import com.mvpfactory.vendingmachine.service.stock.StripedStock;
 import com.mvpfactory.vendingmachine.security.AuthUserService;
 import com.mvpfactory.vendingmachine.security.model.AuthUserDetails;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.InputStream;
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
@@ -30,43 +70,125 @@ import java.util.stream.Collectors;
 public class ProductService {
 
     private final ProductRepository productRepository;
+    private final ProductCatalogRepository productCatalogRepository;
     private final UserRepository userRepository;
     private final ProductMapper productMapper;
     private final AuthUserService authUserService;
-    private final List<Integer> allowedCoins;
+    private final InventoryEngine inventoryEngine;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final ChangeCalculator changeCalculator;
+    private final CoinFloat coinFloat;
+    private final Ledger ledger;
+    private final PurchaseHistory purchaseHistory;
+    private final SalesAggregator salesAggregator;
+    private final CatalogVersion catalogVersion;
+    private final ProductSearchIndex productSearchIndex;
+    private final StripedStock stripedStock;
+    private final StockReservations stockReservations;
+    private final OptimisticRetry optimisticRetry;
+    private final ProductImporter productImporter;
+    private final ProductBulkUpdater productBulkUpdater;
+    private final PurchaseMode purchaseMode;
+    private final int defaultPageSize;
+    private final int maxPageSize;
 
     @Autowired
-    public ProductService(ProductRepository productRepository, UserRepository userRepository, AuthUserService authUserService,
-                       ProductMapper productMapper, @Value("#{'${allowed_coins}'.split(',')}") List<Integer> allowedCoins) {
+    public ProductService(ProductRepository productRepository, ProductCatalogRepository productCatalogRepository, UserRepository userRepository,
+                       AuthUserService authUserService, ProductMapper productMapper, InventoryEngine inventoryEngine,
+                       TransactionTemplate transactionTemplate, ChangeCalculator changeCalculator, CoinFloat coinFloat,
+                       Ledger ledger, PurchaseHistory purchaseHistory, SalesAggregator salesAggregator,
+                       CatalogVersion catalogVersion, ProductSearchIndex productSearchIndex, StripedStock stripedStock,
+                       StockReservations stockReservations, OptimisticRetry optimisticRetry, ProductImporter productImporter,
+                       ProductBulkUpdater productBulkUpdater,
+                       @Value("${purchase_mode:STANDARD}") PurchaseMode purchaseMode,
+                       @Value("${catalog_page_size:50}") int defaultPageSize,
+                       @Value("${catalog_max_page_size:500}") int maxPageSize) {
         this.productRepository = productRepository;
+        this.productCatalogRepository = productCatalogRepository;
         this.userRepository = userRepository;
         this.authUserService = authUserService;
         this.productMapper = productMapper;
-        this.allowedCoins = allowedCoins;
+        this.inventoryEngine = inventoryEngine;
+        this.transactionTemplate = transactionTemplate;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.changeCalculator = changeCalculator;
+        this.coinFloat = coinFloat;
+        this.ledger = ledger;
+        this.purchaseHistory = purchaseHistory;
+        this.salesAggregator = salesAggregator;
+        this.catalogVersion = catalogVersion;
+        this.productSearchIndex = productSearchIndex;
+        this.stripedStock = stripedStock;
+        this.stockReservations = stockReservations;
+        this.optimisticRetry = optimisticRetry;
+        this.productImporter = productImporter;
+        this.productBulkUpdater = productBulkUpdater;
+        this.purchaseMode = purchaseMode;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
     }
 
+    @Transactional(readOnly = true)
     public Product findProduct(String productName) {
-        Optional<ProductEntity> productEntity = productRepository.findProductEntitiesByProductName(productName);
-        if(productEntity.isEmpty()) {
+        Optional<Product> product = productCatalogRepository.findByName(productName);
+        if(product.isEmpty()) {
             throw new ProductNotFoundException(String.format("Product name %s not found", productName));
         }
-        return productMapper.map(productEntity.get());
+        return withLiveStock(product.get());
     }
 
+    @Transactional(readOnly = true)
     public Product findProduct(UUID id) {
-        Optional<ProductEntity> productEntity = productRepository.findById(id);
-        if(productEntity.isEmpty()) {
+        Optional<Product> product = productCatalogRepository.findById(id);
+        if(product.isEmpty()) {
             throw new ProductNotFoundException(String.format("Product id %s not found", id));
         }
-        return productMapper.map(productEntity.get());
+        return withLiveStock(product.get());
     }
 
-    public List<Product> getAllProducts() {
-        log.info("Getting all products");
-        return productRepository.findAll()
-                .stream()
-                .map(productMapper::map)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public KeysetPage<Product> getProducts(ProductFilter filter, String cursor, Integer limit) {
+        log.info("Getting products page after cursor {}", cursor);
+        KeysetPage<Product> page = productCatalogRepository.findPage(filter, KeysetCursor.decode(cursor), pageSize(limit));
+        page.getItems().forEach(this::withLiveStock);
+        return page;
+    }
+
+    @Transactional(readOnly = true)
+    public KeysetPage<Product> getSellerProducts(UUID sellerId, String cursor, Integer limit) {
+        log.info("Getting products of seller {} after cursor {}", sellerId, cursor);
+        KeysetPage<Product> page = productCatalogRepository.findSellerPage(sellerId, NameCursor.decode(cursor), pageSize(limit));
+        page.getItems().forEach(this::withLiveStock);
+        return page;
+    }
+
+    @Transactional(readOnly = true)
+    public KeysetPage<Product> getMyProducts(String cursor, Integer limit) {
+        return getSellerProducts(authUserService.getLoggedInUser().getId(), cursor, limit);
+    }
+
+    /**
+     * Autocomplete over the in-memory name index; stock is only filled in when the inventory engine holds it.
+     */
+    public List<Product> searchProducts(String query, Integer limit) {
+        List<Product> products = productSearchIndex.search(query, pageSize(limit));
+        products.forEach(this::withLiveStock);
+        return products;
+    }
+
+    /**
+     * The page size a {@code limit} query parameter actually gets.
+     */
+    public int pageSize(Integer limit) {
+        return limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+    }
+
+    public void streamProducts(ProductFilter filter, Consumer<Product> consumer) {
+        log.info("Streaming products");
+        readOnlyTransactionTemplate.executeWithoutResult(status ->
+                productCatalogRepository.stream(filter, product -> consumer.accept(withLiveStock(product))));
     }
 
     public Product createProduct(Product product) {
@@ -78,12 +200,66 @@ public class ProductService {
         UserEntity userEntity = getUserIfExists(product.getSellerId());
 
         ProductEntity insertedProduct = productRepository.save(productMapper.mapForInsertion(product, userEntity, Timestamp.from(Instant.now())));
-        return productMapper.map(productRepository.getById(insertedProduct.getId()));
+        if(inventoryEngine.isEnabled()) {
+            inventoryEngine.putProduct(insertedProduct.getId(), insertedProduct.getAmountAvailable(), insertedProduct.getCost());
+        }
+        catalogVersion.bump();
+        Product insertedProductModel = productMapper.map(insertedProduct);
+        productSearchIndex.put(insertedProductModel);
+        return insertedProductModel;
+    }
+
+    /**
+     * Imports every row as a product of the logged-in seller, reporting each chunk's results as soon as it committed.
+     */
+    public void importProducts(InputStream input, ImportFormat format, Consumer<List<ImportResult>> report) {
+        AuthUserDetails loggedInUser = authUserService.getLoggedInUser();
+        log.info("Importing products for seller {}", loggedInUser.getUsername());
+        productImporter.importProducts(loggedInUser.getId(), input, format, report);
+    }
+
+    public List<Product> restockProducts(RestockRequest restockRequest) {
+        return productBulkUpdater.addStock(authUserService.getLoggedInUser().getId(), restockRequest.getProductIds(), restockRequest.getAmount());
+    }
+
+    public List<Product> setProductStock(StockLevelsRequest stockLevelsRequest) {
+        return productBulkUpdater.setStock(authUserService.getLoggedInUser().getId(), stockLevelsRequest.getItems());
+    }
+
+    public List<Product> repriceProducts(RepriceRequest repriceRequest) {
+        return productBulkUpdater.reprice(authUserService.getLoggedInUser().getId(), repriceRequest);
     }
 
     public Product updateProduct(Product product) {
+        return updateProduct(product, null);
+    }
+
+    /**
+     * With an expected version (If-Match) any change since then fails the update. Without one a lost version race
+     * is retried on a fresh read, taking the units sold since the first read off the requested stock so concurrent
+     * buys are not undone.
+     */
+    public Product updateProduct(Product product, Long expectedVersion) {
+        if(expectedVersion != null) {
+            try {
+                return applyProductUpdate(product, expectedVersion, new AtomicReference<>());
+            } catch (OptimisticLockingFailureException ex) {
+                throw new PreconditionFailedException(String.format("Product id %s changed since version %d", product.getId(), expectedVersion));
+            }
+        }
+        AtomicReference<Integer> firstSeenStock = new AtomicReference<>();
+        return optimisticRetry.run(String.format("Product id %s", product.getId()),
+                () -> applyProductUpdate(product, null, firstSeenStock));
+    }
+
+    private Product applyProductUpdate(Product product, Long expectedVersion, AtomicReference<Integer> firstSeenStock) {
         ProductEntity existingProductEntity = getProductIfExistsAndIfItBelongsToTheLoggedInUser(product.getId());
+        if(expectedVersion != null && !expectedVersion.equals(existingProductEntity.getVersion())) {
+            throw new PreconditionFailedException(String.format("Product id %s changed since version %d", product.getId(), expectedVersion));
+        }
         checkIfProductCostIsValid(product.getCost());
+        firstSeenStock.compareAndSet(null, existingProductEntity.getAmountAvailable());
+        int stock = Math.max(0, product.getAmountAvailable() - (firstSeenStock.get() - existingProductEntity.getAmountAvailable()));
 
         UserEntity userEntity = getUserIfExists(product.getSellerId());
         if(!userEntity.getId().equals(product.getSellerId())) {
@@ -92,25 +268,198 @@ public class ProductService {
         ProductEntity updatedProductEntity = productMapper.mapForUpdate(product, userEntity, Timestamp.from(Instant.now()));
         updatedProductEntity.setId(existingProductEntity.getId());
         updatedProductEntity.setInsertedDate(existingProductEntity.getInsertedDate());
-        ProductEntity insertedProduct = productRepository.save(updatedProductEntity);
-        return productMapper.map(productRepository.getById(insertedProduct.getId()));
+        updatedProductEntity.setVersion(existingProductEntity.getVersion());
+        updatedProductEntity.setAmountAvailable(stock);
+        ProductEntity insertedProduct = purchaseMode == PurchaseMode.IN_MEMORY
+                ? productRepository.save(updatedProductEntity)
+                : transactionTemplate.execute(status -> saveRestriped(updatedProductEntity));
+        if(inventoryEngine.isEnabled()) {
+            inventoryEngine.putProduct(insertedProduct.getId(), insertedProduct.getAmountAvailable(), insertedProduct.getCost());
+        }
+        catalogVersion.bump();
+        Product insertedProductModel = productMapper.map(insertedProduct);
+        insertedProductModel.setAmountAvailable(stock);
+        productSearchIndex.put(insertedProductModel);
+        return insertedProductModel;
+    }
+
+    /**
+     * A striped product keeps its stripe count and gets the new stock spread over them.
+     */
+    private ProductEntity saveRestriped(ProductEntity productEntity) {
+        int stripes = stripedStock.stripesOf(productEntity.getId());
+        if(stripes > 0) {
+            stripedStock.drain(productEntity.getId());
+            stripedStock.distribute(productEntity.getId(), stripes, productEntity.getAmountAvailable());
+            productEntity.setAmountAvailable(0);
+        }
+        return productRepository.save(productEntity);
+    }
+
+    /**
+     * Splits the stock of a product over {@code stripes} rows, or folds it back into the product row for one stripe.
+     * Only used by the database backed purchase modes, the in-memory engine has no row locks to spread.
+     */
+    public Product setStockStripes(UUID id, StockStripesRequest request) {
+        if(purchaseMode == PurchaseMode.IN_MEMORY) {
+            throw new OperationNotAllowedException("Striped stock is not used in IN_MEMORY purchase mode");
+        }
+        getProductIfExistsAndIfItBelongsToTheLoggedInUser(id);
+        Product product = transactionTemplate.execute(status -> {
+            ProductEntity productEntity = productRepository.findAllByIdForUpdate(List.of(id)).stream().findFirst()
+                    .orElseThrow(() -> new ProductNotFoundException(String.format("Product id %s not found", id)));
+            int stock = productEntity.getAmountAvailable() + stripedStock.drain(id);
+            if(request.getStripes() > 1) {
+                stripedStock.distribute(id, request.getStripes(), stock);
+                productEntity.setAmountAvailable(0);
+            } else {
+                productEntity.setAmountAvailable(stock);
+            }
+            Product model = productMapper.map(productEntity);
+            model.setAmountAvailable(stock);
+            return model;
+        });
+        log.info("Product {} stock split over {} stripes", id, request.getStripes());
+        catalogVersion.bump();
+        return product;
     }
 
     public void deleteProduct(UUID id) {
         getProductIfExistsAndIfItBelongsToTheLoggedInUser(id);
         productRepository.deleteById(id);
+        if(inventoryEngine.isEnabled()) {
+            inventoryEngine.removeProduct(id);
+        }
+        productSearchIndex.remove(id);
+        catalogVersion.bump();
     }
 
+    /**
+     * Units held by reservations are not sold: every purchase path guards its stock decrement with the units held,
+     * which cannot grow until it committed, so the request is capped to the unreserved stock and rejected when nothing
+     * else is left.
+     */
     public BuyResponse buy(BuyRequest buyRequest) {
+        AuthUserDetails loggedInUser = authUserService.getLoggedInUser();
+        return purchase(loggedInUser, buyRequest, purchaseMode, 0);
+    }
 
-        ProductEntity productEntity = checkIfProductExists(buyRequest.getProductId());
+    public Reservation reserve(BuyRequest buyRequest) {
+        AuthUserDetails loggedInUser = authUserService.getLoggedInUser();
+        return stockReservations.hold(loggedInUser.getId(), buyRequest.getProductId(), buyRequest.getAmount(),
+                () -> grossStockOf(buyRequest.getProductId()));
+    }
 
+    /**
+     * Buys the held units with a single write: the conditional purchase statement, or the engine in IN_MEMORY mode.
+     * The units stay reserved until the purchase finished, so no other buyer takes them in between.
+     */
+    public BuyResponse confirmReservation(UUID reservationId) {
         AuthUserDetails loggedInUser = authUserService.getLoggedInUser();
-        UserEntity userEntity = userRepository.findUserEntityByUsername(loggedInUser.getUsername()).get();
+        Reservation reservation = stockReservations.claim(reservationId, loggedInUser.getId());
+        try {
+            return purchase(loggedInUser, new BuyRequest(reservation.getProductId(), reservation.getAmount()),
+                    purchaseMode == PurchaseMode.STANDARD ? PurchaseMode.CONDITIONAL : purchaseMode, reservation.getAmount());
+        } finally {
+            stockReservations.settle(reservation);
+        }
+    }
+
+    public void releaseReservation(UUID reservationId) {
+        stockReservations.release(reservationId, authUserService.getLoggedInUser().getId());
+    }
+
+    /**
+     * The purchase is handed to the history pipeline and the sales counters only after its transaction committed.
+     * {@code ownHeld} units of the reserved ones belong to the purchase itself and may be taken.
+     */
+    private BuyResponse purchase(AuthUserDetails loggedInUser, BuyRequest buyRequest, PurchaseMode mode, int ownHeld) {
+        BuyResponse buyResponse = stockReservations.whileHoldsStable(List.of(buyRequest.getProductId()), () ->
+                purchaseUnreserved(loggedInUser, buyRequest, mode,
+                        Math.max(0, stockReservations.reservedOf(buyRequest.getProductId()) - ownHeld)));
+        if(buyResponse.getNumberOfProducts() > 0) {
+            catalogVersion.bump();
+        }
+        purchaseHistory.record(loggedInUser.getId(), buyResponse);
+        salesAggregator.record(buyResponse.getProductId(), buyResponse.getNumberOfProducts(), buyResponse.getTotalSpent());
+        return buyResponse;
+    }
+
+    private BuyResponse purchaseUnreserved(AuthUserDetails loggedInUser, BuyRequest buyRequest, PurchaseMode mode, int reserved) {
+        switch (mode) {
+            case IN_MEMORY:
+                return inMemoryBuy(loggedInUser, buyRequest, reserved);
+            case CONDITIONAL:
+                return transactionTemplate.execute(status -> conditionalBuy(loggedInUser, buyRequest, reserved));
+            default:
+                return transactionTemplate.execute(status -> standardBuy(loggedInUser, buyRequest, reserved));
+        }
+    }
+
+    private BuyResponse inMemoryBuy(AuthUserDetails loggedInUser, BuyRequest buyRequest, int reserved) {
+        PurchaseFill fill = inventoryEngine.buy(loggedInUser.getId(), buyRequest.getProductId(), buyRequest.getAmount(), reserved);
+        rejectIfAllReserved(buyRequest.getProductId(), fill.getQuantity(), fill.getAmountAvailable(), reserved);
+        ledger.record(LedgerEntry.purchase(loggedInUser.getId(), buyRequest.getProductId(), fill.getQuantity(), fill.getCost()));
+
+        return BuyResponse.builder()
+                .productId(buyRequest.getProductId())
+                .totalSpent(fill.getQuantity() * fill.getCost())
+                .numberOfProducts(fill.getQuantity())
+                .change(changeCalculator.change(fill.getDeposit()))
+                .status(BuyStatus.of(buyRequest.getAmount(), fill.getQuantity(), unreserved(fill.getAmountAvailable(), reserved)))
+                .build();
+    }
+
+    /**
+     * The purchase statement skips striped products without locking their row, which the stripes exist to keep cold,
+     * so no row back means the product is striped or gone. Only then are the stripes tried, with the buyer locked
+     * first like on every other path; the common case stays a single statement. Runs in the caller's transaction so
+     * the ledger entry commits with the purchase.
+     */
+    private BuyResponse conditionalBuy(AuthUserDetails loggedInUser, BuyRequest buyRequest, int reserved) {
+        Optional<PurchaseResult> purchased = productRepository.purchase(loggedInUser.getUsername(), buyRequest.getProductId(), buyRequest.getAmount(), reserved);
+        if(purchased.isEmpty()) {
+            int cost = checkIfProductExists(buyRequest.getProductId()).getCost();
+            BuyResponse stripedResponse = stripedBuy(lockUser(loggedInUser.getId()), buyRequest, cost, reserved);
+            if(stripedResponse == null) {
+                throw new PurchaseConflictException(String.format("Product id %s was unstriped while buying it, please retry", buyRequest.getProductId()));
+            }
+            return stripedResponse;
+        }
+        PurchaseResult result = purchased.get();
+        rejectIfAllReserved(buyRequest.getProductId(), result.getQuantity(), result.getAmountAvailable(), reserved);
+        ledger.record(LedgerEntry.purchase(loggedInUser.getId(), buyRequest.getProductId(), result.getQuantity(), result.getCost()));
+
+        return BuyResponse.builder()
+                .productId(buyRequest.getProductId())
+                .totalSpent(result.getQuantity() * result.getCost())
+                .numberOfProducts(result.getQuantity())
+                .change(settleChange(loggedInUser.getId(), result.getDeposit()))
+                .status(BuyStatus.of(buyRequest.getAmount(), result.getQuantity(), unreserved(result.getAmountAvailable(), reserved)))
+                .build();
+    }
+
+    /**
+     * The buyer row is locked first, like on every purchase path, so the deposit the change is worked out from
+     * cannot move before commit.
+     */
+    private BuyResponse standardBuy(AuthUserDetails loggedInUser, BuyRequest buyRequest, int reserved) {
+
+        UserEntity userEntity = lockUser(loggedInUser.getId());
 
-        Integer amountToBuy = buyRequest.getAmount() > productEntity.getAmountAvailable() ? productEntity.getAmountAvailable() : buyRequest.getAmount();
+        ProductEntity productEntity = checkIfProductExists(buyRequest.getProductId());
+
+        if(productEntity.getAmountAvailable() == 0) {
+            BuyResponse stripedResponse = stripedBuy(userEntity, buyRequest, productEntity.getCost(), reserved);
+            if(stripedResponse != null) {
+                return stripedResponse;
+            }
+        }
+        rejectIfAllReserved(productEntity.getId(), 0, productEntity.getAmountAvailable(), reserved);
+
+        int available = unreserved(productEntity.getAmountAvailable(), reserved);
+        Integer amountToBuy = buyRequest.getAmount() > available ? available : buyRequest.getAmount();
         Integer orderCost = amountToBuy * productEntity.getCost();
-        BuyResponse buyResponse = new BuyResponse();
 
         if(userEntity.getDeposit() < orderCost) {
             amountToBuy = userEntity.getDeposit() / productEntity.getCost();
@@ -118,30 +467,204 @@ public class ProductService {
 
         }
 
-        userRepository.decrementDepositBy(userEntity.getId(), orderCost);
-        productRepository.decrementAmountBy(productEntity.getId(), amountToBuy);
+        if(amountToBuy > 0 && (userRepository.decrementDepositBy(userEntity.getId(), orderCost) == 0
+                || productRepository.decrementAmountBy(productEntity.getId(), amountToBuy, reserved) == 0)) {
+            throw new PurchaseConflictException(String.format("Stock or deposit changed while buying product id %s, please retry", productEntity.getId()));
+        }
+        ledger.record(LedgerEntry.purchase(userEntity.getId(), productEntity.getId(), amountToBuy, productEntity.getCost()));
 
         return BuyResponse.builder()
                 .productId(buyRequest.getProductId())
                 .totalSpent(orderCost)
                 .numberOfProducts(amountToBuy)
-                .change(calculateChange(userEntity.getDeposit() - orderCost))
+                .change(settleChange(userEntity.getId(), userEntity.getDeposit() - orderCost))
+                .status(BuyStatus.of(buyRequest.getAmount(), amountToBuy, available))
+                .build();
+    }
+
+    /**
+     * Takes the units from the product's stripes instead of its row, then charges the deposit for what was taken.
+     * The buyer must already be locked. Returns {@code null} when the product is not striped.
+     */
+    private BuyResponse stripedBuy(UserEntity userEntity, BuyRequest buyRequest, int cost, int reserved) {
+        int affordable = cost == 0 ? buyRequest.getAmount() : userEntity.getDeposit() / cost;
+        StripeFill fill = stripedStock.take(buyRequest.getProductId(), Math.min(buyRequest.getAmount(), affordable), reserved);
+        if(fill == null) {
+            return null;
+        }
+        rejectIfAllReserved(buyRequest.getProductId(), fill.getQuantity(), fill.getAmountAvailable(), reserved);
+        int orderCost = fill.getQuantity() * cost;
+        if(orderCost > 0 && userRepository.decrementDepositBy(userEntity.getId(), orderCost) == 0) {
+            throw new PurchaseConflictException(String.format("Deposit changed while buying product id %s, please retry", buyRequest.getProductId()));
+        }
+        ledger.record(LedgerEntry.purchase(userEntity.getId(), buyRequest.getProductId(), fill.getQuantity(), cost));
+
+        return BuyResponse.builder()
+                .productId(buyRequest.getProductId())
+                .totalSpent(orderCost)
+                .numberOfProducts(fill.getQuantity())
+                .change(settleChange(userEntity.getId(), userEntity.getDeposit() - orderCost))
+                .status(BuyStatus.of(buyRequest.getAmount(), fill.getQuantity(), unreserved(fill.getAmountAvailable(), reserved)))
                 .build();
     }
 
-    private List<Integer> calculateChange(Integer amount) {
-        List<Integer> change = new ArrayList<>();
-        allowedCoins.sort(Collections.reverseOrder());
-        for (Integer coin : allowedCoins) {
-            if (amount >= coin) {
-                int numberOfCoins = amount / coin;
-                for(int index = 0; index < numberOfCoins; index++) {
-                    change.add(coin);
-                }
-                amount %= coin;
+    /**
+     * Buys every cart line in order against one deposit. Products and buyer are loaded with a single
+     * locking query each and all decrements are flushed together as batched updates on commit. Like single buys,
+     * each line only takes units not held by reservations, and no new hold is taken on the cart's products until it
+     * committed.
+     */
+    public CartResponse buyCart(CartRequest cartRequest) {
+        AuthUserDetails loggedInUser = authUserService.getLoggedInUser();
+        Set<UUID> productIds = cartRequest.getItems().stream().map(BuyRequest::getProductId).collect(Collectors.toSet());
+        CartResponse cartResponse = stockReservations.whileHoldsStable(productIds, () -> purchaseMode == PurchaseMode.IN_MEMORY
+                ? inMemoryBuyCart(loggedInUser, cartRequest)
+                : transactionTemplate.execute(status -> standardBuyCart(loggedInUser, cartRequest, productIds)));
+        if(cartResponse.getItems().stream().anyMatch(line -> line.getNumberOfProducts() > 0)) {
+            catalogVersion.bump();
+        }
+        cartResponse.getItems().forEach(line -> {
+            purchaseHistory.record(loggedInUser.getId(), line);
+            salesAggregator.record(line.getProductId(), line.getNumberOfProducts(), line.getTotalSpent());
+        });
+        return cartResponse;
+    }
+
+    private CartResponse inMemoryBuyCart(AuthUserDetails loggedInUser, CartRequest cartRequest) {
+        List<BuyResponse> lines = new ArrayList<>(cartRequest.getItems().size());
+        List<LedgerEntry> entries = new ArrayList<>(cartRequest.getItems().size());
+        int totalSpent = 0;
+        int deposit = inventoryEngine.depositOf(loggedInUser.getId());
+        for(BuyRequest item : cartRequest.getItems()) {
+            int reserved = stockReservations.reservedOf(item.getProductId());
+            PurchaseFill fill = inventoryEngine.buy(loggedInUser.getId(), item.getProductId(), item.getAmount(), reserved);
+            lines.add(buildCartLine(item, fill.getQuantity(), fill.getCost(), unreserved(fill.getAmountAvailable(), reserved)));
+            entries.add(LedgerEntry.purchase(loggedInUser.getId(), item.getProductId(), fill.getQuantity(), fill.getCost()));
+            totalSpent += fill.getQuantity() * fill.getCost();
+            deposit = fill.getDeposit();
+        }
+        ledger.record(entries);
+        return buildCartResponse(totalSpent, lines, changeCalculator.change(deposit));
+    }
+
+    private CartResponse standardBuyCart(AuthUserDetails loggedInUser, CartRequest cartRequest, Set<UUID> productIds) {
+        UserEntity userEntity = lockUser(loggedInUser.getId());
+        Map<UUID, ProductEntity> products = productRepository.findAllByIdForUpdate(productIds)
+                .stream()
+                .collect(Collectors.toMap(ProductEntity::getId, productEntity -> productEntity));
+
+        List<BuyResponse> lines = new ArrayList<>(cartRequest.getItems().size());
+        List<LedgerEntry> entries = new ArrayList<>(cartRequest.getItems().size());
+        int totalSpent = 0;
+        int deposit = userEntity.getDeposit();
+        for(BuyRequest item : cartRequest.getItems()) {
+            ProductEntity productEntity = products.get(item.getProductId());
+            if(productEntity == null) {
+                throw new ProductNotFoundException(String.format("Product id %s not found", item.getProductId()));
             }
+            int stock = productEntity.getAmountAvailable();
+            int reserved = stockReservations.reservedOf(item.getProductId());
+            int available = unreserved(stock, reserved);
+            int cost = productEntity.getCost();
+            int affordable = cost == 0 ? item.getAmount() : deposit / cost;
+            int quantity = Math.min(item.getAmount(), Math.min(available, affordable));
+
+            StripeFill stripeFill = stock == 0 ? stripedStock.take(item.getProductId(), Math.min(item.getAmount(), affordable), reserved) : null;
+            if(stripeFill != null) {
+                quantity = stripeFill.getQuantity();
+                available = unreserved(stripeFill.getAmountAvailable(), reserved);
+            } else {
+                productEntity.setAmountAvailable(stock - quantity);
+            }
+            deposit -= quantity * cost;
+            totalSpent += quantity * cost;
+            lines.add(buildCartLine(item, quantity, cost, available));
+            entries.add(LedgerEntry.purchase(userEntity.getId(), item.getProductId(), quantity, cost));
+        }
+        ledger.record(entries);
+        if(coinFloat.isEnabled()) {
+            Change change = coinFloat.dispense(userEntity.getId(), deposit);
+            userEntity.setDeposit(change.getRemainder());
+            return buildCartResponse(totalSpent, lines, change.getCoins());
+        }
+        userEntity.setDeposit(deposit);
+        return buildCartResponse(totalSpent, lines, changeCalculator.change(deposit));
+    }
+
+    private BuyResponse buildCartLine(BuyRequest item, int quantity, int cost, int available) {
+        return BuyResponse.builder()
+                .productId(item.getProductId())
+                .totalSpent(quantity * cost)
+                .numberOfProducts(quantity)
+                .status(BuyStatus.of(item.getAmount(), quantity, available))
+                .build();
+    }
+
+    private CartResponse buildCartResponse(int totalSpent, List<BuyResponse> lines, Map<Integer, Integer> change) {
+        return CartResponse.builder()
+                .totalSpent(totalSpent)
+                .items(lines)
+                .change(change)
+                .build();
+    }
+
+    private static int unreserved(int stock, int reserved) {
+        return Math.max(0, stock - reserved);
+    }
+
+    /**
+     * Nothing was bought although the product has stock: all of it is held by reservations. Runs before any write.
+     */
+    private static void rejectIfAllReserved(UUID productId, int bought, int stock, int reserved) {
+        if(bought == 0 && reserved > 0 && stock > 0 && stock <= reserved) {
+            throw new InsufficientStockException(String.format("The remaining stock of product id %s is reserved", productId));
+        }
+    }
+
+    /**
+     * Without a coin float the change is only reported and the deposit is kept for further purchases;
+     * with one, the change is paid out and only the undispensable remainder stays on the deposit.
+     */
+    private Map<Integer, Integer> settleChange(UUID userId, int deposit) {
+        if(coinFloat.isEnabled()) {
+            return coinFloat.settle(userId, deposit).getCoins();
+        }
+        return changeCalculator.change(deposit);
+    }
+
+    /**
+     * Stock comes from the engine in IN_MEMORY mode, otherwise the catalog read already summed the stripes in; units
+     * held by reservations are not on offer.
+     */
+    private Product withLiveStock(Product product) {
+        withGrossStock(product);
+        int held = stockReservations.reservedOf(product.getId());
+        if(held > 0 && product.getAmountAvailable() != null) {
+            product.setAmountAvailable(Math.max(0, product.getAmountAvailable() - held));
+        }
+        return product;
+    }
+
+    private Product withGrossStock(Product product) {
+        if(inventoryEngine.isEnabled()) {
+            Optional.ofNullable(inventoryEngine.stockOf(product.getId())).ifPresent(product::setAmountAvailable);
         }
-        return change;
+        return product;
+    }
+
+    private int grossStockOf(UUID productId) {
+        Product product = productCatalogRepository.findById(productId)
+                .orElseThrow(() -> new ProductNotFoundException(String.format("Product id %s not found", productId)));
+        return withGrossStock(product).getAmountAvailable();
+    }
+
+    public SalesStats getProductStats(UUID productId) {
+        ProductEntity productEntity = getProductIfExistsAndIfItBelongsToTheLoggedInUser(productId);
+        return salesAggregator.productStats(productEntity.getId(), productEntity.getSeller().getId());
+    }
+
+    public SalesStats getSellerStats() {
+        return salesAggregator.sellerStats(authUserService.getLoggedInUser().getId());
     }
 
     private ProductEntity checkIfProductExists(UUID productId) {
@@ -162,6 +685,11 @@ public class ProductService {
         return productEntity;
     }
 
+    private UserEntity lockUser(UUID userId) {
+        return userRepository.findByIdForUpdate(userId)
+                .orElseThrow(() -> new UserNotFoundException(String.format("User id %s not found", userId)));
+    }
+
     private UserEntity getUserIfExists(UUID userId) {
         Optional<UserEntity> userEntity = userRepository.findById(userId);
         if(userEntity.isEmpty()) {
@@ -0,0 +1,17 @@
+package com.mvpfactory.vendingmachine.service;
+
+public enum PurchaseMode {
+    /**
+     * Reads product and buyer, then applies two guarded decrements in one transaction. Works on every database.
+     */
+    STANDARD,
+    /**
+     * Checks stock and deposit, decrements both and returns the new deposit in a single PostgreSQL statement.
+     */
+    CONDITIONAL,
+    /**
+     * Buys and deposits are applied to {@link com.mvpfactory.vendingmachine.service.engine.InventoryEngine}
+     * and persisted asynchronously by its write-behind flusher.
+     */
+    IN_MEMORY
+}
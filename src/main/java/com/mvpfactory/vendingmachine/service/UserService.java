@@ -2,11 +2,23 @@ package com.mvpfactory.vendingmachine.service;
 
 import com.mvpfactory.vendingmachine.error.model.*;
 import com.mvpfactory.vendingmachine.model.DepositRequest;
+import com.mvpfactory.vendingmachine.model.KeysetPage;
+import com.mvpfactory.vendingmachine.model.Purchase;
+import com.mvpfactory.vendingmachine.model.Role;
 
 import com.mvpfactory.vendingmachine.repository.entity.UserEntity;
 import com.mvpfactory.vendingmachine.repository.mapper.UserMapper;
 import com.mvpfactory.vendingmachine.model.User;
+import com.mvpfactory.vendingmachine.repository.KeysetCursor;
+import com.mvpfactory.vendingmachine.repository.PurchaseHistoryRepository;
+import com.mvpfactory.vendingmachine.repository.UserListingRepository;
 import com.mvpfactory.vendingmachine.repository.UserRepository;
+import com.mvpfactory.vendingmachine.service.change.ChangeCalculator;
+import com.mvpfactory.vendingmachine.service.change.CoinFloat;
+import com.mvpfactory.vendingmachine.service.engine.InventoryEngine;
+import com.mvpfactory.vendingmachine.service.ledger.Ledger;
+import com.mvpfactory.vendingmachine.service.ledger.LedgerEntry;
+import com.mvpfactory.vendingmachine.service.retry.OptimisticRetry;
 import com.mvpfactory.vendingmachine.security.AuthUserService;
 import com.mvpfactory.vendingmachine.security.model.AuthUserDetails;
 
@@ -14,14 +26,17 @@ import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.sql.Timestamp;
 import java.time.Instant;
-import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,19 +44,45 @@ import java.util.stream.Collectors;
 public class UserService {
 
     private final UserRepository userRepository;
+    private final UserListingRepository userListingRepository;
+    private final PurchaseHistoryRepository purchaseHistoryRepository;
     private final AuthUserService authUserService;
     private final UserMapper userMapper;
-    private final List<Integer> allowedCoins;
+    private final InventoryEngine inventoryEngine;
+    private final ChangeCalculator changeCalculator;
+    private final CoinFloat coinFloat;
+    private final Ledger ledger;
+    private final TransactionTemplate transactionTemplate;
+    private final OptimisticRetry optimisticRetry;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final int defaultPageSize;
+    private final int maxPageSize;
 
     @Autowired
-    public UserService(UserRepository userRepository, AuthUserService authUserService, UserMapper userMapper,
-                       @Value("#{'${allowed_coins}'.split(',')}") List<Integer> allowedCoins) {
+    public UserService(UserRepository userRepository, UserListingRepository userListingRepository,
+                       PurchaseHistoryRepository purchaseHistoryRepository, AuthUserService authUserService,
+                       UserMapper userMapper, InventoryEngine inventoryEngine, ChangeCalculator changeCalculator, CoinFloat coinFloat,
+                       Ledger ledger, TransactionTemplate transactionTemplate, OptimisticRetry optimisticRetry,
+                       @Value("${user_page_size:50}") int defaultPageSize,
+                       @Value("${user_max_page_size:500}") int maxPageSize) {
         this.userRepository = userRepository;
+        this.userListingRepository = userListingRepository;
+        this.purchaseHistoryRepository = purchaseHistoryRepository;
         this.authUserService = authUserService;
         this.userMapper = userMapper;
-        this.allowedCoins = allowedCoins;
+        this.inventoryEngine = inventoryEngine;
+        this.changeCalculator = changeCalculator;
+        this.coinFloat = coinFloat;
+        this.ledger = ledger;
+        this.transactionTemplate = transactionTemplate;
+        this.optimisticRetry = optimisticRetry;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
     }
 
+    @Transactional(readOnly = true)
     public UUID findUserId(String username) {
         Optional<UserEntity> userEntity = userRepository.findUserEntityByUsername(username);
         if(userEntity.isEmpty()) {
@@ -50,42 +91,76 @@ public class UserService {
         return userEntity.get().getId();
     }
 
+    @Transactional(readOnly = true)
     public User findUser(UUID id) {
         Optional<UserEntity> userEntity = userRepository.findById(id);
         if(userEntity.isEmpty()) {
             throw new UserNotFoundException(String.format("User id %s not found", id));
         }
-        return userMapper.map(userEntity.get());
+        return withLiveDeposit(userEntity.get());
     }
 
+    @Transactional(readOnly = true)
     public User findUser(String username) {
         Optional<UserEntity> userEntity = userRepository.findUserEntityByUsername(username);
         if(userEntity.isEmpty()) {
             throw new UserNotFoundException(String.format("Username %s not found", username));
         }
-        return userMapper.map(userEntity.get());
+        return withLiveDeposit(userEntity.get());
     }
 
     public User updateUser(User user) {
+        return updateUser(user, null);
+    }
+
+    /**
+     * With an expected version (If-Match) any change since then fails the update, otherwise a lost version race is
+     * retried on a fresh read. Either way a deposit made in between is never overwritten.
+     */
+    public User updateUser(User user, Long expectedVersion) {
 
         AuthUserDetails loggedInUser = authUserService.getLoggedInUser();
         log.info("Trying to update user {}", loggedInUser.getUsername());
 
+        if(expectedVersion != null) {
+            try {
+                return applyUserUpdate(loggedInUser, user, expectedVersion);
+            } catch (OptimisticLockingFailureException ex) {
+                throw new PreconditionFailedException(String.format("User %s changed since version %d", loggedInUser.getUsername(), expectedVersion));
+            }
+        }
+        return optimisticRetry.run(String.format("User %s", loggedInUser.getUsername()), () -> applyUserUpdate(loggedInUser, user, null));
+    }
+
+    private User applyUserUpdate(AuthUserDetails loggedInUser, User user, Long expectedVersion) {
         UserEntity existingUser = userRepository.findUserEntityByUsername(loggedInUser.getUsername()).get();
-        if(user.getDeposit() == null || !user.getDeposit().equals(existingUser.getDeposit())) {
+        if(expectedVersion != null && !expectedVersion.equals(existingUser.getVersion())) {
+            throw new PreconditionFailedException(String.format("User %s changed since version %d", loggedInUser.getUsername(), expectedVersion));
+        }
+        Integer existingDeposit = inventoryEngine.isEnabled() ? inventoryEngine.depositOf(existingUser.getId()) : existingUser.getDeposit();
+        if(user.getDeposit() == null || !user.getDeposit().equals(existingDeposit)) {
             throw new UserDetailsException(String.format("Cannot update deposit for user %s. Please use endpoint /deposit", loggedInUser.getUsername()));
         }
 
         UserEntity updatedUserEntity = userMapper.mapForUpdate(user, Timestamp.from(Instant.now()));
         updatedUserEntity.setInsertedDate(existingUser.getInsertedDate());
         updatedUserEntity.setId(userRepository.findUserEntityByUsername(loggedInUser.getUsername()).get().getId());
-        if(!loggedInUser.getAuthorities().contains(new SimpleGrantedAuthority("ROLE_" + user.getRole()))) {
+        updatedUserEntity.setVersion(existingUser.getVersion());
+        boolean roleChanged = !loggedInUser.getAuthorities().contains(new SimpleGrantedAuthority("ROLE_" + user.getRole()));
+        if(roleChanged) {
             updatedUserEntity.setDeposit(0);
         }
 
         UserEntity savedEntity = userRepository.save(updatedUserEntity);
+        if(roleChanged) {
+            int refunded = inventoryEngine.isEnabled() ? inventoryEngine.resetDeposit(savedEntity.getId()) : existingDeposit;
+            ledger.record(LedgerEntry.reset(savedEntity.getId(), refunded));
+        } else if(inventoryEngine.isEnabled()) {
+            // the row got the deposit as it was read; buys and deposits since then only live in the engine
+            inventoryEngine.rewriteDeposit(savedEntity.getId());
+        }
         authUserService.logOutUser();
-        return userMapper.map(savedEntity);
+        return withLiveDeposit(savedEntity);
     }
 
     public User registerUser(User user) {
@@ -100,35 +175,104 @@ public class UserService {
     public void deleteUser() {
         AuthUserDetails loggedInUser = authUserService.getLoggedInUser();
         log.info("Trying to delete user {}", loggedInUser.getUsername());
-        userRepository.delete(userRepository.findUserEntityByUsername(loggedInUser.getUsername()).get());
+        UserEntity userEntity = userRepository.findUserEntityByUsername(loggedInUser.getUsername()).get();
+        userRepository.delete(userEntity);
+        if(inventoryEngine.isEnabled()) {
+            inventoryEngine.removeUser(userEntity.getId());
+        }
         authUserService.logOutUser();
     }
 
-    public List<User> getAllUsers() {
-        log.info("Getting all users");
-        return userRepository.findAll()
-                .stream()
-                .map(userMapper::map)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public KeysetPage<User> getUsers(Role role, String cursor, Integer limit) {
+        log.info("Getting users page after cursor {}", cursor);
+        int pageSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+        KeysetPage<UserEntity> page = userListingRepository.findPage(role, KeysetCursor.decode(cursor), pageSize);
+        return KeysetPage.<User>builder()
+                .items(page.getItems().stream().map(this::withLiveDeposit).collect(Collectors.toList()))
+                .nextCursor(page.getNextCursor())
+                .build();
+    }
+
+    public void streamUsers(Role role, Consumer<User> consumer) {
+        log.info("Streaming users");
+        readOnlyTransactionTemplate.executeWithoutResult(status ->
+                userListingRepository.stream(role, userEntity -> consumer.accept(withLiveDeposit(userEntity))));
+    }
+
+    /**
+     * History is written asynchronously, so a purchase shows up here shortly after it completed.
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<Purchase> getPurchases(String cursor, Integer limit) {
+        AuthUserDetails loggedInUser = authUserService.getLoggedInUser();
+        log.info("Getting purchases of user {} before cursor {}", loggedInUser.getUsername(), cursor);
+        int pageSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+        return purchaseHistoryRepository.findPage(loggedInUser.getId(), KeysetCursor.decode(cursor), pageSize);
     }
 
     public User deposit(DepositRequest depositRequest) {
         AuthUserDetails loggedInUser = authUserService.getLoggedInUser();
         log.info("Trying to deposit amount {} for user {}", depositRequest.getCoin(), loggedInUser.getUsername());
+        if(inventoryEngine.isEnabled()) {
+            checkIfCoinIsAllowed(depositRequest.getCoin());
+            int balance = inventoryEngine.deposit(loggedInUser.getId(), depositRequest.getCoin());
+            ledger.record(LedgerEntry.deposit(loggedInUser.getId(), depositRequest.getCoin()));
+            return mapLoggedInUser(loggedInUser, balance);
+        }
         UserEntity userEntity = userRepository.findUserEntityByUsername(loggedInUser.getUsername()).get();
 
-        if(!allowedCoins.contains(depositRequest.getCoin())) {
-            throw new DepositException(String.format("Coin %s is not in the allowed list of %s", depositRequest.getCoin(), allowedCoins));
-        }
-        userRepository.deposit(userEntity.getId(), depositRequest.getCoin());
+        checkIfCoinIsAllowed(depositRequest.getCoin());
+        transactionTemplate.executeWithoutResult(status -> {
+            userRepository.deposit(userEntity.getId(), depositRequest.getCoin());
+            ledger.record(LedgerEntry.deposit(userEntity.getId(), depositRequest.getCoin()));
+            if(coinFloat.isEnabled()) {
+                coinFloat.accept(depositRequest.getCoin());
+            }
+        });
         return userMapper.map(userRepository.findUserEntityByUsername(loggedInUser.getUsername()).get());
     }
 
     public User resetDeposit() {
         AuthUserDetails loggedInUser = authUserService.getLoggedInUser();
         log.info("Trying to reset deposit for user {}", loggedInUser.getUsername());
+        if(inventoryEngine.isEnabled()) {
+            ledger.record(LedgerEntry.reset(loggedInUser.getId(), inventoryEngine.resetDeposit(loggedInUser.getId())));
+            return mapLoggedInUser(loggedInUser, 0);
+        }
         UserEntity userEntity = userRepository.findUserEntityByUsername(loggedInUser.getUsername()).get();
-        userRepository.resetDeposit(userEntity.getId());
+        if(coinFloat.isEnabled()) {
+            coinFloat.refund(userEntity.getId());
+        } else {
+            transactionTemplate.executeWithoutResult(status -> {
+                UserEntity lockedUser = userRepository.findByIdForUpdate(userEntity.getId())
+                        .orElseThrow(() -> new UserNotFoundException(String.format("User id %s not found", userEntity.getId())));
+                userRepository.resetDeposit(lockedUser.getId());
+                ledger.record(LedgerEntry.reset(lockedUser.getId(), lockedUser.getDeposit()));
+            });
+        }
         return userMapper.map(userRepository.findUserEntityByUsername(loggedInUser.getUsername()).get());
     }
+
+    private void checkIfCoinIsAllowed(Integer coin) {
+        if(!changeCalculator.isAllowed(coin)) {
+            throw new DepositException(String.format("Coin %s is not in the allowed list of %s", coin, changeCalculator));
+        }
+    }
+
+    private User mapLoggedInUser(AuthUserDetails loggedInUser, Integer deposit) {
+        return User.builder()
+                .username(loggedInUser.getUsername())
+                .deposit(deposit)
+                .role(loggedInUser.getRole())
+                .build();
+    }
+
+    private User withLiveDeposit(UserEntity userEntity) {
+        User user = userMapper.map(userEntity);
+        if(inventoryEngine.isEnabled()) {
+            user.setDeposit(inventoryEngine.depositOf(userEntity.getId()));
+        }
+        return user;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.mvpfactory.vendingmachine.service.bulk;
+
+import com.mvpfactory.vendingmachine.model.Product;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * One parsed input line: either a product or the reason it could not be read.
+ */
+@Getter
+@AllArgsConstructor
+class ImportRow {
+
+    private final long line;
+    private final Product product;
+    private final String error;
+
+    static ImportRow of(long line, Product product) {
+        return new ImportRow(line, product, null);
+    }
+
+    static ImportRow failed(long line, String error) {
+        return new ImportRow(line, null, error);
+    }
+}
@@ -0,0 +1,159 @@
+package com.mvpfactory.vendingmachine.service.bulk;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mvpfactory.vendingmachine.model.Product;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads import rows one line at a time, so a malformed line only rejects itself. NDJSON lines are {@link Product}
+ * objects; CSV starts with a header naming the {@code productName}, {@code amountAvailable} and {@code cost}
+ * columns (snake_case works too) in any order, and supports quoted fields that do not span lines.
+ */
+class ImportRowReader {
+
+    private static final String NAME = "productname";
+    private static final String AMOUNT = "amountavailable";
+    private static final String COST = "cost";
+
+    private final BufferedReader reader;
+    private final ImportFormat format;
+    private final ObjectMapper objectMapper;
+
+    private long line;
+    private int nameColumn = -1;
+    private int amountColumn = -1;
+    private int costColumn = -1;
+
+    ImportRowReader(InputStream input, ImportFormat format, ObjectMapper objectMapper) {
+        this.reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        this.format = format;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Returns {@code null} once the input is exhausted.
+     */
+    ImportRow next() {
+        String text;
+        while((text = readLine()) != null) {
+            line++;
+            if(text.isBlank()) {
+                continue;
+            }
+            if(format == ImportFormat.CSV && nameColumn < 0) {
+                String error = readHeader(text);
+                if(error != null) {
+                    return ImportRow.failed(line, error);
+                }
+                continue;
+            }
+            return format == ImportFormat.CSV ? parseCsv(text) : parseJson(text);
+        }
+        return null;
+    }
+
+    private String readLine() {
+        try {
+            return reader.readLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ImportRow parseJson(String text) {
+        try {
+            return ImportRow.of(line, objectMapper.readValue(text, Product.class));
+        } catch (JsonProcessingException e) {
+            return ImportRow.failed(line, "Malformed JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    private String readHeader(String text) {
+        List<String> columns = split(text);
+        if(columns == null) {
+            return "Malformed CSV header";
+        }
+        for(int index = 0; index < columns.size(); index++) {
+            String column = columns.get(index).trim().replace("_", "").toLowerCase(Locale.ROOT);
+            if(NAME.equals(column)) {
+                nameColumn = index;
+            } else if(AMOUNT.equals(column)) {
+                amountColumn = index;
+            } else if(COST.equals(column)) {
+                costColumn = index;
+            }
+        }
+        if(nameColumn < 0 || amountColumn < 0 || costColumn < 0) {
+            nameColumn = -1;
+            return "CSV header must name the productName, amountAvailable and cost columns";
+        }
+        return null;
+    }
+
+    private ImportRow parseCsv(String text) {
+        List<String> fields = split(text);
+        if(fields == null) {
+            return ImportRow.failed(line, "Unterminated quoted field");
+        }
+        if(fields.size() <= Math.max(nameColumn, Math.max(amountColumn, costColumn))) {
+            return ImportRow.failed(line, String.format("Expected at least %d fields", Math.max(nameColumn, Math.max(amountColumn, costColumn)) + 1));
+        }
+        try {
+            return ImportRow.of(line, Product.builder()
+                    .productName(fields.get(nameColumn))
+                    .amountAvailable(parseInteger(fields.get(amountColumn)))
+                    .cost(parseInteger(fields.get(costColumn)))
+                    .build());
+        } catch (NumberFormatException e) {
+            return ImportRow.failed(line, "Amount and cost must be whole numbers");
+        }
+    }
+
+    private static Integer parseInteger(String field) {
+        return field.isBlank() ? null : Integer.valueOf(field.trim());
+    }
+
+    /**
+     * RFC 4180 field splitting within one line; returns {@code null} when a quote is left open.
+     */
+    static List<String> split(String text) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for(int index = 0; index < text.length(); index++) {
+            char c = text.charAt(index);
+            if(quoted) {
+                if(c != '"') {
+                    field.append(c);
+                } else if(index + 1 < text.length() && text.charAt(index + 1) == '"') {
+                    field.append('"');
+                    index++;
+                } else {
+                    quoted = false;
+                }
+            } else if(c == '"') {
+                quoted = true;
+            } else if(c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if(quoted) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,197 @@
+package com.mvpfactory.vendingmachine.service.bulk;
+
+import com.mvpfactory.vendingmachine.error.model.InsufficientStockException;
+import com.mvpfactory.vendingmachine.error.model.InvalidProductCostException;
+import com.mvpfactory.vendingmachine.model.Product;
+import com.mvpfactory.vendingmachine.model.RepriceRequest;
+import com.mvpfactory.vendingmachine.model.StockLevel;
+import com.mvpfactory.vendingmachine.repository.ProductBulkRepository;
+import com.mvpfactory.vendingmachine.repository.ProductCatalogRepository;
+import com.mvpfactory.vendingmachine.service.catalog.CatalogVersion;
+import com.mvpfactory.vendingmachine.service.catalog.ProductSearchIndex;
+import com.mvpfactory.vendingmachine.service.engine.InventoryEngine;
+import com.mvpfactory.vendingmachine.service.reservation.StockReservations;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Restock, stock and price changes over many products of one seller. Ids go to the database {@code batchSize} at a
+ * time, but all batches run in one transaction, so a request is applied whole or not at all. Striped products get
+ * the change spread over their stripes. Setting stock below what is reserved is refused, checked while no new hold
+ * can be taken. In IN_MEMORY mode the engine owns stock: the transaction only checks ownership and bumps the
+ * version, and the engine gets the units after commit and writes them behind.
+ */
+@Slf4j
+@Component
+public class ProductBulkUpdater {
+
+    private final ProductBulkRepository productBulkRepository;
+    private final ProductCatalogRepository productCatalogRepository;
+    private final InventoryEngine inventoryEngine;
+    private final StockReservations stockReservations;
+    private final CatalogVersion catalogVersion;
+    private final ProductSearchIndex productSearchIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    @Autowired
+    public ProductBulkUpdater(ProductBulkRepository productBulkRepository, ProductCatalogRepository productCatalogRepository,
+                              InventoryEngine inventoryEngine, StockReservations stockReservations,
+                              CatalogVersion catalogVersion, ProductSearchIndex productSearchIndex,
+                              TransactionTemplate transactionTemplate,
+                              @Value("${bulk_update_batch_size:500}") int batchSize) {
+        this.productBulkRepository = productBulkRepository;
+        this.productCatalogRepository = productCatalogRepository;
+        this.inventoryEngine = inventoryEngine;
+        this.stockReservations = stockReservations;
+        this.catalogVersion = catalogVersion;
+        this.productSearchIndex = productSearchIndex;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+    }
+
+    public List<Product> addStock(UUID sellerId, List<UUID> productIds, int amount) {
+        Timestamp now = Timestamp.from(Instant.now());
+        List<UUID> owned = transactionTemplate.execute(status -> inBatches(distinct(productIds), batch -> {
+            List<UUID> locked = productBulkRepository.lockOwned(sellerId, batch);
+            if(locked.isEmpty()) {
+                return locked;
+            }
+            if(inventoryEngine.isEnabled()) {
+                productBulkRepository.touch(locked, now);
+            } else {
+                productBulkRepository.addStock(locked, amount, now);
+            }
+            return locked;
+        }));
+        if(inventoryEngine.isEnabled()) {
+            owned.forEach(productId -> inventoryEngine.addStock(productId, amount));
+        }
+        log.info("Restocked {} of {} products by {} units for seller {}", owned.size(), productIds.size(), amount, sellerId);
+        return publish(load(owned));
+    }
+
+    public List<Product> setStock(UUID sellerId, List<StockLevel> levels) {
+        Map<UUID, Integer> amounts = new LinkedHashMap<>();
+        levels.forEach(level -> amounts.put(level.getProductId(), level.getAmountAvailable()));
+        List<UUID> productIds = new ArrayList<>(amounts.keySet());
+        Timestamp now = Timestamp.from(Instant.now());
+        List<UUID> owned = stockReservations.whileHoldsStable(productIds, () -> {
+            List<UUID> locked = transactionTemplate.execute(status -> inBatches(productIds, batch -> {
+                List<UUID> batchLocked = productBulkRepository.lockOwned(sellerId, batch);
+                if(batchLocked.isEmpty()) {
+                    return batchLocked;
+                }
+                Map<UUID, Integer> batchAmounts = new LinkedHashMap<>();
+                batchLocked.forEach(productId -> batchAmounts.put(productId, notBelowReserved(productId, amounts.get(productId))));
+                if(inventoryEngine.isEnabled()) {
+                    productBulkRepository.touch(batchLocked, now);
+                } else {
+                    productBulkRepository.setStock(batchAmounts, now);
+                }
+                return batchLocked;
+            }));
+            if(inventoryEngine.isEnabled()) {
+                locked.forEach(productId -> inventoryEngine.setStock(productId, amounts.get(productId)));
+            }
+            return locked;
+        });
+        log.info("Set stock of {} of {} products for seller {}", owned.size(), amounts.size(), sellerId);
+        return publish(load(owned));
+    }
+
+    /**
+     * Product ids, when given, are locked in batches; a filter without ids locks the matching rows in one statement.
+     */
+    public List<Product> reprice(UUID sellerId, RepriceRequest request) {
+        if((request.getCost() == null) == (request.getCostDelta() == null)) {
+            throw new InvalidProductCostException("Give either cost or costDelta");
+        }
+        Integer change = request.getCost() != null ? request.getCost() : request.getCostDelta();
+        if(change % 5 != 0) {
+            throw new InvalidProductCostException("Product cost should be a multiple of 5");
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        List<UUID> repriced = transactionTemplate.execute(status -> {
+            List<UUID> locked = request.getProductIds() == null || request.getProductIds().isEmpty()
+                    ? productBulkRepository.lockRepriceable(sellerId, request, null)
+                    : inBatches(distinct(request.getProductIds()), batch -> productBulkRepository.lockRepriceable(sellerId, request, batch));
+            return inBatches(locked, batch -> {
+                productBulkRepository.reprice(batch, request, now);
+                return batch;
+            });
+        });
+        List<Product> updated = load(repriced);
+        if(inventoryEngine.isEnabled()) {
+            updated.forEach(product -> inventoryEngine.setCost(product.getId(), product.getCost()));
+        }
+        log.info("Repriced {} products for seller {}", updated.size(), sellerId);
+        return publish(updated);
+    }
+
+    private int notBelowReserved(UUID productId, int amount) {
+        int reserved = stockReservations.reservedOf(productId);
+        if(amount < reserved) {
+            throw new InsufficientStockException(String.format("%d units of product id %s are reserved, its stock cannot be set to %d",
+                    reserved, productId, amount));
+        }
+        return amount;
+    }
+
+    private List<UUID> inBatches(List<UUID> productIds, Function<List<UUID>, List<UUID>> update) {
+        List<UUID> updated = new ArrayList<>();
+        for(int from = 0; from < productIds.size(); from += batchSize) {
+            updated.addAll(update.apply(productIds.subList(from, Math.min(productIds.size(), from + batchSize))));
+        }
+        return updated;
+    }
+
+    /**
+     * The committed rows in the order they were asked for, with the engine's stock in IN_MEMORY mode.
+     */
+    private List<Product> load(List<UUID> productIds) {
+        Map<UUID, Product> products = productCatalogRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        List<Product> loaded = new ArrayList<>(products.size());
+        for(UUID productId : productIds) {
+            Product product = products.get(productId);
+            if(product == null) {
+                continue;
+            }
+            if(inventoryEngine.isEnabled()) {
+                Integer stock = inventoryEngine.stockOf(productId);
+                if(stock != null) {
+                    product.setAmountAvailable(stock);
+                }
+            }
+            loaded.add(product);
+        }
+        return loaded;
+    }
+
+    private static List<UUID> distinct(List<UUID> productIds) {
+        return new ArrayList<>(new LinkedHashSet<>(productIds));
+    }
+
+    private List<Product> publish(List<Product> updated) {
+        if(!updated.isEmpty()) {
+            updated.forEach(productSearchIndex::put);
+            catalogVersion.bump();
+        }
+        return updated;
+    }
+}
@@ -0,0 +1,206 @@
+package com.mvpfactory.vendingmachine.service.bulk;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mvpfactory.vendingmachine.model.ImportResult;
+import com.mvpfactory.vendingmachine.model.ImportStatus;
+import com.mvpfactory.vendingmachine.model.Product;
+import com.mvpfactory.vendingmachine.repository.ProductImportRepository;
+import com.mvpfactory.vendingmachine.service.catalog.CatalogVersion;
+import com.mvpfactory.vendingmachine.service.catalog.ProductSearchIndex;
+import com.mvpfactory.vendingmachine.service.engine.InventoryEngine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.InputStream;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Imports products from a stream, {@code chunkSize} rows at a time, so memory never depends on the input size.
+ * Per chunk, rows are validated in parallel, checked for name conflicts with one query and inserted as one batch
+ * in their own transaction; the per-row results are then handed to the caller in input order. A chunk that races
+ * a concurrent create of the same name is re-checked and inserted once more without the conflicting rows.
+ */
+@Slf4j
+@Component
+public class ProductImporter {
+
+    private static final int MAX_NAME_LENGTH = 128;
+
+    private final ProductImportRepository productImportRepository;
+    private final InventoryEngine inventoryEngine;
+    private final CatalogVersion catalogVersion;
+    private final ProductSearchIndex productSearchIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+
+    @Autowired
+    public ProductImporter(ProductImportRepository productImportRepository, InventoryEngine inventoryEngine,
+                           CatalogVersion catalogVersion, ProductSearchIndex productSearchIndex,
+                           TransactionTemplate transactionTemplate, ObjectMapper objectMapper,
+                           @Value("${import_chunk_size:500}") int chunkSize) {
+        this.productImportRepository = productImportRepository;
+        this.inventoryEngine = inventoryEngine;
+        this.catalogVersion = catalogVersion;
+        this.productSearchIndex = productSearchIndex;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+    }
+
+    public void importProducts(UUID sellerId, InputStream input, ImportFormat format, Consumer<List<ImportResult>> report) {
+        ImportRowReader reader = new ImportRowReader(input, format, objectMapper);
+        List<ImportRow> chunk = new ArrayList<>(chunkSize);
+        ImportRow row;
+        int created = 0;
+        int rejected = 0;
+        while((row = reader.next()) != null) {
+            chunk.add(row);
+            if(chunk.size() == chunkSize) {
+                List<ImportResult> results = importChunk(sellerId, chunk);
+                created += count(results, ImportStatus.CREATED);
+                rejected += count(results, ImportStatus.REJECTED);
+                report.accept(results);
+                chunk.clear();
+            }
+        }
+        if(!chunk.isEmpty()) {
+            List<ImportResult> results = importChunk(sellerId, chunk);
+            created += count(results, ImportStatus.CREATED);
+            rejected += count(results, ImportStatus.REJECTED);
+            report.accept(results);
+        }
+        log.info("Imported {} products for seller {}, rejected {}", created, sellerId, rejected);
+    }
+
+    private List<ImportResult> importChunk(UUID sellerId, List<ImportRow> chunk) {
+        List<String> errors = chunk.parallelStream().map(ProductImporter::validate).collect(Collectors.toList());
+        ImportResult[] results = new ImportResult[chunk.size()];
+        for(int index = 0; index < chunk.size(); index++) {
+            if(errors.get(index) != null) {
+                results[index] = rejected(chunk.get(index), errors.get(index));
+            }
+        }
+
+        for(int attempt = 1; ; attempt++) {
+            List<Product> inserts = claimNames(sellerId, chunk, results);
+            Timestamp now = Timestamp.from(Instant.now());
+            try {
+                transactionTemplate.executeWithoutResult(status -> productImportRepository.insert(inserts, now));
+            } catch (DuplicateKeyException ex) {
+                if(attempt == 2) {
+                    throw ex;
+                }
+                log.info("Import chunk raced a concurrent create, re-checking names");
+                continue;
+            }
+            publish(inserts);
+            break;
+        }
+
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Resolves names against the table with one query and against the chunk itself, fills a rejection for every
+     * taken name and a result for every row that will be inserted, and returns those rows with fresh ids.
+     */
+    private List<Product> claimNames(UUID sellerId, List<ImportRow> chunk, ImportResult[] results) {
+        List<String> names = new ArrayList<>();
+        for(int index = 0; index < chunk.size(); index++) {
+            if(results[index] == null || results[index].getStatus() == ImportStatus.CREATED) {
+                names.add(chunk.get(index).getProduct().getProductName());
+            }
+        }
+        Set<String> taken = new HashSet<>(productImportRepository.findExistingNames(names));
+
+        List<Product> inserts = new ArrayList<>();
+        for(int index = 0; index < chunk.size(); index++) {
+            if(results[index] != null && results[index].getStatus() == ImportStatus.REJECTED) {
+                continue;
+            }
+            ImportRow row = chunk.get(index);
+            Product product = row.getProduct();
+            if(!taken.add(product.getProductName())) {
+                results[index] = rejected(row, String.format("Product %s already exists", product.getProductName()));
+                continue;
+            }
+            product.setId(UUID.randomUUID());
+            product.setSellerId(sellerId);
+            product.setVersion(0L);
+            inserts.add(product);
+            results[index] = ImportResult.builder()
+                    .line(row.getLine())
+                    .status(ImportStatus.CREATED)
+                    .id(product.getId())
+                    .productName(product.getProductName())
+                    .build();
+        }
+        return inserts;
+    }
+
+    private void publish(List<Product> inserts) {
+        if(inserts.isEmpty()) {
+            return;
+        }
+        for(Product product : inserts) {
+            if(inventoryEngine.isEnabled()) {
+                inventoryEngine.putProduct(product.getId(), product.getAmountAvailable(), product.getCost());
+            }
+            productSearchIndex.put(product);
+        }
+        catalogVersion.bump();
+    }
+
+    static String validate(ImportRow row) {
+        if(row.getError() != null) {
+            return row.getError();
+        }
+        Product product = row.getProduct();
+        if(product.getProductName() == null || product.getProductName().isBlank()) {
+            return "Mandatory product name";
+        }
+        if(product.getProductName().length() > MAX_NAME_LENGTH) {
+            return String.format("Product name longer than %d characters", MAX_NAME_LENGTH);
+        }
+        if(product.getAmountAvailable() == null) {
+            return "Mandatory amount";
+        }
+        if(product.getAmountAvailable() < 0) {
+            return "Amount cannot be negative";
+        }
+        if(product.getCost() == null) {
+            return "Mandatory cost";
+        }
+        if(product.getCost() % 5 != 0) {
+            return "Product cost should be a multiple of 5";
+        }
+        return null;
+    }
+
+    private static ImportResult rejected(ImportRow row, String error) {
+        return ImportResult.builder()
+                .line(row.getLine())
+                .status(ImportStatus.REJECTED)
+                .productName(row.getProduct() == null ? null : row.getProduct().getProductName())
+                .error(error)
+                .build();
+    }
+
+    private static int count(List<ImportResult> results, ImportStatus status) {
+        return (int) results.stream().filter(result -> result.getStatus() == status).count();
+    }
+}
@@ -0,0 +1,104 @@
+package com.mvpfactory.vendingmachine.service.catalog;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monotonically increasing version of the product catalog, bumped after every committed write that changes what
+ * catalog reads return. A bump moves this instance's version at once and is shared through the one-row
+ * {@code catalog_version} table: every {@code catalog_version_sync_ms} the row is incremented once if anything was
+ * bumped since the last round, however many purchases that was, and a row moved by another instance moves the
+ * local version too. Writes made elsewhere therefore show here within about two rounds.
+ */
+@Slf4j
+@Service
+@DependsOn("liquibase")
+public class CatalogVersion {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long syncIntervalMs;
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicBoolean changed = new AtomicBoolean();
+
+    private long shared;
+    private ScheduledExecutorService syncer;
+
+    @Autowired
+    public CatalogVersion(JdbcTemplate jdbcTemplate,
+                          @Value("${catalog_version_sync_ms:500}") long syncIntervalMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.syncIntervalMs = syncIntervalMs;
+    }
+
+    @PostConstruct
+    public synchronized void start() {
+        shared = readShared();
+        syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "catalog-version-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        syncer.scheduleWithFixedDelay(this::sync, syncIntervalMs, syncIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if(syncer == null) {
+            return;
+        }
+        syncer.shutdown();
+        syncer.awaitTermination(10, TimeUnit.SECONDS);
+        sync();
+    }
+
+    public long current() {
+        return version.get();
+    }
+
+    public void bump() {
+        version.incrementAndGet();
+        changed.set(true);
+    }
+
+    /**
+     * Publishes the local bumps and picks up everyone else's. The row moving by exactly this round's own increment
+     * means no other instance wrote, so the local version, already bumped, stays put.
+     */
+    synchronized void sync() {
+        try {
+            long expected = shared;
+            if(changed.getAndSet(false)) {
+                try {
+                    jdbcTemplate.update("UPDATE catalog_version SET version = version + 1 WHERE id = 1");
+                } catch (RuntimeException ex) {
+                    changed.set(true);
+                    throw ex;
+                }
+                expected++;
+            }
+            long current = readShared();
+            if(current != expected) {
+                version.incrementAndGet();
+            }
+            shared = current;
+        } catch (RuntimeException ex) {
+            log.warn("Catalog version sync failed, will retry", ex);
+        }
+    }
+
+    private long readShared() {
+        return jdbcTemplate.queryForObject("SELECT version FROM catalog_version WHERE id = 1", Long.class);
+    }
+}
@@ -0,0 +1,175 @@
+package com.mvpfactory.vendingmachine.service.catalog;
+
+import com.mvpfactory.vendingmachine.model.Product;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory name index of the catalog on this instance: a sorted map of normalized names for prefix lookups and
+ * an inverted trigram index for typo tolerant matches, ranked by trigram (Jaccard) similarity. Loaded once on startup
+ * and kept current by {@code ProductService} on every create, update and delete; reads never touch the database.
+ * Writers are serialized, readers are lock-free.
+ */
+@Slf4j
+@Service
+@DependsOn("liquibase")
+public class ProductSearchIndex {
+
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    private final JdbcTemplate jdbcTemplate;
+    private final double minSimilarity;
+    private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<String, UUID> names = new ConcurrentSkipListMap<>();
+    private final Map<String, Set<UUID>> trigrams = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ProductSearchIndex(JdbcTemplate jdbcTemplate, @Value("${search_min_similarity:0.3}") double minSimilarity) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.minSimilarity = minSimilarity;
+    }
+
+    @PostConstruct
+    public void start() {
+        jdbcTemplate.query("SELECT id, product_name, cost, seller_id FROM products", rs -> {
+            put(Product.builder()
+                    .id(rs.getObject("id", UUID.class))
+                    .productName(rs.getString("product_name"))
+                    .cost(rs.getInt("cost"))
+                    .sellerId(rs.getObject("seller_id", UUID.class))
+                    .build());
+        });
+        log.info("Product search index loaded {} products and {} trigrams", entries.size(), trigrams.size());
+    }
+
+    public synchronized void put(Product product) {
+        remove(product.getId());
+        String name = normalize(product.getProductName());
+        Entry entry = new Entry(product.getId(), product.getProductName(), product.getCost(), product.getSellerId(),
+                name + KEY_SEPARATOR + product.getId(), trigramsOf(name));
+        entries.put(entry.id, entry);
+        names.put(entry.key, entry.id);
+        entry.trigrams.forEach(trigram -> trigrams.computeIfAbsent(trigram, key -> ConcurrentHashMap.newKeySet()).add(entry.id));
+    }
+
+    public synchronized void remove(UUID productId) {
+        Entry entry = entries.remove(productId);
+        if(entry == null) {
+            return;
+        }
+        names.remove(entry.key);
+        entry.trigrams.forEach(trigram -> trigrams.computeIfPresent(trigram, (key, ids) -> {
+            ids.remove(productId);
+            return ids.isEmpty() ? null : ids;
+        }));
+    }
+
+    /**
+     * Names starting with the query first, in name order, then the closest fuzzy matches not already returned.
+     */
+    public List<Product> search(String query, int limit) {
+        String normalized = normalize(query);
+        List<Product> results = new ArrayList<>(limit);
+        Set<UUID> seen = new HashSet<>();
+        for(UUID id : names.subMap(normalized, normalized + Character.MAX_VALUE).values()) {
+            if(results.size() == limit) {
+                return results;
+            }
+            Entry entry = entries.get(id);
+            if(entry != null && seen.add(id)) {
+                results.add(entry.toProduct());
+            }
+        }
+        for(Entry entry : fuzzy(normalized, limit + seen.size())) {
+            if(results.size() == limit) {
+                break;
+            }
+            if(seen.add(entry.id)) {
+                results.add(entry.toProduct());
+            }
+        }
+        return results;
+    }
+
+    private List<Entry> fuzzy(String normalized, int limit) {
+        Set<String> queryTrigrams = trigramsOf(normalized);
+        Map<UUID, Integer> shared = new HashMap<>();
+        queryTrigrams.forEach(trigram -> {
+            Set<UUID> ids = trigrams.get(trigram);
+            if(ids != null) {
+                ids.forEach(id -> shared.merge(id, 1, Integer::sum));
+            }
+        });
+        Map<Entry, Double> scored = new HashMap<>();
+        shared.forEach((id, count) -> {
+            Entry entry = entries.get(id);
+            if(entry != null) {
+                double similarity = (double) count / (queryTrigrams.size() + entry.trigrams.size() - count);
+                if(similarity >= minSimilarity) {
+                    scored.put(entry, similarity);
+                }
+            }
+        });
+        return scored.entrySet().stream()
+                .sorted(Map.Entry.<Entry, Double>comparingByValue().reversed()
+                        .thenComparing(scoredEntry -> scoredEntry.getKey().key))
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    static String normalize(String name) {
+        return name.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Trigrams of every word padded with two leading and one trailing space, as pg_trgm does, so short words and
+     * word starts weigh in.
+     */
+    static Set<String> trigramsOf(String normalized) {
+        Set<String> result = new HashSet<>();
+        for(String word : normalized.split(" ")) {
+            if(word.isEmpty()) {
+                continue;
+            }
+            String padded = "  " + word + " ";
+            for(int index = 0; index + 3 <= padded.length(); index++) {
+                result.add(padded.substring(index, index + 3));
+            }
+        }
+        return result;
+    }
+
+    private static class Entry {
+
+        private final UUID id;
+        private final String productName;
+        private final Integer cost;
+        private final UUID sellerId;
+        private final String key;
+        private final Set<String> trigrams;
+
+        private Entry(UUID id, String productName, Integer cost, UUID sellerId, String key, Set<String> trigrams) {
+            this.id = id;
+            this.productName = productName;
+            this.cost = cost;
+            this.sellerId = sellerId;
+            this.key = key;
+            this.trigrams = trigrams;
+        }
+
+        private Product toProduct() {
+            return Product.builder().id(id).productName(productName).cost(cost).sellerId(sellerId).build();
+        }
+    }
+}
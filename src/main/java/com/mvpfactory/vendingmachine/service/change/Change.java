@@ -0,0 +1,14 @@
+package com.mvpfactory.vendingmachine.service.change;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+@Getter
+@AllArgsConstructor
+public class Change {
+
+    private final Map<Integer, Integer> coins;
+    private final int remainder;
+}
@@ -0,0 +1,234 @@
+package com.mvpfactory.vendingmachine.service.change;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Change-making over the configured coin denominations. The denomination table is sorted once at startup
+ * and never modified, so the calculator is safe to share between request threads.
+ * Greedy is used whenever it is known to be optimal; otherwise, or when a bounded coin float makes greedy
+ * miss the amount, a bounded knapsack finds the largest dispensable amount with the fewest coins.
+ * The knapsack's working arrays are borrowed from a pool and handed back after each call, so they are reused
+ * without every request thread, platform or virtual, pinning a table of its own.
+ */
+@Service
+public class ChangeCalculator {
+
+    private static final int MAX_DP_UNITS = 100_000;
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private final int[] denominations;
+    private final int unit;
+    private final boolean canonical;
+    private final String description;
+    private final Queue<Scratch> scratchPool = new ConcurrentLinkedQueue<>();
+
+    @Autowired
+    public ChangeCalculator(@Value("#{'${allowed_coins}'.split(',')}") List<Integer> allowedCoins) {
+        this.denominations = allowedCoins.stream()
+                .mapToInt(Integer::intValue)
+                .distinct()
+                .boxed()
+                .sorted(Collections.reverseOrder())
+                .mapToInt(Integer::intValue)
+                .toArray();
+        this.unit = Arrays.stream(denominations).reduce(0, ChangeCalculator::gcd);
+        this.description = Arrays.toString(Arrays.stream(denominations).sorted().toArray());
+        this.canonical = checkIfGreedyIsOptimal();
+    }
+
+    public int size() {
+        return denominations.length;
+    }
+
+    public int denomination(int index) {
+        return denominations[index];
+    }
+
+    public int indexOf(int coin) {
+        for(int index = 0; index < denominations.length; index++) {
+            if(denominations[index] == coin) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    public boolean isAllowed(int coin) {
+        return indexOf(coin) >= 0;
+    }
+
+    /**
+     * Change for {@code amount} assuming an unlimited supply of every coin.
+     */
+    public Map<Integer, Integer> change(int amount) {
+        int[] counts = new int[denominations.length];
+        makeChange(amount, null, counts);
+        return toMap(counts);
+    }
+
+    /**
+     * Fills {@code counts} (indexed like the descending denomination table) with the fewest coins making up
+     * the largest amount not above {@code amount} that {@code stock} allows, or unlimited coins when
+     * {@code stock} is null. Returns the amount actually covered.
+     */
+    public int makeChange(int amount, int[] stock, int[] counts) {
+        int dispensed = greedy(amount, stock, counts);
+        int reachable = amount - amount % unit;
+        if(dispensed == reachable && (stock != null || canonical)) {
+            return dispensed;
+        }
+        if(reachable / unit > MAX_DP_UNITS) {
+            return dispensed;
+        }
+        return optimal(amount, stock, counts);
+    }
+
+    public Map<Integer, Integer> toMap(int[] counts) {
+        Map<Integer, Integer> change = new LinkedHashMap<>();
+        for(int index = 0; index < denominations.length; index++) {
+            if(counts[index] > 0) {
+                change.put(denominations[index], counts[index]);
+            }
+        }
+        return change;
+    }
+
+    @Override
+    public String toString() {
+        return description;
+    }
+
+    private int greedy(int amount, int[] stock, int[] counts) {
+        int remaining = amount;
+        for(int index = 0; index < denominations.length; index++) {
+            int take = remaining / denominations[index];
+            if(stock != null) {
+                take = Math.min(take, stock[index]);
+            }
+            counts[index] = take;
+            remaining -= take * denominations[index];
+        }
+        return amount - remaining;
+    }
+
+    /**
+     * 0/1 knapsack over binary-split coin bundles, minimising the number of coins for every reachable amount.
+     */
+    private int optimal(int amount, int[] stock, int[] counts) {
+        Scratch buffers = Optional.ofNullable(scratchPool.poll()).orElseGet(Scratch::new);
+        try {
+            return optimal(amount, stock, counts, buffers);
+        } finally {
+            scratchPool.offer(buffers);
+        }
+    }
+
+    private int optimal(int amount, int[] stock, int[] counts, Scratch buffers) {
+        int target = amount / unit;
+        int[] minCoins = buffers.minCoins(target + 1);
+        Arrays.fill(minCoins, 0, target + 1, UNREACHABLE);
+        minCoins[0] = 0;
+
+        int items = 0;
+        for(int index = 0; index < denominations.length; index++) {
+            int weight = denominations[index] / unit;
+            int available = target / weight;
+            if(stock != null) {
+                available = Math.min(available, stock[index]);
+            }
+            for(int bundle = 1; available > 0; bundle <<= 1) {
+                int quantity = Math.min(bundle, available);
+                available -= quantity;
+                boolean[] taken = buffers.taken(items, target + 1);
+                buffers.itemDenomination[items] = index;
+                buffers.itemQuantity[items] = quantity;
+                int itemWeight = weight * quantity;
+                for(int total = target; total >= 0; total--) {
+                    taken[total] = total >= itemWeight
+                            && minCoins[total - itemWeight] != UNREACHABLE
+                            && minCoins[total - itemWeight] + quantity < minCoins[total];
+                    if(taken[total]) {
+                        minCoins[total] = minCoins[total - itemWeight] + quantity;
+                    }
+                }
+                items++;
+            }
+        }
+
+        int best = target;
+        while(minCoins[best] == UNREACHABLE) {
+            best--;
+        }
+        Arrays.fill(counts, 0, denominations.length, 0);
+        for(int item = items - 1, total = best; item >= 0; item--) {
+            if(buffers.taken[item][total]) {
+                int index = buffers.itemDenomination[item];
+                counts[index] += buffers.itemQuantity[item];
+                total -= denominations[index] / unit * buffers.itemQuantity[item];
+            }
+        }
+        return best * unit;
+    }
+
+    /**
+     * A coin system is canonical when greedy is optimal for every amount; if not, the smallest
+     * counterexample is below the sum of the two largest coins.
+     */
+    private boolean checkIfGreedyIsOptimal() {
+        if(denominations.length < 3) {
+            return true;
+        }
+        int[] greedyCounts = new int[denominations.length];
+        int[] optimalCounts = new int[denominations.length];
+        for(int amount = unit; amount < denominations[0] + denominations[1]; amount += unit) {
+            greedy(amount, null, greedyCounts);
+            optimal(amount, null, optimalCounts);
+            if(Arrays.stream(greedyCounts).sum() > Arrays.stream(optimalCounts).sum()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int gcd(int first, int second) {
+        return second == 0 ? first : gcd(second, first % second);
+    }
+
+    private static class Scratch {
+
+        private int[] minCoins = new int[0];
+        private boolean[][] taken = new boolean[0][];
+        private int[] itemDenomination = new int[0];
+        private int[] itemQuantity = new int[0];
+
+        private int[] minCoins(int size) {
+            if(minCoins.length < size) {
+                minCoins = new int[size];
+            }
+            return minCoins;
+        }
+
+        private boolean[] taken(int item, int size) {
+            if(taken.length <= item) {
+                taken = Arrays.copyOf(taken, Math.max(item + 1, taken.length * 2));
+                itemDenomination = Arrays.copyOf(itemDenomination, taken.length);
+                itemQuantity = Arrays.copyOf(itemQuantity, taken.length);
+            }
+            if(taken[item] == null || taken[item].length < size) {
+                taken[item] = new boolean[size];
+            }
+            return taken[item];
+        }
+    }
+}
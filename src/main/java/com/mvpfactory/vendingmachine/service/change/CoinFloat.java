@@ -0,0 +1,129 @@
+package com.mvpfactory.vendingmachine.service.change;
+
+import com.mvpfactory.vendingmachine.error.model.UserNotFoundException;
+import com.mvpfactory.vendingmachine.service.PurchaseMode;
+import com.mvpfactory.vendingmachine.service.ledger.Ledger;
+import com.mvpfactory.vendingmachine.service.ledger.LedgerEntry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Bounded coin float of the machine, one {@code coin_inventory} row per denomination. Deposited coins are added
+ * to the float and change is paid out of it, so a buyer only gets back what the machine can actually return;
+ * the part that cannot be paid out stays on the deposit. Coin rows are locked after the buyer and product rows,
+ * inside the purchase transaction, so stock, deposit and float commit or roll back together.
+ */
+@Slf4j
+@Service
+@DependsOn("liquibase")
+public class CoinFloat {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ChangeCalculator changeCalculator;
+    private final Ledger ledger;
+    private final boolean enabled;
+    private final int initialQuantity;
+
+    @Autowired
+    public CoinFloat(JdbcTemplate jdbcTemplate, ChangeCalculator changeCalculator, Ledger ledger,
+                     @Value("${coin_float_enabled:false}") boolean enabled,
+                     @Value("${coin_float_initial_quantity:0}") int initialQuantity,
+                     @Value("${purchase_mode:STANDARD}") PurchaseMode purchaseMode) {
+        if(enabled && purchaseMode == PurchaseMode.IN_MEMORY) {
+            throw new IllegalStateException("coin_float_enabled is not supported with purchase_mode IN_MEMORY");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.changeCalculator = changeCalculator;
+        this.ledger = ledger;
+        this.enabled = enabled;
+        this.initialQuantity = initialQuantity;
+    }
+
+    @PostConstruct
+    public void start() {
+        if(!enabled) {
+            return;
+        }
+        for(int index = 0; index < changeCalculator.size(); index++) {
+            int denomination = changeCalculator.denomination(index);
+            jdbcTemplate.update("INSERT INTO coin_inventory (denomination, quantity) SELECT ?, ? "
+                    + "WHERE NOT EXISTS (SELECT 1 FROM coin_inventory WHERE denomination = ?)", denomination, initialQuantity, denomination);
+        }
+        log.info("Coin float enabled for denominations {}", changeCalculator);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void accept(int coin) {
+        jdbcTemplate.update("UPDATE coin_inventory SET quantity = quantity + 1 WHERE denomination = ?", coin);
+    }
+
+    /**
+     * Pays {@code deposit} back out of the float and takes what was paid off the user's deposit, leaving the
+     * undispensed remainder. {@code deposit} must come from the user row locked in the caller's purchase
+     * transaction; the row is only ever decremented, never overwritten with a value read earlier.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Change settle(UUID userId, int deposit) {
+        Change change = dispense(userId, deposit);
+        int dispensed = deposit - change.getRemainder();
+        if(dispensed > 0) {
+            jdbcTemplate.update("UPDATE users SET deposit = deposit - ?, version = version + 1 WHERE id = ?", dispensed, userId);
+        }
+        return change;
+    }
+
+    /**
+     * Takes the change for {@code deposit} out of the float without writing the user row, for callers that hold
+     * the user as a managed entity and store the remainder themselves; a second write of the row would make the
+     * entity's versioned update fail.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Change dispense(UUID userId, int deposit) {
+        int[] stock = new int[changeCalculator.size()];
+        int[] counts = new int[changeCalculator.size()];
+        jdbcTemplate.query("SELECT denomination, quantity FROM coin_inventory ORDER BY denomination FOR UPDATE", resultSet -> {
+            int index = changeCalculator.indexOf(resultSet.getInt("denomination"));
+            if(index >= 0) {
+                stock[index] = resultSet.getInt("quantity");
+            }
+        });
+
+        int dispensed = changeCalculator.makeChange(deposit, stock, counts);
+        List<Object[]> decrements = new ArrayList<>(counts.length);
+        for(int index = 0; index < counts.length; index++) {
+            if(counts[index] > 0) {
+                decrements.add(new Object[]{counts[index], changeCalculator.denomination(index)});
+            }
+        }
+        if(!decrements.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE coin_inventory SET quantity = quantity - ? WHERE denomination = ?", decrements);
+        }
+        ledger.record(LedgerEntry.change(userId, dispensed));
+        return new Change(changeCalculator.toMap(counts), deposit - dispensed);
+    }
+
+    @Transactional
+    public Change refund(UUID userId) {
+        try {
+            Integer deposit = jdbcTemplate.queryForObject("SELECT deposit FROM users WHERE id = ? FOR UPDATE", Integer.class, userId);
+            return settle(userId, deposit);
+        } catch (EmptyResultDataAccessException e) {
+            throw new UserNotFoundException(String.format("User id %s not found", userId));
+        }
+    }
+}
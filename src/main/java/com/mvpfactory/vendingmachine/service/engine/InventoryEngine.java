@@ -0,0 +1,284 @@
+package com.mvpfactory.vendingmachine.service.engine;
+
+import com.mvpfactory.vendingmachine.error.model.ProductNotFoundException;
+import com.mvpfactory.vendingmachine.error.model.UserNotFoundException;
+import com.mvpfactory.vendingmachine.service.PurchaseMode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Authoritative in-memory stock and deposit balances used when purchase_mode is IN_MEMORY.
+ * Every counter is updated with CAS loops only; changed keys are marked dirty and their latest
+ * values are written to PostgreSQL by a single flusher thread in batches (write-behind).
+ */
+@Slf4j
+@Service
+@DependsOn("liquibase")
+public class InventoryEngine {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final long flushIntervalMs;
+    private final int batchSize;
+
+    private final Map<UUID, ProductState> products = new ConcurrentHashMap<>();
+    private final Map<UUID, AtomicInteger> deposits = new ConcurrentHashMap<>();
+    private final Set<UUID> dirtyProducts = ConcurrentHashMap.newKeySet();
+    private final Set<UUID> dirtyUsers = ConcurrentHashMap.newKeySet();
+
+    private ScheduledExecutorService flusher;
+
+    @Autowired
+    public InventoryEngine(JdbcTemplate jdbcTemplate,
+                           @Value("${purchase_mode:STANDARD}") PurchaseMode purchaseMode,
+                           @Value("${write_behind_flush_interval_ms:200}") long flushIntervalMs,
+                           @Value("${write_behind_batch_size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = purchaseMode == PurchaseMode.IN_MEMORY;
+        this.flushIntervalMs = flushIntervalMs;
+        this.batchSize = batchSize;
+    }
+
+    @PostConstruct
+    public void start() {
+        if(!enabled) {
+            return;
+        }
+        jdbcTemplate.query("SELECT id, amount_available, cost FROM products", rs -> {
+            products.put(rs.getObject("id", UUID.class), new ProductState(rs.getInt("amount_available"), rs.getInt("cost")));
+        });
+        jdbcTemplate.query("SELECT id, deposit FROM users", rs -> {
+            deposits.put(rs.getObject("id", UUID.class), new AtomicInteger(rs.getInt("deposit")));
+        });
+        log.info("In-memory engine loaded {} products and {} users", products.size(), deposits.size());
+
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "inventory-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if(flusher == null) {
+            return;
+        }
+        flusher.shutdown();
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+        flush();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Takes as many units as stock and deposit allow, at most {@code requested} and never the last {@code reserved}.
+     * Stock is taken first; if the deposit shrank in the meantime the units that can no longer be paid for are put back.
+     */
+    public PurchaseFill buy(UUID userId, UUID productId, int requested, int reserved) {
+        ProductState product = product(productId);
+        AtomicInteger deposit = deposit(userId);
+        int cost = product.cost;
+
+        int available;
+        int taken;
+        do {
+            available = product.stock.get();
+            int affordable = cost == 0 ? requested : deposit.get() / cost;
+            taken = Math.min(requested, Math.min(available - reserved, affordable));
+            if(taken <= 0) {
+                return new PurchaseFill(0, cost, available, deposit.get());
+            }
+        } while(!product.stock.compareAndSet(available, available - taken));
+
+        int balance;
+        int paid;
+        do {
+            balance = deposit.get();
+            paid = cost == 0 ? taken : Math.min(taken, balance / cost);
+        } while(!deposit.compareAndSet(balance, balance - paid * cost));
+
+        if(paid < taken) {
+            product.stock.addAndGet(taken - paid);
+        }
+        dirtyProducts.add(productId);
+        dirtyUsers.add(userId);
+        return new PurchaseFill(paid, cost, available, balance - paid * cost);
+    }
+
+    public int deposit(UUID userId, int coin) {
+        int balance = deposit(userId).addAndGet(coin);
+        dirtyUsers.add(userId);
+        return balance;
+    }
+
+    /**
+     * Sets the deposit to zero and returns the balance it had.
+     */
+    public int resetDeposit(UUID userId) {
+        int refunded = deposit(userId).getAndSet(0);
+        dirtyUsers.add(userId);
+        return refunded;
+    }
+
+    public int depositOf(UUID userId) {
+        return deposit(userId).get();
+    }
+
+    public Integer stockOf(UUID productId) {
+        ProductState product = products.get(productId);
+        return product == null ? null : product.stock.get();
+    }
+
+    public void putProduct(UUID productId, int amountAvailable, int cost) {
+        products.compute(productId, (id, product) -> {
+            if(product == null) {
+                return new ProductState(amountAvailable, cost);
+            }
+            product.stock.set(amountAvailable);
+            product.cost = cost;
+            return product;
+        });
+    }
+
+    /**
+     * Adds units on top of whatever buys left, so a restock never undoes a concurrent sale.
+     */
+    public int addStock(UUID productId, int amount) {
+        int stock = product(productId).stock.addAndGet(amount);
+        dirtyProducts.add(productId);
+        return stock;
+    }
+
+    public int setStock(UUID productId, int amountAvailable) {
+        product(productId).stock.set(amountAvailable);
+        dirtyProducts.add(productId);
+        return amountAvailable;
+    }
+
+    /**
+     * Cost is not written behind; the caller already stored it, a product not loaded yet picks it up on first use.
+     */
+    public void setCost(UUID productId, int cost) {
+        ProductState product = products.get(productId);
+        if(product != null) {
+            product.cost = cost;
+        }
+    }
+
+    public void removeProduct(UUID productId) {
+        products.remove(productId);
+        dirtyProducts.remove(productId);
+    }
+
+    public void putUser(UUID userId, int deposit) {
+        deposits.computeIfAbsent(userId, id -> new AtomicInteger()).set(deposit);
+    }
+
+    /**
+     * Queues the in-memory deposit to be written again after a caller stored a copy of it that concurrent buys or
+     * deposits may have outdated. The balance itself is left alone; a user not loaded yet has nothing to rewrite.
+     */
+    public void rewriteDeposit(UUID userId) {
+        if(deposits.containsKey(userId)) {
+            dirtyUsers.add(userId);
+        }
+    }
+
+    public void removeUser(UUID userId) {
+        deposits.remove(userId);
+        dirtyUsers.remove(userId);
+    }
+
+    /**
+     * Writes the latest value of every dirty key. A key is cleared before its value is read, so a
+     * mutation racing with the flush marks it dirty again and is picked up by the next round.
+     */
+    public synchronized void flush() {
+        try {
+            flush(dirtyProducts, "UPDATE products SET amount_available = ?, version = version + 1 WHERE id = ?",
+                    id -> Optional.ofNullable(products.get(id)).map(product -> product.stock.get()).orElse(null));
+            flush(dirtyUsers, "UPDATE users SET deposit = ?, version = version + 1 WHERE id = ?",
+                    id -> Optional.ofNullable(deposits.get(id)).map(AtomicInteger::get).orElse(null));
+        } catch (RuntimeException ex) {
+            log.error("Write-behind flush failed, dirty keys will be retried", ex);
+        }
+    }
+
+    private void flush(Set<UUID> dirty, String sql, Function<UUID, Integer> currentValue) {
+        List<Object[]> batch = new ArrayList<>(Math.min(batchSize, dirty.size()));
+        Iterator<UUID> iterator = dirty.iterator();
+        while(iterator.hasNext()) {
+            UUID id = iterator.next();
+            iterator.remove();
+            Integer value = currentValue.apply(id);
+            if(value != null) {
+                batch.add(new Object[]{value, id});
+            }
+            if(batch.size() == batchSize) {
+                writeBatch(dirty, sql, batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if(!batch.isEmpty()) {
+            writeBatch(dirty, sql, batch);
+        }
+    }
+
+    private void writeBatch(Set<UUID> dirty, String sql, List<Object[]> batch) {
+        try {
+            jdbcTemplate.batchUpdate(sql, batch);
+        } catch (RuntimeException ex) {
+            batch.forEach(row -> dirty.add((UUID) row[1]));
+            throw ex;
+        }
+    }
+
+    private ProductState product(UUID productId) {
+        ProductState product = products.computeIfAbsent(productId, id -> jdbcTemplate.query(
+                "SELECT amount_available, cost FROM products WHERE id = ?",
+                rs -> rs.next() ? new ProductState(rs.getInt("amount_available"), rs.getInt("cost")) : null, id));
+        if(product == null) {
+            throw new ProductNotFoundException(String.format("Product id %s not found", productId));
+        }
+        return product;
+    }
+
+    private AtomicInteger deposit(UUID userId) {
+        AtomicInteger deposit = deposits.computeIfAbsent(userId, id -> jdbcTemplate.query(
+                "SELECT deposit FROM users WHERE id = ?",
+                rs -> rs.next() ? new AtomicInteger(rs.getInt("deposit")) : null, id));
+        if(deposit == null) {
+            throw new UserNotFoundException(String.format("User id %s not found", userId));
+        }
+        return deposit;
+    }
+
+    private static class ProductState {
+
+        private final AtomicInteger stock;
+        private volatile int cost;
+
+        private ProductState(int amountAvailable, int cost) {
+            this.stock = new AtomicInteger(amountAvailable);
+            this.cost = cost;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.mvpfactory.vendingmachine.service.engine;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class PurchaseFill {
+
+    private final int quantity;
+    private final int cost;
+    private final int amountAvailable;
+    private final int deposit;
+}
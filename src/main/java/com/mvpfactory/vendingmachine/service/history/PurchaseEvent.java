@@ -0,0 +1,19 @@
+package com.mvpfactory.vendingmachine.service.history;
+
+import com.mvpfactory.vendingmachine.model.BuyStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.UUID;
+
+@Getter
+@AllArgsConstructor
+public class PurchaseEvent {
+
+    private final UUID userId;
+    private final UUID productId;
+    private final int numberOfProducts;
+    private final int totalSpent;
+    private final BuyStatus status;
+    private final long purchasedAt;
+}
@@ -0,0 +1,129 @@
+package com.mvpfactory.vendingmachine.service.history;
+
+import com.mvpfactory.vendingmachine.model.BuyResponse;
+import com.mvpfactory.vendingmachine.repository.PurchaseHistoryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Records completed purchases off the request path. {@link #record} only offers the event to a lock-free ring and
+ * never blocks: when the writer falls behind and the ring is full the event is dropped and counted. A single writer
+ * thread drains the ring and batch-inserts into {@code purchase_history}; a failed batch is kept and retried, so a
+ * database outage backs up into the ring rather than into requests. Whatever is left is written on shutdown.
+ */
+@Slf4j
+@Service
+@DependsOn("liquibase")
+public class PurchaseHistory {
+
+    private final PurchaseHistoryRepository purchaseHistoryRepository;
+    private final PurchaseRingBuffer<PurchaseEvent> ring;
+    private final int batchSize;
+    private final long idleNanos;
+    private final Counter dropped;
+    private final Counter written;
+    private final DistributionSummary batches;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    @Autowired
+    public PurchaseHistory(PurchaseHistoryRepository purchaseHistoryRepository, MeterRegistry meterRegistry,
+                           @Value("${purchase_history_buffer_size:8192}") int bufferSize,
+                           @Value("${purchase_history_batch_size:500}") int batchSize,
+                           @Value("${purchase_history_flush_interval_ms:100}") long flushIntervalMs) {
+        this.purchaseHistoryRepository = purchaseHistoryRepository;
+        this.ring = new PurchaseRingBuffer<>(bufferSize);
+        this.batchSize = batchSize;
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        Gauge.builder("vending.purchase.history.buffered", ring, PurchaseRingBuffer::size)
+                .description("Purchase events waiting to be written")
+                .register(meterRegistry);
+        Gauge.builder("vending.purchase.history.capacity", ring, PurchaseRingBuffer::capacity)
+                .register(meterRegistry);
+        this.dropped = Counter.builder("vending.purchase.history.dropped")
+                .description("Purchase events rejected because the buffer was full")
+                .register(meterRegistry);
+        this.written = Counter.builder("vending.purchase.history.written").register(meterRegistry);
+        this.batches = DistributionSummary.builder("vending.purchase.history.batch.size").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writer = new Thread(this::drainLoop, "purchase-history-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    /**
+     * Offers a completed buy or cart line; fills of zero products are not history.
+     */
+    public void record(UUID userId, BuyResponse buyResponse) {
+        if(buyResponse.getNumberOfProducts() == 0) {
+            return;
+        }
+        PurchaseEvent event = new PurchaseEvent(userId, buyResponse.getProductId(), buyResponse.getNumberOfProducts(),
+                buyResponse.getTotalSpent(), buyResponse.getStatus(), System.currentTimeMillis());
+        if(!ring.offer(event)) {
+            dropped.increment();
+        }
+    }
+
+    private void drainLoop() {
+        List<PurchaseEvent> batch = new ArrayList<>(batchSize);
+        while(running) {
+            if(batch.isEmpty() && ring.drainTo(batch, batchSize) == 0) {
+                LockSupport.parkNanos(idleNanos);
+                continue;
+            }
+            if(write(batch)) {
+                batch.clear();
+            } else {
+                LockSupport.parkNanos(idleNanos);
+            }
+        }
+        // final flush: one attempt per batch, the application is going away
+        do {
+            write(batch);
+            batch.clear();
+        } while(ring.drainTo(batch, batchSize) > 0);
+    }
+
+    private boolean write(List<PurchaseEvent> batch) {
+        if(batch.isEmpty()) {
+            return true;
+        }
+        try {
+            purchaseHistoryRepository.append(batch);
+            written.increment(batch.size());
+            batches.record(batch.size());
+            return true;
+        } catch (RuntimeException ex) {
+            log.error("Writing {} purchase history events failed, retrying", batch.size(), ex);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.mvpfactory.vendingmachine.service.history;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free multi-producer, single-consumer ring. Every slot carries a sequence number: a producer claims
+ * position {@code p} with one CAS on the tail once the slot's sequence equals {@code p}, publishes the element and
+ * sets the sequence to {@code p + 1}; the consumer takes it when it sees {@code p + 1} and hands the slot back for
+ * the next lap by setting {@code p + capacity}. A full ring rejects instead of blocking.
+ */
+public class PurchaseRingBuffer<E> {
+
+    private final Object[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    public PurchaseRingBuffer(int requestedCapacity) {
+        int capacity = 2;
+        while(capacity < requestedCapacity) {
+            capacity <<= 1;
+        }
+        this.slots = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for(int index = 0; index < capacity; index++) {
+            sequences.set(index, index);
+        }
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    public int size() {
+        long size = tail.get() - head;
+        return (int) Math.max(0, Math.min(size, slots.length));
+    }
+
+    /**
+     * Returns {@code false} without waiting when the ring is full.
+     */
+    public boolean offer(E element) {
+        long position;
+        int index;
+        while(true) {
+            position = tail.get();
+            index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if(difference == 0) {
+                if(tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+            } else if(difference < 0) {
+                return false;
+            }
+        }
+        slots[index] = element;
+        sequences.set(index, position + 1);
+        return true;
+    }
+
+    /**
+     * Consumer only.
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long position = head;
+        int index = (int) position & mask;
+        if(sequences.get(index) != position + 1) {
+            return null;
+        }
+        E element = (E) slots[index];
+        slots[index] = null;
+        sequences.set(index, position + slots.length);
+        head = position + 1;
+        return element;
+    }
+
+    /**
+     * Consumer only. Moves at most {@code max} elements into {@code target} and returns how many were moved.
+     */
+    public int drainTo(List<E> target, int max) {
+        int drained = 0;
+        E element;
+        while(drained < max && (element = poll()) != null) {
+            target.add(element);
+            drained++;
+        }
+        return drained;
+    }
+}
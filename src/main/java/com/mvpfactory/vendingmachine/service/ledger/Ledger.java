@@ -0,0 +1,129 @@
+package com.mvpfactory.vendingmachine.service.ledger;
+
+import com.mvpfactory.vendingmachine.repository.LedgerRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Append-only audit trail of every deposit movement. Entries recorded inside a transaction are batch-inserted in it,
+ * so they commit or roll back with the change they describe. Only IN_MEMORY mode records outside one: its entries
+ * are queued and batch-inserted by a background writer, as durable as the engine's own write-behind balances. At most
+ * {@code ledger_max_pending} entries wait; beyond that callers write their entries themselves, and whatever is queued
+ * is written on shutdown. The trail is for auditing only: {@code users.deposit} stays the balance every purchase
+ * reads and guards.
+ */
+@Slf4j
+@Service
+@DependsOn("liquibase")
+public class Ledger {
+
+    private final LedgerRepository ledgerRepository;
+    private final long flushIntervalMs;
+    private final int batchSize;
+    private final int maxPending;
+    private final Queue<LedgerEntry> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    private ScheduledExecutorService writer;
+
+    @Autowired
+    public Ledger(LedgerRepository ledgerRepository,
+                  @Value("${ledger_flush_interval_ms:200}") long flushIntervalMs,
+                  @Value("${ledger_batch_size:500}") int batchSize,
+                  @Value("${ledger_max_pending:10000}") int maxPending) {
+        this.ledgerRepository = ledgerRepository;
+        this.flushIntervalMs = flushIntervalMs;
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+    }
+
+    @PostConstruct
+    public void start() {
+        writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ledger-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        writer.shutdown();
+        writer.awaitTermination(10, TimeUnit.SECONDS);
+        flush();
+    }
+
+    public void record(LedgerEntry entry) {
+        record(List.of(entry));
+    }
+
+    /**
+     * Entries that move neither deposit nor stock (empty fills, zero refunds) are dropped.
+     */
+    public void record(List<LedgerEntry> entries) {
+        List<LedgerEntry> movements = entries.stream()
+                .filter(entry -> entry.getDepositDelta() != 0 || entry.getQuantity() != 0)
+                .collect(Collectors.toList());
+        if(movements.isEmpty()) {
+            return;
+        }
+        if(TransactionSynchronizationManager.isActualTransactionActive()) {
+            ledgerRepository.append(movements);
+        } else if(pendingCount.addAndGet(movements.size()) > maxPending) {
+            pendingCount.addAndGet(-movements.size());
+            // the writer fell behind: write these now rather than queue without bound
+            if(!append(movements)) {
+                log.warn("Ledger is {} entries behind", pendingCount.get());
+            }
+        } else {
+            pending.addAll(movements);
+        }
+    }
+
+    public synchronized void flush() {
+        List<LedgerEntry> batch = new ArrayList<>(batchSize);
+        LedgerEntry entry;
+        while((entry = pending.poll()) != null) {
+            pendingCount.decrementAndGet();
+            batch.add(entry);
+            if(batch.size() == batchSize) {
+                if(!append(batch)) {
+                    return;
+                }
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if(!batch.isEmpty()) {
+            append(batch);
+        }
+    }
+
+    private boolean append(List<LedgerEntry> batch) {
+        try {
+            ledgerRepository.append(batch);
+            return true;
+        } catch (RuntimeException ex) {
+            log.error("Ledger append of {} entries failed, they will be retried", batch.size(), ex);
+            pendingCount.addAndGet(batch.size());
+            pending.addAll(batch);
+            return false;
+        }
+    }
+}
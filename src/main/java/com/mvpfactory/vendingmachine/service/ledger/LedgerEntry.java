@@ -0,0 +1,41 @@
+package com.mvpfactory.vendingmachine.service.ledger;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.UUID;
+
+/**
+ * One immutable movement of a user's deposit. {@code depositDelta} is signed, so a user's balance is the sum of
+ * the deltas of all their entries; {@code quantity} is the number of units taken by a purchase line.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+public class LedgerEntry {
+
+    private final UUID userId;
+    private final UUID productId;
+    private final LedgerEntryType type;
+    private final int depositDelta;
+    private final int quantity;
+
+    public static LedgerEntry deposit(UUID userId, int coin) {
+        return new LedgerEntry(userId, null, LedgerEntryType.DEPOSIT, coin, 0);
+    }
+
+    public static LedgerEntry reset(UUID userId, int refunded) {
+        return new LedgerEntry(userId, null, LedgerEntryType.RESET, -refunded, 0);
+    }
+
+    public static LedgerEntry purchase(UUID userId, UUID productId, int quantity, int cost) {
+        return new LedgerEntry(userId, productId, LedgerEntryType.PURCHASE, -quantity * cost, quantity);
+    }
+
+    public static LedgerEntry change(UUID userId, int dispensed) {
+        return new LedgerEntry(userId, null, LedgerEntryType.CHANGE, -dispensed, 0);
+    }
+}
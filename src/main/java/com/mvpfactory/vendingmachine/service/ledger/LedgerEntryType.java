@@ -0,0 +1,9 @@
+package com.mvpfactory.vendingmachine.service.ledger;
+
+public enum LedgerEntryType {
+    OPENING,
+    DEPOSIT,
+    RESET,
+    PURCHASE,
+    CHANGE
+}
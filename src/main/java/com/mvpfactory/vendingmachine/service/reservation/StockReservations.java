@@ -0,0 +1,232 @@
+package com.mvpfactory.vendingmachine.service.reservation;
+
+import com.mvpfactory.vendingmachine.error.model.InsufficientStockException;
+import com.mvpfactory.vendingmachine.error.model.OperationNotAllowedException;
+import com.mvpfactory.vendingmachine.error.model.ReservationNotFoundException;
+import com.mvpfactory.vendingmachine.model.Reservation;
+import com.mvpfactory.vendingmachine.service.catalog.CatalogVersion;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Time limited stock holds of this instance. Holds live only in memory: a per-product reserved counter that
+ * catalog reads and other buyers subtract from the stock, and a {@link TimingWheel} that hands expired holds back
+ * without scanning anything. A hold is claimed when it is confirmed and its units stay reserved until the purchase
+ * finished.
+ * <p>
+ * Purchases run under the read side of a per-product guard and new holds take its write side, so the reserved count
+ * a purchase guards its decrement with cannot grow before that purchase committed, and a hold is checked against
+ * stock no purchase of this instance is still taking from. Buys do not wait for each other, only for holds.
+ */
+@Slf4j
+@Service
+public class StockReservations {
+
+    private static final int GUARDS = 64;
+
+    private final CatalogVersion catalogVersion;
+    private final long ttlMs;
+    private final long tickMs;
+    private final int wheelSize;
+    private final Map<UUID, Hold> holds = new ConcurrentHashMap<>();
+    private final Map<UUID, Integer> reserved = new ConcurrentHashMap<>();
+    private final ReadWriteLock[] guards = new ReadWriteLock[GUARDS];
+
+    private TimingWheel<Hold> wheel;
+    private ScheduledExecutorService ticker;
+
+    @Autowired
+    public StockReservations(CatalogVersion catalogVersion,
+                             @Value("${reservation_ttl_ms:120000}") long ttlMs,
+                             @Value("${reservation_tick_ms:100}") long tickMs,
+                             @Value("${reservation_wheel_size:64}") int wheelSize) {
+        this.catalogVersion = catalogVersion;
+        this.ttlMs = ttlMs;
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        for(int index = 0; index < GUARDS; index++) {
+            guards[index] = new ReentrantReadWriteLock();
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        wheel = new TimingWheel<>(tickMs, wheelSize, System.currentTimeMillis());
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reservation-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::expire, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        ticker.shutdownNow();
+    }
+
+    /**
+     * Holds {@code amount} units as long as the holds of the product stay within its stock, read only once no
+     * purchase of the product is in flight.
+     */
+    public Reservation hold(UUID userId, UUID productId, int amount, IntSupplier stockOf) {
+        Lock guard = guardOf(productId).writeLock();
+        guard.lock();
+        try {
+            int stock = stockOf.getAsInt();
+            reserved.compute(productId, (id, current) -> {
+                int total = (current == null ? 0 : current) + amount;
+                if(total > stock) {
+                    throw new InsufficientStockException(String.format("Only %d units of product id %s are left to reserve",
+                            Math.max(0, stock - (current == null ? 0 : current)), productId));
+                }
+                return total;
+            });
+        } finally {
+            guard.unlock();
+        }
+        long expiresAt = System.currentTimeMillis() + ttlMs;
+        Hold hold = new Hold(userId, Reservation.builder()
+                .id(UUID.randomUUID())
+                .productId(productId)
+                .amount(amount)
+                .expiresAt(new Timestamp(expiresAt))
+                .build());
+        holds.put(hold.reservation.getId(), hold);
+        synchronized (wheel) {
+            hold.timeout = wheel.schedule(hold, expiresAt);
+        }
+        if(hold.timeout == null) {
+            expired(hold);
+        }
+        catalogVersion.bump();
+        return hold.reservation;
+    }
+
+    public int reservedOf(UUID productId) {
+        return reserved.getOrDefault(productId, 0);
+    }
+
+    /**
+     * Runs a purchase of the products, including its commit, while no new hold can be taken on them. Holds may still
+     * be released or expire meanwhile, which only leaves the purchase more careful than needed. Guards are taken in
+     * index order, so carts over the same products never wait for each other in a cycle.
+     */
+    public <T> T whileHoldsStable(Collection<UUID> productIds, Supplier<T> purchase) {
+        Lock[] locks = productIds.stream()
+                .mapToInt(StockReservations::guardIndex)
+                .distinct()
+                .sorted()
+                .mapToObj(index -> guards[index].readLock())
+                .toArray(Lock[]::new);
+        int locked = 0;
+        try {
+            for(Lock lock : locks) {
+                lock.lock();
+                locked++;
+            }
+            return purchase.get();
+        } finally {
+            for(int index = locked - 1; index >= 0; index--) {
+                locks[index].unlock();
+            }
+        }
+    }
+
+    /**
+     * Takes the hold out of the wheel so it can no longer expire or be claimed twice; its units stay reserved until
+     * {@link #settle(Reservation)}.
+     */
+    public Reservation claim(UUID reservationId, UUID userId) {
+        Hold hold = ownedHold(reservationId, userId);
+        if(!holds.remove(reservationId, hold)) {
+            throw new ReservationNotFoundException(String.format("Reservation id %s not found", reservationId));
+        }
+        synchronized (wheel) {
+            if(hold.timeout != null) {
+                wheel.cancel(hold.timeout);
+            }
+        }
+        return hold.reservation;
+    }
+
+    public void settle(Reservation reservation) {
+        unreserve(reservation);
+    }
+
+    public void release(UUID reservationId, UUID userId) {
+        settle(claim(reservationId, userId));
+    }
+
+    private ReadWriteLock guardOf(UUID productId) {
+        return guards[guardIndex(productId)];
+    }
+
+    private static int guardIndex(UUID productId) {
+        return Math.floorMod(productId.hashCode(), GUARDS);
+    }
+
+    private Hold ownedHold(UUID reservationId, UUID userId) {
+        Hold hold = holds.get(reservationId);
+        if(hold == null) {
+            throw new ReservationNotFoundException(String.format("Reservation id %s not found", reservationId));
+        }
+        if(!hold.userId.equals(userId)) {
+            throw new OperationNotAllowedException("Cannot use a reservation not made by you");
+        }
+        return hold;
+    }
+
+    private void expire() {
+        try {
+            synchronized (wheel) {
+                wheel.advanceTo(System.currentTimeMillis(), this::expired);
+            }
+        } catch (RuntimeException ex) {
+            log.error("Reservation expiry failed", ex);
+        }
+    }
+
+    private void expired(Hold hold) {
+        if(holds.remove(hold.reservation.getId(), hold)) {
+            log.info("Reservation {} of product {} expired", hold.reservation.getId(), hold.reservation.getProductId());
+            unreserve(hold.reservation);
+        }
+    }
+
+    private void unreserve(Reservation reservation) {
+        reserved.computeIfPresent(reservation.getProductId(), (id, current) ->
+                current - reservation.getAmount() <= 0 ? null : current - reservation.getAmount());
+        catalogVersion.bump();
+    }
+
+    private static class Hold {
+
+        private final UUID userId;
+        private final Reservation reservation;
+        private TimingWheel.Timeout<Hold> timeout;
+
+        private Hold(UUID userId, Reservation reservation) {
+            this.userId = userId;
+            this.reservation = reservation;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.mvpfactory.vendingmachine.service.reservation;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel. Level {@code L} has {@code wheelSize} buckets of {@code wheelSize^L} ticks each;
+ * a timeout goes to the lowest level whose span covers its deadline and is moved one level down when the wheel
+ * reaches its bucket, so scheduling and cancelling are O(1) and every tick only touches the buckets due on it.
+ * Levels are added on demand for far deadlines. Not thread-safe, the owner serializes access.
+ */
+public class TimingWheel<T> {
+
+    private final long tickMs;
+    private final int wheelSize;
+    private final long startMs;
+    private final List<List<Set<Timeout<T>>>> levels = new ArrayList<>();
+    private long ticks;
+
+    public TimingWheel(long tickMs, int wheelSize, long startMs) {
+        if(tickMs <= 0 || wheelSize < 2) {
+            throw new IllegalArgumentException("Tick must be positive and the wheel needs at least two buckets");
+        }
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        this.startMs = startMs;
+        addLevel();
+    }
+
+    /**
+     * Returns {@code null} when the deadline falls on a tick that already passed; the caller expires it itself.
+     */
+    public Timeout<T> schedule(T item, long deadlineMs) {
+        Timeout<T> timeout = new Timeout<>(item, Math.floorDiv(deadlineMs - startMs + tickMs - 1, tickMs));
+        return place(timeout) ? timeout : null;
+    }
+
+    public boolean cancel(Timeout<T> timeout) {
+        if(timeout.bucket == null) {
+            return false;
+        }
+        timeout.bucket.remove(timeout);
+        timeout.bucket = null;
+        return true;
+    }
+
+    /**
+     * Runs every tick up to {@code nowMs}, handing the items that expired to {@code expired} tick by tick.
+     */
+    public void advanceTo(long nowMs, Consumer<T> expired) {
+        long target = Math.floorDiv(nowMs - startMs, tickMs);
+        while(ticks < target) {
+            ticks++;
+            long span = 1;
+            for(int level = 1; level < levels.size(); level++) {
+                span *= wheelSize;
+                if(ticks % span == 0) {
+                    Set<Timeout<T>> bucket = levels.get(level).get((int) ((ticks / span) % wheelSize));
+                    List<Timeout<T>> cascading = new ArrayList<>(bucket);
+                    bucket.clear();
+                    for(Timeout<T> timeout : cascading) {
+                        timeout.bucket = null;
+                        if(!place(timeout)) {
+                            expired.accept(timeout.item);
+                        }
+                    }
+                }
+            }
+            Set<Timeout<T>> due = levels.get(0).get((int) (ticks % wheelSize));
+            List<Timeout<T>> expiring = new ArrayList<>(due);
+            due.clear();
+            for(Timeout<T> timeout : expiring) {
+                timeout.bucket = null;
+                expired.accept(timeout.item);
+            }
+        }
+    }
+
+    private boolean place(Timeout<T> timeout) {
+        long delay = timeout.deadlineTick - ticks;
+        if(delay <= 0) {
+            return false;
+        }
+        long span = 1;
+        int level = 0;
+        while(delay >= span * wheelSize) {
+            span *= wheelSize;
+            level++;
+            if(level == levels.size()) {
+                addLevel();
+            }
+        }
+        Set<Timeout<T>> bucket = levels.get(level).get((int) ((timeout.deadlineTick / span) % wheelSize));
+        bucket.add(timeout);
+        timeout.bucket = bucket;
+        return true;
+    }
+
+    private void addLevel() {
+        List<Set<Timeout<T>>> buckets = new ArrayList<>(wheelSize);
+        for(int index = 0; index < wheelSize; index++) {
+            buckets.add(new LinkedHashSet<>());
+        }
+        levels.add(buckets);
+    }
+
+    public static final class Timeout<T> {
+
+        private final T item;
+        private final long deadlineTick;
+        private Set<Timeout<T>> bucket;
+
+        private Timeout(T item, long deadlineTick) {
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public T item() {
+            return item;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.mvpfactory.vendingmachine.service.retry;
+
+import com.mvpfactory.vendingmachine.error.model.UpdateConflictException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Re-runs an optimistic read-modify-write that lost a version race, at most {@code attempts} times. Attempts are
+ * spaced with full jitter, a random pause up to {@code baseDelayMs * 2^attempt}, so writers that collided once do
+ * not collide again in lockstep.
+ */
+@Slf4j
+@Component
+public class OptimisticRetry {
+
+    private final int attempts;
+    private final long baseDelayMs;
+
+    @Autowired
+    public OptimisticRetry(@Value("${optimistic_retry_attempts:3}") int attempts,
+                           @Value("${optimistic_retry_base_delay_ms:10}") long baseDelayMs) {
+        this.attempts = attempts;
+        this.baseDelayMs = baseDelayMs;
+    }
+
+    public <T> T run(String subject, Supplier<T> attempt) {
+        for(int index = 1; ; index++) {
+            try {
+                return attempt.get();
+            } catch (OptimisticLockingFailureException ex) {
+                if(index >= attempts) {
+                    throw new UpdateConflictException(String.format("%s kept changing concurrently, please retry", subject));
+                }
+                log.info("Version conflict updating {}, attempt {} of {}", subject, index, attempts);
+                pause(index);
+            }
+        }
+    }
+
+    private void pause(int attempt) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(baseDelayMs << attempt) + 1);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new UpdateConflictException("Interrupted while retrying a concurrent update");
+        }
+    }
+}
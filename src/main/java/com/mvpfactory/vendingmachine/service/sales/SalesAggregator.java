@@ -0,0 +1,193 @@
+package com.mvpfactory.vendingmachine.service.sales;
+
+import com.mvpfactory.vendingmachine.model.SalesStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Units sold, revenue and last sale per product. A buy only adds to this instance's striped {@link LongAdder}s, so
+ * concurrent buys of a hot product never contend on one counter and never wait for the database. A single flusher
+ * thread periodically moves the unflushed part of every product into {@code product_sales} as increments, so several
+ * instances add up in the table. Reads are the stored totals, which include every instance's flushed sales, plus
+ * this instance's pending increments.
+ */
+@Slf4j
+@Service
+@DependsOn("liquibase")
+public class SalesAggregator {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final long flushIntervalMs;
+    private final Map<UUID, Counters> products = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService flusher;
+
+    @Autowired
+    public SalesAggregator(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                           @Value("${sales_flush_interval_ms:1000}") long flushIntervalMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.flushIntervalMs = flushIntervalMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sales-aggregate-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+        flush();
+    }
+
+    public void record(UUID productId, int units, int revenue) {
+        if(units <= 0) {
+            return;
+        }
+        products.computeIfAbsent(productId, id -> new Counters()).add(units, revenue, System.currentTimeMillis());
+    }
+
+    public SalesStats productStats(UUID productId, UUID sellerId) {
+        Map<String, Object> stored = jdbcTemplate.queryForList(
+                "SELECT units_sold, revenue, last_sold_date FROM product_sales WHERE product_id = ?", productId)
+                .stream().findFirst().orElse(Map.of());
+        return withPending(stored, List.of(productId)).productId(productId).sellerId(sellerId).build();
+    }
+
+    public SalesStats sellerStats(UUID sellerId) {
+        Map<String, Object> stored = jdbcTemplate.queryForMap("SELECT SUM(units_sold) AS units_sold, SUM(revenue) AS revenue, " +
+                "MAX(last_sold_date) AS last_sold_date FROM product_sales WHERE seller_id = ?", sellerId);
+        List<UUID> productIds = products.isEmpty() ? List.of()
+                : jdbcTemplate.queryForList("SELECT id FROM products WHERE seller_id = ?", UUID.class, sellerId);
+        return withPending(stored, productIds).sellerId(sellerId).build();
+    }
+
+    /**
+     * Takes each product's pending increments and adds them to its row in one transaction, so a round is stored
+     * entirely or not at all: one batched {@code UPDATE} for every row, then one batched {@code INSERT} for the
+     * products that had none yet. Both run on PostgreSQL and H2. Increments of a failed round, including one that lost
+     * an insert race against another instance, are handed back to the counters and retried with the next one, where
+     * they find the row and update it.
+     */
+    public synchronized void flush() {
+        List<UUID> ids = new ArrayList<>();
+        List<Object[]> increments = new ArrayList<>();
+        products.forEach((productId, counters) -> {
+            long units = counters.pendingUnits.sumThenReset();
+            long revenue = counters.pendingRevenue.sumThenReset();
+            if(units != 0 || revenue != 0) {
+                ids.add(productId);
+                increments.add(new Object[]{units, revenue, new Timestamp(counters.lastSold.get()), productId});
+            }
+        });
+        if(increments.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> upsert(increments));
+        } catch (RuntimeException ex) {
+            log.error("Sales aggregate flush failed, increments will be retried", ex);
+            for(int index = 0; index < increments.size(); index++) {
+                Counters counters = products.get(ids.get(index));
+                counters.pendingUnits.add((Long) increments.get(index)[0]);
+                counters.pendingRevenue.add((Long) increments.get(index)[1]);
+            }
+        }
+    }
+
+    /**
+     * The seller of a first sale is taken from {@code products} by the insert itself; a product deleted before its
+     * first flush has no row to take it from and its sales are dropped.
+     */
+    private void upsert(List<Object[]> increments) {
+        List<Object[]> updates = new ArrayList<>(increments.size());
+        increments.forEach(row -> updates.add(new Object[]{row[0], row[1], row[2], row[2], row[3]}));
+        int[] updated = jdbcTemplate.batchUpdate("UPDATE product_sales SET units_sold = units_sold + ?, revenue = revenue + ?, " +
+                "last_sold_date = CASE WHEN last_sold_date IS NULL OR last_sold_date < ? THEN ? ELSE last_sold_date END " +
+                "WHERE product_id = ?", updates);
+        List<Object[]> inserts = new ArrayList<>();
+        for(int index = 0; index < updated.length; index++) {
+            if(updated[index] == 0) {
+                inserts.add(increments.get(index));
+            }
+        }
+        if(inserts.isEmpty()) {
+            return;
+        }
+        int[] inserted = jdbcTemplate.batchUpdate("INSERT INTO product_sales (product_id, seller_id, units_sold, revenue, last_sold_date) " +
+                "SELECT id, seller_id, CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS TIMESTAMP) FROM products WHERE id = ?", inserts);
+        for(int index = 0; index < inserted.length; index++) {
+            if(inserted[index] == 0) {
+                log.warn("Product {} was deleted before its sales were stored", inserts.get(index)[3]);
+            }
+        }
+    }
+
+    /**
+     * The stored totals are read before the pending increments, so a flush committing in between is at worst missed
+     * by one read, never counted twice.
+     */
+    private SalesStats.SalesStatsBuilder withPending(Map<String, Object> stored, Collection<UUID> productIds) {
+        long units = longOf(stored.get("units_sold"));
+        long revenue = longOf(stored.get("revenue"));
+        Timestamp storedLastSold = (Timestamp) stored.get("last_sold_date");
+        long lastSold = storedLastSold == null ? 0 : storedLastSold.getTime();
+        for(UUID productId : productIds) {
+            Counters counters = products.get(productId);
+            if(counters != null) {
+                units += counters.pendingUnits.sum();
+                revenue += counters.pendingRevenue.sum();
+                lastSold = Math.max(lastSold, counters.lastSold.get());
+            }
+        }
+        return SalesStats.builder()
+                .unitsSold(units)
+                .revenue(revenue)
+                .lastSoldDate(lastSold == 0 ? null : new Timestamp(lastSold));
+    }
+
+    private static long longOf(Object value) {
+        return value == null ? 0 : ((Number) value).longValue();
+    }
+
+    private static class Counters {
+
+        private final LongAdder pendingUnits = new LongAdder();
+        private final LongAdder pendingRevenue = new LongAdder();
+        private final AtomicLong lastSold = new AtomicLong();
+
+        private void add(int units, int revenue, long soldAt) {
+            pendingUnits.add(units);
+            pendingRevenue.add(revenue);
+            lastSold.accumulateAndGet(soldAt, Math::max);
+        }
+    }
+}
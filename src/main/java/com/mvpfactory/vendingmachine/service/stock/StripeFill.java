@@ -0,0 +1,13 @@
+package com.mvpfactory.vendingmachine.service.stock;
+
+import lombok.Value;
+
+/**
+ * Units taken from the stripes of a product and the total stock they held before.
+ */
+@Value
+public class StripeFill {
+
+    int quantity;
+    int amountAvailable;
+}
@@ -0,0 +1,91 @@
+package com.mvpfactory.vendingmachine.service.stock;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Stock of hot products split over {@code product_stock_stripes} rows. While a product is striped its
+ * {@code products.amount_available} stays 0 and the stripes hold the stock, so concurrent buyers starting on
+ * different stripes lock different rows. Every decrement is guarded by {@code amount >= taken}, so stock never goes
+ * negative. All methods must run inside the caller's transaction.
+ */
+@Service
+@RequiredArgsConstructor
+public class StripedStock {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Takes up to {@code wanted} units starting at a random stripe and moving on to the next ones while units are
+     * missing, leaving {@code reserved} units over all stripes untouched. Without reservations the stripes are read
+     * unlocked and a stripe a concurrent buyer took from first is retried with what it has left. Reserved units are
+     * a bound on all stripes together, so while there are any the stripes are locked first and the bound is checked
+     * against what they hold under that lock. Returns {@code null} when the product is not striped.
+     */
+    public StripeFill take(UUID productId, int wanted, int reserved) {
+        String select = "SELECT stripe, amount FROM product_stock_stripes WHERE product_id = ? ORDER BY stripe";
+        List<int[]> stripes = jdbcTemplate.query(reserved > 0 ? select + " FOR UPDATE" : select,
+                (resultSet, rowNum) -> new int[]{resultSet.getInt("stripe"), resultSet.getInt("amount")}, productId);
+        if(stripes.isEmpty()) {
+            return null;
+        }
+        int available = stripes.stream().mapToInt(stripe -> stripe[1]).sum();
+        int target = Math.max(0, Math.min(wanted, available - reserved));
+        int remaining = target;
+        int start = ThreadLocalRandom.current().nextInt(stripes.size());
+        for(int offset = 0; offset < stripes.size() && remaining > 0; offset++) {
+            int[] stripe = stripes.get((start + offset) % stripes.size());
+            remaining -= takeFrom(productId, stripe[0], stripe[1], remaining);
+        }
+        return new StripeFill(target - remaining, available);
+    }
+
+    /**
+     * Takes up to {@code wanted} units from one stripe, re-reading it and trying again with less each time another
+     * buyer got to it first, until the stripe is empty.
+     */
+    private int takeFrom(UUID productId, int stripe, int seen, int wanted) {
+        int amount = seen;
+        while(amount > 0) {
+            int taken = Math.min(amount, wanted);
+            if(jdbcTemplate.update("UPDATE product_stock_stripes SET amount = amount - ? " +
+                    "WHERE product_id = ? AND stripe = ? AND amount >= ?", taken, productId, stripe, taken) == 1) {
+                return taken;
+            }
+            amount = jdbcTemplate.queryForList("SELECT amount FROM product_stock_stripes WHERE product_id = ? AND stripe = ?",
+                    Integer.class, productId, stripe).stream().findFirst().orElse(0);
+        }
+        return 0;
+    }
+
+    public int stripesOf(UUID productId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM product_stock_stripes WHERE product_id = ?", Integer.class, productId);
+    }
+
+    /**
+     * Locks and removes all stripes of the product and returns the stock they held.
+     */
+    public int drain(UUID productId) {
+        int total = jdbcTemplate.queryForList("SELECT amount FROM product_stock_stripes WHERE product_id = ? FOR UPDATE", Integer.class, productId)
+                .stream().mapToInt(Integer::intValue).sum();
+        jdbcTemplate.update("DELETE FROM product_stock_stripes WHERE product_id = ?", productId);
+        return total;
+    }
+
+    /**
+     * Spreads {@code amount} evenly over {@code stripes} new rows, the remainder going to the first ones.
+     */
+    public void distribute(UUID productId, int stripes, int amount) {
+        List<Object[]> rows = new ArrayList<>(stripes);
+        for(int stripe = 0; stripe < stripes; stripe++) {
+            rows.add(new Object[]{productId, stripe, amount / stripes + (stripe < amount % stripes ? 1 : 0)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO product_stock_stripes (product_id, stripe, amount) VALUES (?, ?, ?)", rows);
+    }
+}
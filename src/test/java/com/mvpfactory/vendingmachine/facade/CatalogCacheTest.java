@@ -0,0 +1,81 @@
+package com.mvpfactory.vendingmachine.facade;
+
+import com.mvpfactory.vendingmachine.service.catalog.CatalogVersion;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class CatalogCacheTest {
+
+    private static final String KEY = "list";
+
+    @Mock
+    private CatalogVersion catalogVersion;
+
+    @Test
+    public void sameCatalogVersion_thenServeCachedBytesWithoutLoading() {
+        CatalogCache catalogCache = new CatalogCache(catalogVersion, 10);
+        AtomicInteger loads = new AtomicInteger();
+        when(catalogVersion.current()).thenReturn(1L);
+
+        CatalogCache.Entry first = catalogCache.get(KEY, () -> load(loads, "[]"));
+        CatalogCache.Entry second = catalogCache.get(KEY, () -> load(loads, "[]"));
+
+        assertThat(second).isSameAs(first);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    public void catalogVersionBumped_thenReloadAndKeepEtagForSameContent() {
+        CatalogCache catalogCache = new CatalogCache(catalogVersion, 10);
+        AtomicInteger loads = new AtomicInteger();
+        when(catalogVersion.current()).thenReturn(1L, 2L);
+
+        CatalogCache.Entry first = catalogCache.get(KEY, () -> load(loads, "[]"));
+        CatalogCache.Entry second = catalogCache.get(KEY, () -> load(loads, "[]"));
+
+        assertThat(loads).hasValue(2);
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getEtag()).isEqualTo(first.getEtag());
+    }
+
+    @Test
+    public void bodyWithVersion_thenEtagCarriesItInFront() {
+        CatalogCache catalogCache = new CatalogCache(catalogVersion, 10);
+        when(catalogVersion.current()).thenReturn(1L);
+
+        CatalogCache.Entry row = catalogCache.get("id", () -> new CatalogCache.Body("{}".getBytes(StandardCharsets.UTF_8), null, 3L));
+
+        assertThat(row.getEtag()).startsWith("\"3-").endsWith("\"");
+    }
+
+    @Test
+    public void fullCache_thenOnlyLeastRecentlyUsedEntryEvicted() {
+        CatalogCache catalogCache = new CatalogCache(catalogVersion, 2);
+        AtomicInteger loads = new AtomicInteger();
+        when(catalogVersion.current()).thenReturn(1L);
+
+        catalogCache.get("a", () -> load(loads, "[]"));
+        catalogCache.get("b", () -> load(loads, "[]"));
+        catalogCache.get("a", () -> load(loads, "[]"));
+        catalogCache.get("c", () -> load(loads, "[]"));
+        catalogCache.get("a", () -> load(loads, "[]"));
+
+        assertThat(loads).hasValue(3);
+        catalogCache.get("b", () -> load(loads, "[]"));
+        assertThat(loads).hasValue(4);
+    }
+
+    private CatalogCache.Body load(AtomicInteger loads, String json) {
+        loads.incrementAndGet();
+        return new CatalogCache.Body(json.getBytes(StandardCharsets.UTF_8), null);
+    }
+}
@@ -0,0 +1,98 @@
+package com.mvpfactory.vendingmachine.security.token;
+
+import com.mvpfactory.vendingmachine.model.Role;
+import com.mvpfactory.vendingmachine.security.model.AuthUserDetails;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AuthTokenServiceTest {
+
+    private static final String SECRET = "test-secret";
+    private static final Instant NOW = Instant.parse("2022-01-01T10:00:00Z");
+    private static final AuthUserDetails USER = new AuthUserDetails(UUID.randomUUID(), "user|1", Role.BUYER);
+
+    private AuthTokenService buildService(Instant now) {
+        return new AuthTokenService(SECRET, 900, Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    @Test
+    public void issuedToken_thenAuthenticatesWithSameClaims() {
+        AuthTokenService authTokenService = buildService(NOW);
+
+        Optional<AuthUserDetails> result = authTokenService.authenticate(authTokenService.issue(USER));
+
+        assertThat(result).isPresent();
+        assertThat(result.get().getId()).isEqualTo(USER.getId());
+        assertThat(result.get().getUsername()).isEqualTo(USER.getUsername());
+        assertThat(result.get().getRole()).isEqualTo(Role.BUYER);
+    }
+
+    @Test
+    public void tamperedToken_thenRejected() {
+        AuthTokenService authTokenService = buildService(NOW);
+        String token = authTokenService.issue(USER);
+        String forgedPayload = new AuthTokenCodec("other-secret".getBytes())
+                .encode(new AuthTokenClaims(USER.getId(), USER.getUsername(), Role.SELLER, 0, Long.MAX_VALUE));
+
+        assertThat(authTokenService.authenticate(forgedPayload)).isEmpty();
+        assertThat(authTokenService.authenticate(token.substring(0, token.length() - 2))).isEmpty();
+        assertThat(authTokenService.authenticate("not-a-token")).isEmpty();
+    }
+
+    @Test
+    public void expiredToken_thenRejected() {
+        String token = buildService(NOW).issue(USER);
+
+        assertThat(buildService(NOW.plus(Duration.ofMinutes(16))).authenticate(token)).isEmpty();
+    }
+
+    @Test
+    public void revokedUser_thenOlderTokensRejectedAndNewerAccepted() {
+        String oldToken = buildService(NOW).issue(USER);
+        AuthTokenService authTokenService = buildService(NOW.plusSeconds(1));
+        authTokenService.revoke(USER.getId());
+
+        String newToken = buildService(NOW.plusSeconds(2)).issue(USER);
+
+        assertThat(authTokenService.authenticate(oldToken)).isEmpty();
+        assertThat(authTokenService.authenticate(newToken)).isPresent();
+    }
+
+    @Test
+    public void loginInSameInstantAsRevocation_thenOnlyTheNewTokenAccepted() {
+        AuthTokenService authTokenService = buildService(NOW);
+        String oldToken = authTokenService.issue(USER);
+        authTokenService.revoke(USER.getId());
+
+        String newToken = authTokenService.issue(USER);
+
+        assertThat(authTokenService.authenticate(oldToken)).isEmpty();
+        assertThat(authTokenService.authenticate(newToken)).isPresent();
+    }
+
+    @Test
+    public void revocationOlderThanTokenLifetime_thenPrunedOnNextRevocation() {
+        Clock clock = mock(Clock.class);
+        when(clock.instant()).thenReturn(NOW, NOW.plusSeconds(1), NOW.plus(Duration.ofMinutes(16)));
+        AuthTokenService authTokenService = new AuthTokenService(SECRET, 900, clock);
+        UUID other = UUID.randomUUID();
+
+        authTokenService.revoke(USER.getId());
+        authTokenService.revoke(other);
+        assertThat(authTokenService.revocationCount()).isEqualTo(2);
+
+        authTokenService.revoke(other);
+
+        assertThat(authTokenService.revocationCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,68 @@
+package com.mvpfactory.vendingmachine.server;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConcurrencyLimitFilterTest {
+
+    @Test
+    public void permitAvailable_thenRequestPassesThrough() throws Exception {
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(1, 100);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/products"), response, chain);
+
+        assertThat(chain.getRequest()).isNotNull();
+        assertThat(response.getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    public void allPermitsHeldPastTimeout_thenServiceUnavailable() throws Exception {
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(1, 50);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> holder = executor.submit(() -> {
+                filter.doFilter(new MockHttpServletRequest("POST", "/api/v1/products/buy"), new MockHttpServletResponse(),
+                        new MockFilterChain(new HttpServlet() {
+                            @Override
+                            protected void service(HttpServletRequest request, HttpServletResponse response) {
+                                entered.countDown();
+                                try {
+                                    release.await();
+                                } catch (InterruptedException e) {
+                                    Thread.currentThread().interrupt();
+                                }
+                            }
+                        }));
+                return null;
+            });
+            entered.await();
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            MockFilterChain chain = new MockFilterChain();
+
+            filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/products"), response, chain);
+
+            assertThat(chain.getRequest()).isNull();
+            assertThat(response.getStatus()).isEqualTo(503);
+            release.countDown();
+            holder.get();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
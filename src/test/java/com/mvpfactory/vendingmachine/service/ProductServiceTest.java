@@ -0,0 +1,475 @@
+package com.mvpfactory.vendingmachine.service;
+
+import com.mvpfactory.vendingmachine.error.model.InsufficientStockException;
+import com.mvpfactory.vendingmachine.error.model.ProductNotFoundException;
+import com.mvpfactory.vendingmachine.error.model.PurchaseConflictException;
+import com.mvpfactory.vendingmachine.model.BuyRequest;
+import com.mvpfactory.vendingmachine.model.BuyResponse;
+import com.mvpfactory.vendingmachine.model.BuyStatus;
+import com.mvpfactory.vendingmachine.model.CartRequest;
+import com.mvpfactory.vendingmachine.model.CartResponse;
+import com.mvpfactory.vendingmachine.model.KeysetPage;
+import com.mvpfactory.vendingmachine.model.Product;
+import com.mvpfactory.vendingmachine.model.ProductFilter;
+import com.mvpfactory.vendingmachine.repository.KeysetCursor;
+import com.mvpfactory.vendingmachine.repository.NameCursor;
+import com.mvpfactory.vendingmachine.repository.ProductCatalogRepository;
+import com.mvpfactory.vendingmachine.repository.ProductRepository;
+import com.mvpfactory.vendingmachine.repository.UserRepository;
+import com.mvpfactory.vendingmachine.repository.entity.ProductEntity;
+import com.mvpfactory.vendingmachine.repository.entity.UserEntity;
+import com.mvpfactory.vendingmachine.repository.mapper.ProductMapper;
+import com.mvpfactory.vendingmachine.repository.projection.PurchaseResult;
+import com.mvpfactory.vendingmachine.service.bulk.ProductBulkUpdater;
+import com.mvpfactory.vendingmachine.service.bulk.ProductImporter;
+import com.mvpfactory.vendingmachine.service.catalog.CatalogVersion;
+import com.mvpfactory.vendingmachine.service.catalog.ProductSearchIndex;
+import com.mvpfactory.vendingmachine.service.change.Change;
+import com.mvpfactory.vendingmachine.service.change.ChangeCalculator;
+import com.mvpfactory.vendingmachine.service.change.CoinFloat;
+import com.mvpfactory.vendingmachine.service.history.PurchaseHistory;
+import com.mvpfactory.vendingmachine.service.reservation.StockReservations;
+import com.mvpfactory.vendingmachine.service.retry.OptimisticRetry;
+import com.mvpfactory.vendingmachine.service.sales.SalesAggregator;
+import com.mvpfactory.vendingmachine.service.stock.StripeFill;
+import com.mvpfactory.vendingmachine.service.stock.StripedStock;
+import com.mvpfactory.vendingmachine.service.ledger.Ledger;
+import com.mvpfactory.vendingmachine.service.ledger.LedgerEntry;
+import com.mvpfactory.vendingmachine.service.engine.InventoryEngine;
+import com.mvpfactory.vendingmachine.service.engine.PurchaseFill;
+import com.mvpfactory.vendingmachine.security.AuthUserService;
+import com.mvpfactory.vendingmachine.security.model.AuthUserDetails;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ProductServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private ProductCatalogRepository productCatalogRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private ProductMapper productMapper;
+
+    @Mock
+    private AuthUserService authUserService;
+
+    @Mock
+    private InventoryEngine inventoryEngine;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private CoinFloat coinFloat;
+
+    @Mock
+    private Ledger ledger;
+
+    @Mock
+    private PurchaseHistory purchaseHistory;
+
+    @Mock
+    private SalesAggregator salesAggregator;
+
+    @Mock
+    private CatalogVersion catalogVersion;
+
+    @Mock
+    private ProductSearchIndex productSearchIndex;
+
+    @Mock
+    private StripedStock stripedStock;
+
+    @Mock
+    private StockReservations stockReservations;
+
+    @Mock
+    private ProductImporter productImporter;
+
+    @Mock
+    private ProductBulkUpdater productBulkUpdater;
+
+    @Mock
+    private AuthUserDetails loggedInUser;
+
+    @Mock
+    private PurchaseResult purchaseResult;
+
+    private static final String BUYER_USERNAME = "buyer";
+    private static final UUID PRODUCT_ID = UUID.randomUUID();
+    private static final UUID USER_ID = UUID.randomUUID();
+    private static final Integer COST = 15;
+
+    private ProductService buildProductService(PurchaseMode purchaseMode) {
+        lenient().when(stockReservations.whileHoldsStable(any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+        return new ProductService(productRepository, productCatalogRepository, userRepository, authUserService, productMapper, inventoryEngine,
+                new TransactionTemplate(transactionManager), new ChangeCalculator(List.of(5, 10, 20, 50, 100)), coinFloat, ledger, purchaseHistory, salesAggregator, catalogVersion, productSearchIndex, stripedStock, stockReservations, new OptimisticRetry(3, 1), productImporter, productBulkUpdater, purchaseMode, 50, 500);
+    }
+
+    private ProductEntity buildProductEntity(Integer amountAvailable) {
+        return ProductEntity.builder()
+                .id(PRODUCT_ID)
+                .amountAvailable(amountAvailable)
+                .cost(COST)
+                .build();
+    }
+
+    private UserEntity buildUserEntity(Integer deposit) {
+        return UserEntity.builder()
+                .id(USER_ID)
+                .username(BUYER_USERNAME)
+                .deposit(deposit)
+                .build();
+    }
+
+    @Test
+    public void conditionalBuy_thenReturnPostPurchaseChange() {
+
+        ProductService productService = buildProductService(PurchaseMode.CONDITIONAL);
+        when(authUserService.getLoggedInUser()).thenReturn(loggedInUser);
+        when(loggedInUser.getId()).thenReturn(USER_ID);
+        when(loggedInUser.getUsername()).thenReturn(BUYER_USERNAME);
+        when(productRepository.purchase(BUYER_USERNAME, PRODUCT_ID, 2, 0)).thenReturn(Optional.of(purchaseResult));
+        when(purchaseResult.getQuantity()).thenReturn(2);
+        when(purchaseResult.getCost()).thenReturn(COST);
+        when(purchaseResult.getDeposit()).thenReturn(35);
+        when(purchaseResult.getAmountAvailable()).thenReturn(10);
+
+        BuyResponse result = productService.buy(new BuyRequest(PRODUCT_ID, 2));
+
+        assertThat(result.getTotalSpent()).isEqualTo(30);
+        assertThat(result.getNumberOfProducts()).isEqualTo(2);
+        assertThat(result.getChange()).containsExactly(entry(20, 1), entry(10, 1), entry(5, 1));
+        assertThat(result.getStatus()).isEqualTo(BuyStatus.FILLED);
+
+        verify(productRepository).purchase(BUYER_USERNAME, PRODUCT_ID, 2, 0);
+        verifyNoMoreInteractions(productRepository);
+        verify(catalogVersion).bump();
+        verifyNoInteractions(userRepository);
+        InOrder transaction = inOrder(transactionManager, ledger);
+        transaction.verify(transactionManager).getTransaction(any());
+        transaction.verify(ledger).record(LedgerEntry.purchase(USER_ID, PRODUCT_ID, 2, COST));
+        transaction.verify(transactionManager).commit(any());
+    }
+
+    @Test
+    public void conditionalBuyOfNonExistingProduct_thenThrowProductNotFoundException() {
+
+        ProductService productService = buildProductService(PurchaseMode.CONDITIONAL);
+        when(authUserService.getLoggedInUser()).thenReturn(loggedInUser);
+        when(loggedInUser.getUsername()).thenReturn(BUYER_USERNAME);
+        when(productRepository.purchase(BUYER_USERNAME, PRODUCT_ID, 1, 0)).thenReturn(Optional.empty());
+
+        ProductNotFoundException result = assertThrows(ProductNotFoundException.class, () -> productService.buy(new BuyRequest(PRODUCT_ID, 1)));
+
+        assertThat(result).hasMessage(String.format("Product id %s not found", PRODUCT_ID));
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    public void conditionalBuyOfStripedProduct_thenFallBackToStripesWithTheBuyerLockedFirst() {
+
+        ProductService productService = buildProductService(PurchaseMode.CONDITIONAL);
+        when(authUserService.getLoggedInUser()).thenReturn(loggedInUser);
+        when(loggedInUser.getId()).thenReturn(USER_ID);
+        when(loggedInUser.getUsername()).thenReturn(BUYER_USERNAME);
+        when(productRepository.purchase(BUYER_USERNAME, PRODUCT_ID, 2, 0)).thenReturn(Optional.empty());
+        when(userRepository.findByIdForUpdate(USER_ID)).thenReturn(Optional.of(buildUserEntity(50)));
+        when(productRepository.findById(PRODUCT_ID)).thenReturn(Optional.of(buildProductEntity(0)));
+        when(stripedStock.take(PRODUCT_ID, 2, 0)).thenReturn(new StripeFill(2, 6));
+        when(userRepository.decrementDepositBy(USER_ID, 30)).thenReturn(1);
+
+        BuyResponse result = productService.buy(new BuyRequest(PRODUCT_ID, 2));
+
+        assertThat(result.getNumberOfProducts()).isEqualTo(2);
+        assertThat(result.getStatus()).isEqualTo(BuyStatus.FILLED);
+        InOrder locks = inOrder(productRepository, userRepository, stripedStock);
+        locks.verify(productRepository).purchase(BUYER_USERNAME, PRODUCT_ID, 2, 0);
+        locks.verify(userRepository).findByIdForUpdate(USER_ID);
+        locks.verify(stripedStock).take(PRODUCT_ID, 2, 0);
+    }
+
+    @Test
+    public void conditionalBuyOfProductUnstripedMeanwhile_thenAskToRetry() {
+
+        ProductService productService = buildProductService(PurchaseMode.CONDITIONAL);
+        when(authUserService.getLoggedInUser()).thenReturn(loggedInUser);
+        when(loggedInUser.getId()).thenReturn(USER_ID);
+        when(loggedInUser.getUsername()).thenReturn(BUYER_USERNAME);
+        when(productRepository.purchase(BUYER_USERNAME, PRODUCT_ID, 1, 0)).thenReturn(Optional.empty());
+        when(productRepository.findById(PRODUCT_ID)).thenReturn(Optional.of(buildProductEntity(4)));
+        when(userRepository.findByIdForUpdate(USER_ID)).thenReturn(Optional.of(buildUserEntity(50)));
+        when(stripedStock.take(PRODUCT_ID, 1, 0)).thenReturn(null);
+
+        assertThrows(PurchaseConflictException.class, () -> productService.buy(new BuyRequest(PRODUCT_ID, 1)));
+        verifyNoInteractions(ledger, catalogVersion);
+    }
+
+    @Test
+    public void standardBuyWithInsufficientDeposit_thenReturnPartialFill() {
+
+        ProductService productService = buildProductService(PurchaseMode.STANDARD);
+        when(productRepository.findById(PRODUCT_ID)).thenReturn(Optional.of(buildProductEntity(10)));
+        when(authUserService.getLoggedInUser()).thenReturn(loggedInUser);
+        when(loggedInUser.getId()).thenReturn(USER_ID);
+        when(userRepository.findByIdForUpdate(USER_ID)).thenReturn(Optional.of(buildUserEntity(50)));
+        when(userRepository.decrementDepositBy(USER_ID, 45)).thenReturn(1);
+        when(productRepository.decrementAmountBy(PRODUCT_ID, 3, 0)).thenReturn(1);
+
+        BuyResponse result = productService.buy(new BuyRequest(PRODUCT_ID, 5));
+
+        assertThat(result.getTotalSpent()).isEqualTo(45);
+        assertThat(result.getNumberOfProducts()).isEqualTo(3);
+        assertThat(result.getChange()).containsExactly(entry(5, 1));
+        assertThat(result.getStatus()).isEqualTo(BuyStatus.PARTIALLY_FILLED);
+    }
+
+    @Test
+    public void standardBuyOfStripedProduct_thenTakeFromStripesWithoutTouchingProductRow() {
+
+        ProductService productService = buildProductService(PurchaseMode.STANDARD);
+        when(productRepository.findById(PRODUCT_ID)).thenReturn(Optional.of(buildProductEntity(0)));
+        when(authUserService.getLoggedInUser()).thenReturn(loggedInUser);
+        when(loggedInUser.getId()).thenReturn(USER_ID);
+        when(userRepository.findByIdForUpdate(USER_ID)).thenReturn(Optional.of(buildUserEntity(50)));
+        when(stripedStock.take(PRODUCT_ID, 3, 0)).thenReturn(new StripeFill(2, 2));
+        when(userRepository.decrementDepositBy(USER_ID, 30)).thenReturn(1);
+
+        BuyResponse result = productService.buy(new BuyRequest(PRODUCT_ID, 5));
+
+        assertThat(result.getTotalSpent()).isEqualTo(30);
+        assertThat(result.getNumberOfProducts()).isEqualTo(2);
+        assertThat(result.getChange()).containsExactly(entry(20, 1));
+        assertThat(result.getStatus()).isEqualTo(BuyStatus.PARTIALLY_FILLED);
+        verify(productRepository, never()).decrementAmountBy(any(), any(), any());
+        verify(ledger).record(LedgerEntry.purchase(USER_ID, PRODUCT_ID, 2, COST));
+    }
+
+    @Test
+    public void standardBuyOfHeldStock_thenBuyOnlyUnreservedUnits() {
+
+        ProductService productService = buildProductService(PurchaseMode.STANDARD);
+        when(stockReservations.reservedOf(PRODUCT_ID)).thenReturn(8);
+        when(productRepository.findById(PRODUCT_ID)).thenReturn(Optional.of(buildProductEntity(10)));
+        when(authUserService.getLoggedInUser()).thenReturn(loggedInUser);
+        when(loggedInUser.getId()).thenReturn(USER_ID);
+        when(userRepository.findByIdForUpdate(USER_ID)).thenReturn(Optional.of(buildUserEntity(100)));
+        when(userRepository.decrementDepositBy(USER_ID, 30)).thenReturn(1);
+        when(productRepository.decrementAmountBy(PRODUCT_ID, 2, 8)).thenReturn(1);
+
+        BuyResponse result = productService.buy(new BuyRequest(PRODUCT_ID, 5));
+
+        assertThat(result.getNumberOfProducts()).isEqualTo(2);
+        assertThat(result.getStatus()).isEqualTo(BuyStatus.PARTIALLY_FILLED);
+    }
+
+    @Test
+    public void buyOfFullyHeldStock_thenReject() {
+
+        ProductService productService = buildProductService(PurchaseMode.CONDITIONAL);
+        when(stockReservations.reservedOf(PRODUCT_ID)).thenReturn(10);
+        when(authUserService.getLoggedInUser()).thenReturn(loggedInUser);
+        when(loggedInUser.getUsername()).thenReturn(BUYER_USERNAME);
+        when(productRepository.purchase(BUYER_USERNAME, PRODUCT_ID, 1, 10)).thenReturn(Optional.of(purchaseResult));
+        when(purchaseResult.getQuantity()).thenReturn(0);
+        when(purchaseResult.getAmountAvailable()).thenReturn(10);
+
+        assertThrows(InsufficientStockException.class, () -> productService.buy(new BuyRequest(PRODUCT_ID, 1)));
+        verifyNoInteractions(ledger, catalogVersion);
+    }
+
+    @Test
+    public void standardBuyWithCoinFloat_thenPayChangeOutOfTheFloat() {
+
+        ProductService productService = buildProductService(PurchaseMode.STANDARD);
+        when(productRepository.findById(PRODUCT_ID)).thenReturn(Optional.of(buildProductEntity(10)));
+        when(authUserService.getLoggedInUser()).thenReturn(loggedInUser);
+        when(loggedInUser.getId()).thenReturn(USER_ID);
+        when(userRepository.findByIdForUpdate(USER_ID)).thenReturn(Optional.of(buildUserEntity(100)));
+        when(userRepository.decrementDepositBy(USER_ID, 15)).thenReturn(1);
+        when(productRepository.decrementAmountBy(PRODUCT_ID, 1, 0)).thenReturn(1);
+        when(coinFloat.isEnabled()).thenReturn(true);
+        when(coinFloat.settle(USER_ID, 85)).thenReturn(new Change(Map.of(20, 4), 5));
+
+        BuyResponse result = productService.buy(new BuyRequest(PRODUCT_ID, 1));
+
+        assertThat(result.getChange()).containsExactly(entry(20, 4));
+        verify(coinFloat).settle(USER_ID, 85);
+    }
+
+    @Test
+    public void standardBuyOfSoldOutProduct_thenRejectWithoutUpdates() {
+
+        ProductService productService = buildProductService(PurchaseMode.STANDARD);
+        when(productRepository.findById(PRODUCT_ID)).thenReturn(Optional.of(buildProductEntity(0)));
+        when(authUserService.getLoggedInUser()).thenReturn(loggedInUser);
+        when(loggedInUser.getId()).thenReturn(USER_ID);
+        when(userRepository.findByIdForUpdate(USER_ID)).thenReturn(Optional.of(buildUserEntity(50)));
+
+        BuyResponse result = productService.buy(new BuyRequest(PRODUCT_ID, 1));
+
+        assertThat(result.getNumberOfProducts()).isZero();
+        assertThat(result.getStatus()).isEqualTo(BuyStatus.REJECTED_OUT_OF_STOCK);
+
+        verify(userRepository, never()).decrementDepositBy(any(), any());
+        verify(productRepository, never()).decrementAmountBy(any(), any(), any());
+        verifyNoInteractions(catalogVersion);
+    }
+
+    @Test
+    public void standardBuyWhenStockChangedConcurrently_thenThrowPurchaseConflictException() {
+
+        ProductService productService = buildProductService(PurchaseMode.STANDARD);
+        when(productRepository.findById(PRODUCT_ID)).thenReturn(Optional.of(buildProductEntity(10)));
+        when(authUserService.getLoggedInUser()).thenReturn(loggedInUser);
+        when(loggedInUser.getId()).thenReturn(USER_ID);
+        when(userRepository.findByIdForUpdate(USER_ID)).thenReturn(Optional.of(buildUserEntity(50)));
+        when(userRepository.decrementDepositBy(USER_ID, 15)).thenReturn(1);
+        when(productRepository.decrementAmountBy(PRODUCT_ID, 1, 0)).thenReturn(0);
+
+        assertThrows(PurchaseConflictException.class, () -> productService.buy(new BuyRequest(PRODUCT_ID, 1)));
+    }
+
+    @Test
+    public void inMemoryBuy_thenUseEngineWithoutTouchingRepositories() {
+
+        ProductService productService = buildProductService(PurchaseMode.IN_MEMORY);
+        when(authUserService.getLoggedInUser()).thenReturn(loggedInUser);
+        when(loggedInUser.getId()).thenReturn(USER_ID);
+        when(inventoryEngine.buy(USER_ID, PRODUCT_ID, 4, 0)).thenReturn(new PurchaseFill(2, COST, 2, 5));
+
+        BuyResponse result = productService.buy(new BuyRequest(PRODUCT_ID, 4));
+
+        assertThat(result.getTotalSpent()).isEqualTo(30);
+        assertThat(result.getNumberOfProducts()).isEqualTo(2);
+        assertThat(result.getChange()).containsExactly(entry(5, 1));
+        assertThat(result.getStatus()).isEqualTo(BuyStatus.PARTIALLY_FILLED);
+
+        verifyNoInteractions(productRepository, userRepository, transactionManager);
+        verify(ledger).record(LedgerEntry.purchase(USER_ID, PRODUCT_ID, 2, COST));
+        verify(purchaseHistory).record(USER_ID, result);
+        verify(salesAggregator).record(PRODUCT_ID, 2, 30);
+    }
+
+    @Test
+    public void standardBuyCart_thenDecrementAllLinesAgainstOneDeposit() {
+
+        UUID secondProductId = UUID.randomUUID();
+        ProductEntity firstProduct = buildProductEntity(1);
+        ProductEntity secondProduct = ProductEntity.builder().id(secondProductId).amountAvailable(10).cost(20).build();
+        UserEntity userEntity = buildUserEntity(100);
+
+        ProductService productService = buildProductService(PurchaseMode.STANDARD);
+        when(authUserService.getLoggedInUser()).thenReturn(loggedInUser);
+        when(loggedInUser.getId()).thenReturn(USER_ID);
+        when(userRepository.findByIdForUpdate(USER_ID)).thenReturn(Optional.of(userEntity));
+        when(productRepository.findAllByIdForUpdate(Set.of(PRODUCT_ID, secondProductId))).thenReturn(List.of(firstProduct, secondProduct));
+
+        CartResponse result = productService.buyCart(new CartRequest(List.of(
+                new BuyRequest(PRODUCT_ID, 2),
+                new BuyRequest(secondProductId, 5))));
+
+        assertThat(result.getTotalSpent()).isEqualTo(95);
+        assertThat(result.getItems()).extracting(BuyResponse::getStatus)
+                .containsExactly(BuyStatus.PARTIALLY_FILLED, BuyStatus.PARTIALLY_FILLED);
+        assertThat(result.getItems()).extracting(BuyResponse::getNumberOfProducts).containsExactly(1, 4);
+        assertThat(result.getChange()).containsExactly(entry(5, 1));
+        assertThat(firstProduct.getAmountAvailable()).isZero();
+        assertThat(secondProduct.getAmountAvailable()).isEqualTo(6);
+        assertThat(userEntity.getDeposit()).isEqualTo(5);
+    }
+
+    @Test
+    public void standardBuyCartOfHeldStock_thenCapLineToUnreservedUnits() {
+
+        ProductEntity productEntity = buildProductEntity(10);
+
+        ProductService productService = buildProductService(PurchaseMode.STANDARD);
+        when(authUserService.getLoggedInUser()).thenReturn(loggedInUser);
+        when(loggedInUser.getId()).thenReturn(USER_ID);
+        when(userRepository.findByIdForUpdate(USER_ID)).thenReturn(Optional.of(buildUserEntity(100)));
+        when(productRepository.findAllByIdForUpdate(Set.of(PRODUCT_ID))).thenReturn(List.of(productEntity));
+        when(stockReservations.reservedOf(PRODUCT_ID)).thenReturn(7);
+
+        CartResponse result = productService.buyCart(new CartRequest(List.of(new BuyRequest(PRODUCT_ID, 5))));
+
+        assertThat(result.getItems()).extracting(BuyResponse::getNumberOfProducts).containsExactly(3);
+        assertThat(result.getItems()).extracting(BuyResponse::getStatus).containsExactly(BuyStatus.PARTIALLY_FILLED);
+        assertThat(productEntity.getAmountAvailable()).isEqualTo(7);
+    }
+
+    @Test
+    public void standardBuyCartWithCoinFloat_thenRemainderWrittenOnlyThroughTheLockedEntity() {
+
+        UserEntity userEntity = buildUserEntity(100);
+
+        ProductService productService = buildProductService(PurchaseMode.STANDARD);
+        when(authUserService.getLoggedInUser()).thenReturn(loggedInUser);
+        when(loggedInUser.getId()).thenReturn(USER_ID);
+        when(userRepository.findByIdForUpdate(USER_ID)).thenReturn(Optional.of(userEntity));
+        when(productRepository.findAllByIdForUpdate(Set.of(PRODUCT_ID))).thenReturn(List.of(buildProductEntity(10)));
+        when(coinFloat.isEnabled()).thenReturn(true);
+        when(coinFloat.dispense(USER_ID, 70)).thenReturn(new Change(Map.of(50, 1, 20, 1), 0));
+
+        CartResponse result = productService.buyCart(new CartRequest(List.of(new BuyRequest(PRODUCT_ID, 2))));
+
+        assertThat(result.getChange()).containsOnly(entry(50, 1), entry(20, 1));
+        assertThat(userEntity.getDeposit()).isZero();
+        verify(coinFloat, never()).settle(any(), anyInt());
+    }
+
+    @Test
+    public void getProductsWithOversizedLimit_thenClampPageSizeAndDecodeCursor() {
+
+        ProductService productService = buildProductService(PurchaseMode.STANDARD);
+        ProductFilter filter = ProductFilter.builder().inStock(true).build();
+        String cursor = new KeysetCursor(new Timestamp(1_000L), PRODUCT_ID).encode();
+        KeysetPage<Product> page = new KeysetPage<>(List.of(Product.builder().id(PRODUCT_ID).amountAvailable(3).build()), null);
+        when(productCatalogRepository.findPage(eq(filter), argThat(after -> after.getId().equals(PRODUCT_ID)
+                && after.getInsertedDate().getTime() == 1_000L), eq(500))).thenReturn(page);
+
+        KeysetPage<Product> result = productService.getProducts(filter, cursor, 10_000);
+
+        assertThat(result.getItems()).extracting(Product::getAmountAvailable).containsExactly(3);
+        assertThat(result.getNextCursor()).isNull();
+    }
+
+    @Test
+    public void getMyProducts_thenLoggedInSellerPageAfterDecodedName() {
+
+        ProductService productService = buildProductService(PurchaseMode.STANDARD);
+        when(authUserService.getLoggedInUser()).thenReturn(loggedInUser);
+        when(loggedInUser.getId()).thenReturn(USER_ID);
+        String cursor = new NameCursor("Cola").encode();
+        KeysetPage<Product> page = new KeysetPage<>(List.of(Product.builder().id(PRODUCT_ID).productName("Fanta").amountAvailable(3).build()),
+                new NameCursor("Fanta").encode());
+        when(productCatalogRepository.findSellerPage(eq(USER_ID), argThat(after -> after.getProductName().equals("Cola")), eq(50))).thenReturn(page);
+
+        KeysetPage<Product> result = productService.getMyProducts(cursor, null);
+
+        assertThat(result.getItems()).extracting(Product::getProductName).containsExactly("Fanta");
+        assertThat(NameCursor.decode(result.getNextCursor()).getProductName()).isEqualTo("Fanta");
+    }
+}
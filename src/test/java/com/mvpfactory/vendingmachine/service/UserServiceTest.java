@@ -7,17 +7,31 @@ import com.mvpfactory.vendingmachine.error.model.UserNotFoundException;
 import com.mvpfactory.vendingmachine.model.DepositRequest;
 import com.mvpfactory.vendingmachine.model.Role;
 import com.mvpfactory.vendingmachine.model.User;
+import com.mvpfactory.vendingmachine.model.KeysetPage;
+import com.mvpfactory.vendingmachine.repository.KeysetCursor;
+import com.mvpfactory.vendingmachine.repository.PurchaseHistoryRepository;
+import com.mvpfactory.vendingmachine.repository.UserListingRepository;
 import com.mvpfactory.vendingmachine.repository.UserRepository;
 import com.mvpfactory.vendingmachine.repository.entity.UserEntity;
 import com.mvpfactory.vendingmachine.repository.mapper.UserMapper;
+import com.mvpfactory.vendingmachine.service.change.ChangeCalculator;
+import com.mvpfactory.vendingmachine.service.change.CoinFloat;
+import com.mvpfactory.vendingmachine.service.ledger.Ledger;
+import com.mvpfactory.vendingmachine.service.retry.OptimisticRetry;
+import com.mvpfactory.vendingmachine.service.ledger.LedgerEntry;
+import com.mvpfactory.vendingmachine.service.engine.InventoryEngine;
 import com.mvpfactory.vendingmachine.security.AuthUserService;
 import com.mvpfactory.vendingmachine.security.model.AuthUserDetails;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.Timestamp;
 import java.util.*;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -37,7 +51,16 @@ public class UserServiceTest {
     private UserMapper userMapper;
 
     @Mock
-    private List<Integer> allowedCoins;
+    private InventoryEngine inventoryEngine;
+
+    @Mock
+    private ChangeCalculator changeCalculator;
+
+    @Mock
+    private CoinFloat coinFloat;
+
+    @Mock
+    private Ledger ledger;
 
     @Mock
     private AuthUserDetails loggedInUser;
@@ -45,7 +68,15 @@ public class UserServiceTest {
     @Mock
     private UserEntity userEntity;
 
-    @InjectMocks
+    @Mock
+    private UserListingRepository userListingRepository;
+
+    @Mock
+    private PurchaseHistoryRepository purchaseHistoryRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     private UserService userService;
 
     private static final UserEntity EXISTING_USER_ENTITY = new UserEntity();
@@ -59,6 +90,12 @@ public class UserServiceTest {
     private static final String NON_EXISTING_USERNAME = "user2";
     private static final UUID USER_ID = UUID.randomUUID();
 
+    @BeforeEach
+    public void setUp() {
+        userService = new UserService(userRepository, userListingRepository, purchaseHistoryRepository, authUserService, userMapper, inventoryEngine,
+                changeCalculator, coinFloat, ledger, new TransactionTemplate(transactionManager), new OptimisticRetry(3, 1), 50, 500);
+    }
+
     private User buildUser(String username, String password, Integer deposit, Role role) {
         return User.builder()
                 .username(username)
@@ -180,6 +217,31 @@ public class UserServiceTest {
         verifyNoMoreInteractions(userMapper);
     }
 
+    @Test
+    public void updateUserInMemory_thenEngineDepositKeptAndWrittenAgain() {
+
+        User user = buildUser(EXISTING_USERNAME, PASSWORD, DEPOSIT, USER_ROLE);
+        when(inventoryEngine.isEnabled()).thenReturn(true);
+        when(authUserService.getLoggedInUser()).thenReturn(loggedInUser);
+        when(loggedInUser.getUsername()).thenReturn(EXISTING_USERNAME);
+        when(userRepository.findUserEntityByUsername(EXISTING_USERNAME)).thenReturn(Optional.of(userEntity));
+        when(userEntity.getId()).thenReturn(USER_ID);
+        // a buy lands between the check and the save
+        when(inventoryEngine.depositOf(USER_ID)).thenReturn(DEPOSIT, 0);
+        when(userMapper.mapForUpdate(any(), any())).thenReturn(userEntity);
+        doReturn(List.of(new SimpleGrantedAuthority("ROLE_" + USER_ROLE))).when(loggedInUser).getAuthorities();
+        when(userRepository.save(userEntity)).thenReturn(userEntity);
+        when(userMapper.map(userEntity)).thenReturn(buildUser(EXISTING_USERNAME, PASSWORD, DEPOSIT, USER_ROLE));
+
+        User result = userService.updateUser(user);
+
+        assertThat(result.getDeposit()).isZero();
+        verify(inventoryEngine).rewriteDeposit(USER_ID);
+        verify(inventoryEngine, never()).putUser(any(), anyInt());
+        verify(inventoryEngine, never()).resetDeposit(any());
+        verifyNoInteractions(ledger);
+    }
+
     @Test
     public void registerUserThatAlreadyExists_thenThrowUserAlreadyExistsException() {
 
@@ -247,19 +309,21 @@ public class UserServiceTest {
     }
 
     @Test
-    public void getAllUsers() {
+    public void getUsers() {
 
-        when(userRepository.findAll()).thenReturn(List.of(userEntity));
+        String nextCursor = new KeysetCursor(new Timestamp(1_000L), USER_ID).encode();
+        when(userListingRepository.findPage(Role.SELLER, null, 50)).thenReturn(new KeysetPage<>(List.of(userEntity), nextCursor));
         when(userMapper.map(userEntity)).thenReturn(EXISTING_USER);
 
-        List<User> result = userService.getAllUsers();
+        KeysetPage<User> result = userService.getUsers(Role.SELLER, null, null);
 
         assertThat(result).isNotNull();
-        assertThat(result).hasSize(1);
-        assertThat(result.get(0)).isEqualTo(EXISTING_USER);
+        assertThat(result.getItems()).containsExactly(EXISTING_USER);
+        assertThat(result.getNextCursor()).isEqualTo(nextCursor);
 
-        verify(userRepository).findAll();
-        verifyNoMoreInteractions(userRepository);
+        verify(userListingRepository).findPage(Role.SELLER, null, 50);
+        verifyNoMoreInteractions(userListingRepository);
+        verifyNoInteractions(userRepository);
 
         verify(userMapper).map(userEntity);
         verifyNoMoreInteractions(userMapper);
@@ -272,12 +336,12 @@ public class UserServiceTest {
         when(authUserService.getLoggedInUser()).thenReturn(loggedInUser);
         when(loggedInUser.getUsername()).thenReturn(EXISTING_USERNAME);
         when(userRepository.findUserEntityByUsername(EXISTING_USERNAME)).thenReturn(Optional.of(userEntity));
-        when(allowedCoins.contains(INVALID_COIN)).thenReturn(false);
+        when(changeCalculator.isAllowed(INVALID_COIN)).thenReturn(false);
 
         DepositException result = assertThrows(DepositException.class, () -> userService.deposit(request));
 
         assertThat(result).isNotNull();
-        assertThat(result).hasMessage(String.format("Coin %s is not in the allowed list of %s", INVALID_COIN, allowedCoins));
+        assertThat(result).hasMessage(String.format("Coin %s is not in the allowed list of %s", INVALID_COIN, changeCalculator));
 
         verify(authUserService).getLoggedInUser();
         verifyNoMoreInteractions(authUserService);
@@ -288,8 +352,8 @@ public class UserServiceTest {
         verify(userRepository).findUserEntityByUsername(EXISTING_USERNAME);
         verifyNoMoreInteractions(userRepository);
 
-        verify(allowedCoins).contains(INVALID_COIN);
-        verifyNoMoreInteractions(allowedCoins);
+        verify(changeCalculator).isAllowed(INVALID_COIN);
+        verifyNoMoreInteractions(changeCalculator);
     }
 
     @Test
@@ -299,7 +363,7 @@ public class UserServiceTest {
         when(authUserService.getLoggedInUser()).thenReturn(loggedInUser);
         when(loggedInUser.getUsername()).thenReturn(EXISTING_USERNAME);
         when(userRepository.findUserEntityByUsername(EXISTING_USERNAME)).thenReturn(Optional.of(userEntity));
-        when(allowedCoins.contains(VALID_COIN)).thenReturn(true);
+        when(changeCalculator.isAllowed(VALID_COIN)).thenReturn(true);
         when(userEntity.getId()).thenReturn(USER_ID);
         doNothing().when(userRepository).deposit(USER_ID, VALID_COIN);
         when(userMapper.map(userEntity)).thenReturn(EXISTING_USER);
@@ -321,6 +385,9 @@ public class UserServiceTest {
 
         verify(userMapper).map(userEntity);
         verifyNoMoreInteractions(userMapper);
+
+        verify(transactionManager).getTransaction(any());
+        verify(transactionManager).commit(any());
     }
 
     @Test
@@ -330,6 +397,8 @@ public class UserServiceTest {
         when(loggedInUser.getUsername()).thenReturn(EXISTING_USERNAME);
         when(userRepository.findUserEntityByUsername(EXISTING_USERNAME)).thenReturn(Optional.of(userEntity));
         when(userEntity.getId()).thenReturn(USER_ID);
+        when(userRepository.findByIdForUpdate(USER_ID)).thenReturn(Optional.of(userEntity));
+        when(userEntity.getDeposit()).thenReturn(DEPOSIT);
         doNothing().when(userRepository).resetDeposit(USER_ID);
         when(userMapper.map(userEntity)).thenReturn(EXISTING_USER);
 
@@ -345,7 +414,10 @@ public class UserServiceTest {
         verifyNoMoreInteractions(loggedInUser);
 
         verify(userRepository, times(2)).findUserEntityByUsername(EXISTING_USERNAME);
+        verify(userRepository).findByIdForUpdate(USER_ID);
         verify(userRepository).resetDeposit(USER_ID);
         verifyNoMoreInteractions(userRepository);
+
+        verify(ledger).record(LedgerEntry.reset(USER_ID, DEPOSIT));
     }
 }
\ No newline at end of file
@@ -0,0 +1,137 @@
+package com.mvpfactory.vendingmachine.service.bulk;
+
+import com.mvpfactory.vendingmachine.error.model.InsufficientStockException;
+import com.mvpfactory.vendingmachine.error.model.InvalidProductCostException;
+import com.mvpfactory.vendingmachine.model.Product;
+import com.mvpfactory.vendingmachine.model.RepriceRequest;
+import com.mvpfactory.vendingmachine.model.StockLevel;
+import com.mvpfactory.vendingmachine.repository.ProductBulkRepository;
+import com.mvpfactory.vendingmachine.repository.ProductCatalogRepository;
+import com.mvpfactory.vendingmachine.service.catalog.CatalogVersion;
+import com.mvpfactory.vendingmachine.service.catalog.ProductSearchIndex;
+import com.mvpfactory.vendingmachine.service.engine.InventoryEngine;
+import com.mvpfactory.vendingmachine.service.reservation.StockReservations;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class ProductBulkUpdaterTest {
+
+    private static final UUID SELLER_ID = UUID.randomUUID();
+    private static final UUID FIRST = UUID.randomUUID();
+    private static final UUID SECOND = UUID.randomUUID();
+    private static final UUID THIRD = UUID.randomUUID();
+
+    private ProductBulkRepository productBulkRepository;
+    private ProductCatalogRepository productCatalogRepository;
+    private InventoryEngine inventoryEngine;
+    private StockReservations stockReservations;
+    private CatalogVersion catalogVersion;
+    private ProductSearchIndex productSearchIndex;
+    private PlatformTransactionManager transactionManager;
+    private ProductBulkUpdater productBulkUpdater;
+
+    @BeforeEach
+    public void setUp() {
+        productBulkRepository = mock(ProductBulkRepository.class);
+        productCatalogRepository = mock(ProductCatalogRepository.class);
+        inventoryEngine = mock(InventoryEngine.class);
+        stockReservations = mock(StockReservations.class);
+        catalogVersion = mock(CatalogVersion.class);
+        productSearchIndex = mock(ProductSearchIndex.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(stockReservations.whileHoldsStable(any(), any())).thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+        productBulkUpdater = new ProductBulkUpdater(productBulkRepository, productCatalogRepository, inventoryEngine, stockReservations,
+                catalogVersion, productSearchIndex, new TransactionTemplate(transactionManager), 2);
+    }
+
+    @Test
+    public void restockManyProducts_thenOneTransactionOverBatchesWithoutDuplicates() {
+        when(productBulkRepository.lockOwned(SELLER_ID, List.of(FIRST, SECOND))).thenReturn(List.of(FIRST, SECOND));
+        when(productBulkRepository.lockOwned(SELLER_ID, List.of(THIRD))).thenReturn(List.of());
+        when(productCatalogRepository.findAllById(List.of(FIRST, SECOND))).thenReturn(List.of(product(SECOND, 7), product(FIRST, 5)));
+
+        List<Product> updated = productBulkUpdater.addStock(SELLER_ID, List.of(FIRST, SECOND, FIRST, THIRD), 5);
+
+        assertThat(updated).extracting(Product::getId).containsExactly(FIRST, SECOND);
+        verify(productBulkRepository).addStock(eq(List.of(FIRST, SECOND)), eq(5), any());
+        verify(productBulkRepository, times(1)).addStock(anyCollection(), anyInt(), any());
+        verify(transactionManager).getTransaction(any());
+        verify(transactionManager).commit(any());
+        verify(productSearchIndex, times(2)).put(any());
+        verify(catalogVersion).bump();
+    }
+
+    @Test
+    public void restockInMemory_thenOwnershipCheckedAndStockAddedInEngine() {
+        when(inventoryEngine.isEnabled()).thenReturn(true);
+        when(productBulkRepository.lockOwned(SELLER_ID, List.of(FIRST))).thenReturn(List.of(FIRST));
+        when(productCatalogRepository.findAllById(List.of(FIRST))).thenReturn(List.of(product(FIRST, 0)));
+        when(inventoryEngine.stockOf(FIRST)).thenReturn(8);
+
+        List<Product> updated = productBulkUpdater.addStock(SELLER_ID, List.of(FIRST), 5);
+
+        assertThat(updated.get(0).getAmountAvailable()).isEqualTo(8);
+        verify(productBulkRepository).touch(eq(List.of(FIRST)), any());
+        verify(inventoryEngine).addStock(FIRST, 5);
+        verify(productBulkRepository, never()).addStock(anyCollection(), anyInt(), any());
+    }
+
+    @Test
+    public void setStock_thenLastLevelPerProductWins() {
+        when(productBulkRepository.lockOwned(SELLER_ID, List.of(FIRST))).thenReturn(List.of(FIRST));
+
+        productBulkUpdater.setStock(SELLER_ID, List.of(new StockLevel(FIRST, 2), new StockLevel(FIRST, 4)));
+
+        verify(productBulkRepository).setStock(eq(Map.of(FIRST, 4)), any());
+    }
+
+    @Test
+    public void setStockBelowReserved_thenInsufficientStockAndNothingCommitted() {
+        when(productBulkRepository.lockOwned(SELLER_ID, List.of(FIRST, SECOND))).thenReturn(List.of(FIRST, SECOND));
+        when(productBulkRepository.lockOwned(SELLER_ID, List.of(THIRD))).thenReturn(List.of(THIRD));
+        when(stockReservations.reservedOf(THIRD)).thenReturn(3);
+
+        assertThrows(InsufficientStockException.class, () -> productBulkUpdater.setStock(SELLER_ID,
+                List.of(new StockLevel(FIRST, 5), new StockLevel(SECOND, 5), new StockLevel(THIRD, 2))));
+
+        verify(stockReservations).whileHoldsStable(eq(List.of(FIRST, SECOND, THIRD)), any());
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+        verifyNoInteractions(catalogVersion, productSearchIndex);
+    }
+
+    @Test
+    public void repriceWithBothCostAndDelta_thenInvalidProductCost() {
+        assertThrows(InvalidProductCostException.class,
+                () -> productBulkUpdater.reprice(SELLER_ID, RepriceRequest.builder().cost(10).costDelta(5).build()));
+        assertThrows(InvalidProductCostException.class,
+                () -> productBulkUpdater.reprice(SELLER_ID, RepriceRequest.builder().costDelta(3).build()));
+        verifyNoInteractions(productBulkRepository);
+    }
+
+    @Test
+    public void repriceByFilter_thenSingleLockAndNoPublishWhenNothingMatched() {
+        RepriceRequest request = RepriceRequest.builder().minCost(50).costDelta(-10).build();
+        when(productBulkRepository.lockRepriceable(SELLER_ID, request, null)).thenReturn(List.of());
+
+        assertThat(productBulkUpdater.reprice(SELLER_ID, request)).isEmpty();
+        verify(productBulkRepository, never()).reprice(anyCollection(), any(), any());
+        verifyNoInteractions(catalogVersion);
+    }
+
+    private static Product product(UUID id, int amountAvailable) {
+        return Product.builder().id(id).productName("product-" + id).amountAvailable(amountAvailable).cost(10).sellerId(SELLER_ID).version(1L).build();
+    }
+}
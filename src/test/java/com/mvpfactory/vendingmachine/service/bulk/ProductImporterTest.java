@@ -0,0 +1,130 @@
+package com.mvpfactory.vendingmachine.service.bulk;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mvpfactory.vendingmachine.model.ImportResult;
+import com.mvpfactory.vendingmachine.model.ImportStatus;
+import com.mvpfactory.vendingmachine.model.Product;
+import com.mvpfactory.vendingmachine.repository.ProductImportRepository;
+import com.mvpfactory.vendingmachine.service.catalog.CatalogVersion;
+import com.mvpfactory.vendingmachine.service.catalog.ProductSearchIndex;
+import com.mvpfactory.vendingmachine.service.engine.InventoryEngine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class ProductImporterTest {
+
+    private static final UUID SELLER_ID = UUID.randomUUID();
+
+    private ProductImportRepository productImportRepository;
+    private ProductSearchIndex productSearchIndex;
+    private CatalogVersion catalogVersion;
+    private List<List<ImportResult>> reports;
+
+    @BeforeEach
+    public void setUp() {
+        productImportRepository = mock(ProductImportRepository.class);
+        productSearchIndex = mock(ProductSearchIndex.class);
+        catalogVersion = mock(CatalogVersion.class);
+        when(productImportRepository.findExistingNames(anyCollection())).thenReturn(Set.of());
+        reports = new ArrayList<>();
+    }
+
+    @Test
+    public void ndjsonRows_thenInvalidAndTakenNamesRejectedInOrder() {
+        when(productImportRepository.findExistingNames(anyCollection())).thenReturn(Set.of("Fanta"));
+        String input = "{\"productName\":\"Cola\",\"amountAvailable\":3,\"cost\":15}\n" +
+                "{\"productName\":\"Sprite\",\"amountAvailable\":3,\"cost\":12}\n" +
+                "\n" +
+                "{\"productName\":\n" +
+                "{\"productName\":\"Fanta\",\"amountAvailable\":1,\"cost\":10}\n" +
+                "{\"productName\":\"Cola\",\"amountAvailable\":1,\"cost\":10}\n";
+
+        importProducts(input, ImportFormat.NDJSON, 100);
+
+        List<ImportResult> results = reports.get(0);
+        assertThat(results).extracting(ImportResult::getLine).containsExactly(1L, 2L, 4L, 5L, 6L);
+        assertThat(results).extracting(ImportResult::getStatus)
+                .containsExactly(ImportStatus.CREATED, ImportStatus.REJECTED, ImportStatus.REJECTED, ImportStatus.REJECTED, ImportStatus.REJECTED);
+        assertThat(results.get(1).getError()).isEqualTo("Product cost should be a multiple of 5");
+        assertThat(results.get(3).getError()).isEqualTo("Product Fanta already exists");
+        assertThat(results.get(4).getError()).isEqualTo("Product Cola already exists");
+
+        List<Product> inserted = insertedProducts();
+        assertThat(inserted).extracting(Product::getProductName).containsExactly("Cola");
+        assertThat(inserted.get(0).getId()).isEqualTo(results.get(0).getId());
+        assertThat(inserted.get(0).getSellerId()).isEqualTo(SELLER_ID);
+        verify(productSearchIndex).put(inserted.get(0));
+        verify(catalogVersion).bump();
+    }
+
+    @Test
+    public void csvRows_thenReportedPerChunk() {
+        String input = "cost,product_name,amount_available\n" +
+                "10,\"Mars, king size\",4\n" +
+                "5,Twix,\n" +
+                "20,\"Say \"\"cheese\"\"\",1\n";
+
+        importProducts(input, ImportFormat.CSV, 2);
+
+        assertThat(reports).hasSize(2);
+        assertThat(reports.get(0)).extracting(ImportResult::getStatus).containsExactly(ImportStatus.CREATED, ImportStatus.REJECTED);
+        assertThat(reports.get(0).get(0).getProductName()).isEqualTo("Mars, king size");
+        assertThat(reports.get(0).get(1).getError()).isEqualTo("Mandatory amount");
+        assertThat(reports.get(1).get(0).getProductName()).isEqualTo("Say \"cheese\"");
+        verify(productImportRepository, times(2)).insert(anyList(), any());
+    }
+
+    @Test
+    public void csvWithoutRequiredColumns_thenEveryRowRejected() {
+        importProducts("name,cost\nMars,10\n", ImportFormat.CSV, 10);
+
+        assertThat(reports.get(0)).extracting(ImportResult::getStatus).containsOnly(ImportStatus.REJECTED);
+        verify(productImportRepository, never()).findExistingNames(argThat(names -> !names.isEmpty()));
+    }
+
+    @Test
+    public void concurrentCreateOfSameName_thenChunkRecheckedAndInsertedWithoutIt() {
+        when(productImportRepository.findExistingNames(anyCollection())).thenReturn(Set.of(), Set.of("Cola"));
+        doThrow(new DuplicateKeyException("products_product_name_key")).doNothing()
+                .when(productImportRepository).insert(anyList(), any());
+
+        importProducts("{\"productName\":\"Cola\",\"amountAvailable\":3,\"cost\":15}\n" +
+                "{\"productName\":\"Mars\",\"amountAvailable\":3,\"cost\":15}\n", ImportFormat.NDJSON, 10);
+
+        assertThat(reports.get(0)).extracting(ImportResult::getStatus).containsExactly(ImportStatus.REJECTED, ImportStatus.CREATED);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Product>> inserts = ArgumentCaptor.forClass(List.class);
+        verify(productImportRepository, times(2)).insert(inserts.capture(), any());
+        assertThat(inserts.getValue().stream().map(Product::getProductName).collect(Collectors.toList())).containsExactly("Mars");
+    }
+
+    private void importProducts(String input, ImportFormat format, int chunkSize) {
+        ProductImporter importer = new ProductImporter(productImportRepository, mock(InventoryEngine.class), catalogVersion,
+                productSearchIndex, new TransactionTemplate(mock(PlatformTransactionManager.class)), new ObjectMapper(), chunkSize);
+        importer.importProducts(SELLER_ID, new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), format,
+                results -> reports.add(new ArrayList<>(results)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Product> insertedProducts() {
+        ArgumentCaptor<List<Product>> inserts = ArgumentCaptor.forClass(List.class);
+        verify(productImportRepository).insert(inserts.capture(), any());
+        return inserts.getValue();
+    }
+}
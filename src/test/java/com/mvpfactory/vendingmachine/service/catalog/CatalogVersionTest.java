@@ -0,0 +1,58 @@
+package com.mvpfactory.vendingmachine.service.catalog;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class CatalogVersionTest {
+
+    private static final String READ = "SELECT version FROM catalog_version WHERE id = 1";
+
+    private JdbcTemplate jdbcTemplate;
+    private CatalogVersion catalogVersion;
+
+    @BeforeEach
+    public void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        catalogVersion = new CatalogVersion(jdbcTemplate, 500);
+    }
+
+    @Test
+    public void manyLocalBumps_thenOneSharedIncrementAndNoExtraLocalBump() {
+        when(jdbcTemplate.queryForObject(READ, Long.class)).thenReturn(1L);
+
+        catalogVersion.bump();
+        catalogVersion.bump();
+        catalogVersion.sync();
+
+        assertThat(catalogVersion.current()).isEqualTo(2);
+        verify(jdbcTemplate).update(anyString());
+
+        catalogVersion.sync();
+
+        assertThat(catalogVersion.current()).isEqualTo(2);
+        verify(jdbcTemplate).update(anyString());
+    }
+
+    @Test
+    public void rowMovedByAnotherInstance_thenLocalVersionMoves() {
+        when(jdbcTemplate.queryForObject(READ, Long.class)).thenReturn(3L, 3L, 5L);
+
+        catalogVersion.sync();
+        long afterFirstSeen = catalogVersion.current();
+        catalogVersion.sync();
+
+        assertThat(catalogVersion.current()).isEqualTo(afterFirstSeen);
+
+        catalogVersion.bump();
+        catalogVersion.sync();
+
+        // one increment was this instance's, the other came from elsewhere
+        assertThat(catalogVersion.current()).isEqualTo(afterFirstSeen + 2);
+        verify(jdbcTemplate, times(1)).update(anyString());
+    }
+}
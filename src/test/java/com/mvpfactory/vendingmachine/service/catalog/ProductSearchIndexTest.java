@@ -0,0 +1,60 @@
+package com.mvpfactory.vendingmachine.service.catalog;
+
+import com.mvpfactory.vendingmachine.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class ProductSearchIndexTest {
+
+    private static final UUID SELLER_ID = UUID.randomUUID();
+
+    private ProductSearchIndex productSearchIndex;
+
+    @BeforeEach
+    public void setUp() {
+        productSearchIndex = new ProductSearchIndex(mock(JdbcTemplate.class), 0.3);
+        List.of("Coca Cola", "Coca Cola Zero", "Cocoa Bar", "Pepsi", "Snickers").forEach(this::put);
+    }
+
+    @Test
+    public void prefix_thenMatchesInNameOrderIgnoringCase() {
+        assertThat(names(productSearchIndex.search("coca", 10))).startsWith("Coca Cola", "Coca Cola Zero");
+        assertThat(names(productSearchIndex.search("  COCA  cola ", 1))).containsExactly("Coca Cola");
+    }
+
+    @Test
+    public void typo_thenFuzzyMatch() {
+        assertThat(names(productSearchIndex.search("snikers", 10))).containsExactly("Snickers");
+        assertThat(names(productSearchIndex.search("pepsy", 10))).containsExactly("Pepsi");
+        assertThat(productSearchIndex.search("water", 10)).isEmpty();
+    }
+
+    @Test
+    public void updateAndRemove_thenIndexFollows() {
+        Product pepsi = productSearchIndex.search("pepsi", 1).get(0);
+
+        pepsi.setProductName("Fanta");
+        productSearchIndex.put(pepsi);
+        assertThat(productSearchIndex.search("pepsi", 10)).isEmpty();
+        assertThat(names(productSearchIndex.search("fan", 10))).containsExactly("Fanta");
+
+        productSearchIndex.remove(pepsi.getId());
+        assertThat(productSearchIndex.search("fanta", 10)).isEmpty();
+    }
+
+    private void put(String name) {
+        productSearchIndex.put(Product.builder().id(UUID.randomUUID()).productName(name).cost(50).sellerId(SELLER_ID).build());
+    }
+
+    private List<String> names(List<Product> products) {
+        return products.stream().map(Product::getProductName).collect(Collectors.toList());
+    }
+}
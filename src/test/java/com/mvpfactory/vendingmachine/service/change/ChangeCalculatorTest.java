@@ -0,0 +1,53 @@
+package com.mvpfactory.vendingmachine.service.change;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+public class ChangeCalculatorTest {
+
+    private final ChangeCalculator changeCalculator = new ChangeCalculator(List.of(5, 10, 20, 50, 100));
+
+    @Test
+    public void unlimitedCoins_thenReturnCountPerDenomination() {
+        assertThat(changeCalculator.change(995)).containsExactly(entry(100, 9), entry(50, 1), entry(20, 2), entry(5, 1));
+        assertThat(changeCalculator.change(0)).isEmpty();
+    }
+
+    @Test
+    public void boundedFloatWhereGreedyFails_thenUseOptimalCoins() {
+        int[] counts = new int[changeCalculator.size()];
+
+        int dispensed = changeCalculator.makeChange(60, new int[]{0, 1, 3, 0, 0}, counts);
+
+        assertThat(dispensed).isEqualTo(60);
+        assertThat(changeCalculator.toMap(counts)).containsExactly(entry(20, 3));
+    }
+
+    @Test
+    public void boundedFloatWithoutEnoughCoins_thenDispenseLargestPossibleAmount() {
+        int[] counts = new int[changeCalculator.size()];
+
+        int dispensed = changeCalculator.makeChange(35, new int[]{0, 0, 1, 0, 0}, counts);
+
+        assertThat(dispensed).isEqualTo(20);
+        assertThat(changeCalculator.toMap(counts)).containsExactly(entry(20, 1));
+    }
+
+    @Test
+    public void nonCanonicalDenominations_thenReturnFewestCoins() {
+        ChangeCalculator nonCanonical = new ChangeCalculator(List.of(1, 3, 4));
+
+        assertThat(nonCanonical.change(6)).containsExactly(entry(3, 2));
+    }
+
+    @Test
+    public void checkAllowedCoins() {
+        assertThat(changeCalculator.isAllowed(50)).isTrue();
+        assertThat(changeCalculator.isAllowed(25)).isFalse();
+        assertThat(changeCalculator).hasToString("[5, 10, 20, 50, 100]");
+    }
+}
@@ -0,0 +1,96 @@
+package com.mvpfactory.vendingmachine.service.engine;
+
+import com.mvpfactory.vendingmachine.service.PurchaseMode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class InventoryEngineTest {
+
+    private static final UUID PRODUCT_ID = UUID.randomUUID();
+    private static final UUID USER_ID = UUID.randomUUID();
+    private static final int COST = 10;
+
+    private InventoryEngine inventoryEngine;
+
+    @BeforeEach
+    public void setUp() {
+        inventoryEngine = new InventoryEngine(mock(JdbcTemplate.class), PurchaseMode.IN_MEMORY, 200, 500);
+    }
+
+    @Test
+    public void buyMoreThanDepositAllows_thenPartialFill() {
+        inventoryEngine.putProduct(PRODUCT_ID, 10, COST);
+        inventoryEngine.putUser(USER_ID, 35);
+
+        PurchaseFill fill = inventoryEngine.buy(USER_ID, PRODUCT_ID, 5, 0);
+
+        assertThat(fill.getQuantity()).isEqualTo(3);
+        assertThat(fill.getDeposit()).isEqualTo(5);
+        assertThat(inventoryEngine.stockOf(PRODUCT_ID)).isEqualTo(7);
+        assertThat(inventoryEngine.depositOf(USER_ID)).isEqualTo(5);
+    }
+
+    @Test
+    public void buySoldOutProduct_thenNothingChanges() {
+        inventoryEngine.putProduct(PRODUCT_ID, 0, COST);
+        inventoryEngine.putUser(USER_ID, 100);
+
+        PurchaseFill fill = inventoryEngine.buy(USER_ID, PRODUCT_ID, 1, 0);
+
+        assertThat(fill.getQuantity()).isZero();
+        assertThat(inventoryEngine.depositOf(USER_ID)).isEqualTo(100);
+    }
+
+    @Test
+    public void buyOfHeldStock_thenReservedUnitsAreLeft() {
+        inventoryEngine.putProduct(PRODUCT_ID, 5, COST);
+        inventoryEngine.putUser(USER_ID, 100);
+
+        PurchaseFill fill = inventoryEngine.buy(USER_ID, PRODUCT_ID, 5, 3);
+
+        assertThat(fill.getQuantity()).isEqualTo(2);
+        assertThat(inventoryEngine.stockOf(PRODUCT_ID)).isEqualTo(3);
+    }
+
+    @Test
+    public void concurrentBuyers_thenStockAndMoneyAreConserved() throws InterruptedException {
+        int buyers = 64;
+        inventoryEngine.putProduct(PRODUCT_ID, 100, COST);
+        UUID[] userIds = new UUID[buyers];
+        for(int index = 0; index < buyers; index++) {
+            userIds[index] = UUID.randomUUID();
+            inventoryEngine.putUser(userIds[index], 50);
+        }
+
+        AtomicInteger sold = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        for(UUID userId : userIds) {
+            executor.submit(() -> {
+                for(int attempt = 0; attempt < 5; attempt++) {
+                    sold.addAndGet(inventoryEngine.buy(userId, PRODUCT_ID, 1, 0).getQuantity());
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        int remainingDeposits = 0;
+        for(UUID userId : userIds) {
+            assertThat(inventoryEngine.depositOf(userId)).isNotNegative();
+            remainingDeposits += inventoryEngine.depositOf(userId);
+        }
+        assertThat(sold.get()).isEqualTo(100);
+        assertThat(inventoryEngine.stockOf(PRODUCT_ID)).isZero();
+        assertThat(buyers * 50 - remainingDeposits).isEqualTo(sold.get() * COST);
+    }
+}
@@ -0,0 +1,74 @@
+package com.mvpfactory.vendingmachine.service.history;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PurchaseRingBufferTest {
+
+    @Test
+    public void capacityRoundedUpToPowerOfTwo() {
+        assertThat(new PurchaseRingBuffer<Integer>(1000).capacity()).isEqualTo(1024);
+        assertThat(new PurchaseRingBuffer<Integer>(1024).capacity()).isEqualTo(1024);
+    }
+
+    @Test
+    public void fullRing_thenOfferRejectsUntilConsumerFreesSlot() {
+        PurchaseRingBuffer<Integer> ring = new PurchaseRingBuffer<>(4);
+        for(int i = 0; i < 4; i++) {
+            assertThat(ring.offer(i)).isTrue();
+        }
+
+        assertThat(ring.offer(4)).isFalse();
+        assertThat(ring.size()).isEqualTo(4);
+        assertThat(ring.poll()).isEqualTo(0);
+        assertThat(ring.offer(4)).isTrue();
+
+        List<Integer> drained = new ArrayList<>();
+        assertThat(ring.drainTo(drained, 10)).isEqualTo(4);
+        assertThat(drained).containsExactly(1, 2, 3, 4);
+        assertThat(ring.poll()).isNull();
+    }
+
+    @Test
+    public void concurrentProducers_thenConsumerSeesEveryAcceptedElementOnce() throws InterruptedException {
+        int producers = 8;
+        int perProducer = 50_000;
+        PurchaseRingBuffer<Integer> ring = new PurchaseRingBuffer<>(1024);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch done = new CountDownLatch(producers);
+        for(int producer = 0; producer < producers; producer++) {
+            int offset = producer * perProducer;
+            executor.execute(() -> {
+                for(int i = 0; i < perProducer; i++) {
+                    while(!ring.offer(offset + i)) {
+                        Thread.onSpinWait();
+                    }
+                }
+                done.countDown();
+            });
+        }
+
+        Set<Integer> seen = new HashSet<>();
+        List<Integer> batch = new ArrayList<>();
+        while(seen.size() < producers * perProducer) {
+            batch.clear();
+            ring.drainTo(batch, 256);
+            for(Integer element : batch) {
+                assertThat(seen.add(element)).isTrue();
+            }
+        }
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        executor.shutdown();
+        assertThat(ring.poll()).isNull();
+    }
+}
@@ -0,0 +1,115 @@
+package com.mvpfactory.vendingmachine.service.reservation;
+
+import com.mvpfactory.vendingmachine.error.model.InsufficientStockException;
+import com.mvpfactory.vendingmachine.service.catalog.CatalogVersion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+public class StockReservationsTest {
+
+    private static final UUID PRODUCT_ID = UUID.randomUUID();
+    private static final UUID USER_ID = UUID.randomUUID();
+
+    private StockReservations stockReservations;
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setUp() {
+        stockReservations = new StockReservations(mock(CatalogVersion.class), 60_000, 100, 64);
+        stockReservations.start();
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+        stockReservations.stop();
+    }
+
+    @Test
+    public void holdDuringPurchase_thenCheckedAgainstTheStockThePurchaseLeft() throws Exception {
+        AtomicInteger stock = new AtomicInteger(5);
+        CountDownLatch inPurchase = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        Future<?> purchase = executor.submit(() -> stockReservations.whileHoldsStable(List.of(PRODUCT_ID), () -> {
+            inPurchase.countDown();
+            awaitQuietly(finish);
+            return stock.getAndSet(0);
+        }));
+        inPurchase.await();
+
+        Future<?> hold = executor.submit(() -> stockReservations.hold(USER_ID, PRODUCT_ID, 1, stock::get));
+        assertThrows(TimeoutException.class, () -> hold.get(200, TimeUnit.MILLISECONDS));
+        finish.countDown();
+        purchase.get();
+
+        ExecutionException failure = assertThrows(ExecutionException.class, hold::get);
+        assertThat(failure.getCause()).isInstanceOf(InsufficientStockException.class);
+        assertThat(stockReservations.reservedOf(PRODUCT_ID)).isZero();
+    }
+
+    @Test
+    public void concurrentHoldsAndPurchases_thenHeldUnitsNeverSold() throws Exception {
+        AtomicInteger stock = new AtomicInteger(200);
+        List<Future<?>> futures = new ArrayList<>();
+        for(int worker = 0; worker < 8; worker++) {
+            boolean reserver = worker % 2 == 0;
+            futures.add(executor.submit(() -> {
+                for(int round = 0; round < 200; round++) {
+                    if(reserver) {
+                        try {
+                            stockReservations.hold(USER_ID, PRODUCT_ID, 1, stock::get);
+                        } catch (InsufficientStockException ignored) {
+                            return;
+                        }
+                    } else {
+                        stockReservations.whileHoldsStable(List.of(PRODUCT_ID), () -> {
+                            int reserved = stockReservations.reservedOf(PRODUCT_ID);
+                            // the reserved count goes stale across this gap unless holds wait for the purchase
+                            LockSupport.parkNanos(50_000);
+                            // the guarded decrement: never below the reserved units it was given
+                            int current;
+                            int taken;
+                            do {
+                                current = stock.get();
+                                taken = Math.max(0, Math.min(2, current - reserved));
+                            } while(taken > 0 && !stock.compareAndSet(current, current - taken));
+                            return taken;
+                        });
+                    }
+                }
+            }));
+        }
+        for(Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+
+        assertThat(stockReservations.reservedOf(PRODUCT_ID)).isLessThanOrEqualTo(stock.get());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.mvpfactory.vendingmachine.service.reservation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TimingWheelTest {
+
+    @Test
+    public void deadlines_thenExpireOnTheirTickAcrossLevels() {
+        TimingWheel<Long> wheel = new TimingWheel<>(10, 4, 0);
+        List<Long> expired = new ArrayList<>();
+        List.of(35L, 5L, 170L, 2_000L, 41L).forEach(deadline -> wheel.schedule(deadline, deadline));
+
+        wheel.advanceTo(39, expired::add);
+        assertThat(expired).containsExactly(5L);
+
+        wheel.advanceTo(169, expired::add);
+        assertThat(expired).containsExactly(5L, 35L, 41L);
+
+        wheel.advanceTo(1_999, expired::add);
+        assertThat(expired).containsExactly(5L, 35L, 41L, 170L);
+
+        wheel.advanceTo(2_000, expired::add);
+        assertThat(expired).containsExactly(5L, 35L, 41L, 170L, 2_000L);
+    }
+
+    @Test
+    public void cancelledOrPastDeadline_thenNeverExpires() {
+        TimingWheel<String> wheel = new TimingWheel<>(10, 4, 0);
+        List<String> expired = new ArrayList<>();
+        TimingWheel.Timeout<String> cancelled = wheel.schedule("cancelled", 500);
+        wheel.schedule("kept", 500);
+
+        assertThat(wheel.cancel(cancelled)).isTrue();
+        assertThat(wheel.cancel(cancelled)).isFalse();
+        wheel.advanceTo(1_000, expired::add);
+
+        assertThat(expired).containsExactly("kept");
+        assertThat(wheel.schedule("late", 990)).isNull();
+    }
+
+    @Test
+    public void randomDeadlines_thenNoneExpiresEarlyOrLate() {
+        Random random = new Random(7);
+        TimingWheel<long[]> wheel = new TimingWheel<>(10, 8, 0);
+        List<long[]> timeouts = new ArrayList<>();
+        for(int index = 0; index < 10_000; index++) {
+            long[] timeout = {1 + random.nextInt(1_000_000), -1};
+            wheel.schedule(timeout, timeout[0]);
+            timeouts.add(timeout);
+        }
+
+        long[] previous = {0};
+        long now = 0;
+        while(now < 1_000_010) {
+            now = Math.min(now + random.nextInt(3_000), 1_000_010);
+            long advancedTo = now;
+            wheel.advanceTo(now, timeout -> {
+                long dueAt = (timeout[0] + 9) / 10 * 10;
+                assertThat(advancedTo).isGreaterThanOrEqualTo(dueAt);
+                assertThat(previous[0]).isLessThan(dueAt);
+                timeout[1] = advancedTo;
+            });
+            previous[0] = now;
+        }
+
+        assertThat(timeouts).allMatch(timeout -> timeout[1] >= 0);
+    }
+}
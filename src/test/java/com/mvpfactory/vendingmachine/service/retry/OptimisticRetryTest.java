@@ -0,0 +1,53 @@
+package com.mvpfactory.vendingmachine.service.retry;
+
+import com.mvpfactory.vendingmachine.error.model.UpdateConflictException;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class OptimisticRetryTest {
+
+    @Test
+    public void conflictThenSuccess_thenReturnsRetriedResult() {
+        OptimisticRetry retry = new OptimisticRetry(3, 1);
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = retry.run("product 1", () -> {
+            if(calls.incrementAndGet() < 3) {
+                throw new ObjectOptimisticLockingFailureException("ProductEntity", 1L);
+            }
+            return "saved";
+        });
+
+        assertThat(result).isEqualTo("saved");
+        assertThat(calls.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void conflictOnEveryAttempt_thenUpdateConflict() {
+        OptimisticRetry retry = new OptimisticRetry(3, 1);
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(UpdateConflictException.class, () -> retry.run("product 1", () -> {
+            calls.incrementAndGet();
+            throw new ObjectOptimisticLockingFailureException("ProductEntity", 1L);
+        }));
+        assertThat(calls.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void otherFailure_thenNotRetried() {
+        OptimisticRetry retry = new OptimisticRetry(3, 1);
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(IllegalStateException.class, () -> retry.run("product 1", () -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("boom");
+        }));
+        assertThat(calls.get()).isEqualTo(1);
+    }
+}
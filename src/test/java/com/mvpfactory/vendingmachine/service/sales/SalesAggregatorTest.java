@@ -0,0 +1,114 @@
+package com.mvpfactory.vendingmachine.service.sales;
+
+import com.mvpfactory.vendingmachine.model.SalesStats;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class SalesAggregatorTest {
+
+    private static final UUID PRODUCT_ID = UUID.randomUUID();
+    private static final UUID OTHER_PRODUCT_ID = UUID.randomUUID();
+    private static final UUID SELLER_ID = UUID.randomUUID();
+
+    private JdbcTemplate jdbcTemplate;
+    private SalesAggregator salesAggregator;
+
+    @BeforeEach
+    public void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        salesAggregator = new SalesAggregator(jdbcTemplate, new TransactionTemplate(mock(PlatformTransactionManager.class)), 1000);
+    }
+
+    @Test
+    public void sales_thenPendingAddedToStoredTotalsWithoutTouchingTheDatabase() {
+        salesAggregator.record(PRODUCT_ID, 2, 30);
+        salesAggregator.record(PRODUCT_ID, 1, 15);
+        salesAggregator.record(OTHER_PRODUCT_ID, 4, 80);
+        salesAggregator.record(OTHER_PRODUCT_ID, 0, 0);
+        verifyNoInteractions(jdbcTemplate);
+
+        Timestamp stored = new Timestamp(1_000L);
+        when(jdbcTemplate.queryForList(startsWith("SELECT units_sold"), eq(PRODUCT_ID)))
+                .thenReturn(List.of(Map.of("units_sold", 10L, "revenue", 150L, "last_sold_date", stored)));
+        when(jdbcTemplate.queryForMap(startsWith("SELECT SUM"), eq(SELLER_ID)))
+                .thenReturn(Map.of("units_sold", 10L, "revenue", 150L, "last_sold_date", stored));
+        when(jdbcTemplate.queryForList(startsWith("SELECT id FROM products"), eq(UUID.class), eq(SELLER_ID)))
+                .thenReturn(List.of(PRODUCT_ID, OTHER_PRODUCT_ID));
+
+        SalesStats product = salesAggregator.productStats(PRODUCT_ID, SELLER_ID);
+        assertThat(product.getUnitsSold()).isEqualTo(13);
+        assertThat(product.getRevenue()).isEqualTo(195);
+        assertThat(product.getLastSoldDate()).isAfter(stored);
+
+        SalesStats seller = salesAggregator.sellerStats(SELLER_ID);
+        assertThat(seller.getUnitsSold()).isEqualTo(17);
+        assertThat(seller.getRevenue()).isEqualTo(275);
+    }
+
+    @Test
+    public void noSales_thenZeroCounters() {
+        when(jdbcTemplate.queryForMap(startsWith("SELECT SUM"), eq(SELLER_ID))).thenReturn(new HashMap<>());
+
+        SalesStats product = salesAggregator.productStats(PRODUCT_ID, SELLER_ID);
+
+        assertThat(product.getUnitsSold()).isZero();
+        assertThat(product.getRevenue()).isZero();
+        assertThat(product.getLastSoldDate()).isNull();
+        assertThat(salesAggregator.sellerStats(SELLER_ID).getUnitsSold()).isZero();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void failedFlush_thenIncrementsRetriedWithTheNextRound() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("down"))
+                .thenReturn(new int[]{1});
+        salesAggregator.record(PRODUCT_ID, 2, 30);
+
+        salesAggregator.flush();
+        assertThat(salesAggregator.productStats(PRODUCT_ID, SELLER_ID).getUnitsSold()).isEqualTo(2);
+
+        salesAggregator.flush();
+        salesAggregator.flush();
+
+        verify(jdbcTemplate, times(2)).batchUpdate(startsWith("UPDATE product_sales"),
+                argThat((List<Object[]> rows) -> rows.size() == 1 && rows.get(0)[0].equals(2L) && rows.get(0)[1].equals(30L)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void flushOfFirstSale_thenUpdateFindsNoRowAndIncrementInserted() {
+        when(jdbcTemplate.batchUpdate(startsWith("UPDATE product_sales"), anyList())).thenReturn(new int[]{0});
+        when(jdbcTemplate.batchUpdate(startsWith("INSERT INTO product_sales"), anyList())).thenReturn(new int[]{1});
+        salesAggregator.record(PRODUCT_ID, 3, 45);
+
+        salesAggregator.flush();
+
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO product_sales"),
+                argThat((List<Object[]> rows) -> rows.size() == 1 && rows.get(0)[0].equals(3L) && rows.get(0)[3].equals(PRODUCT_ID)));
+    }
+
+    @Test
+    public void flushOfLaterSale_thenOnlyUpdated() {
+        when(jdbcTemplate.batchUpdate(startsWith("UPDATE product_sales"), anyList())).thenReturn(new int[]{1});
+        salesAggregator.record(PRODUCT_ID, 1, 15);
+
+        salesAggregator.flush();
+
+        verify(jdbcTemplate, never()).batchUpdate(startsWith("INSERT"), anyList());
+    }
+}